@@ -0,0 +1,58 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-instruction cost of dispatching a script.
+ *      `interpretRawMap` compiles the script map on every run, which is the work the engine used to repeat for every
+ *      block it executed; `executeCompiled` runs the pre-built instruction tree only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DispatchBenchmark {
+    private static final int INSTRUCTIONS = 100;
+
+    private Map<String, Object> script;
+    private CompiledScript compiled;
+    private SeleniumScripter scripter;
+
+    @Setup
+    public void setUp() {
+        script = new LinkedHashMap<>();
+        for (int i = 0; i < INSTRUCTIONS; ++i) {
+            Map<String, Object> block = new HashMap<>();
+            if (i % 2 == 0) {
+                block.put("operation", "set");
+                block.put("variable", "v" + i);
+                block.put("value", i);
+            } else {
+                block.put("operation", "noop");
+            }
+            script.put(Integer.toString(i), block);
+        }
+
+        compiled = new ScriptCompiler().compile(script);
+        scripter = new SeleniumScripter(new StubWebDriver());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void interpretRawMap() throws Exception {
+        scripter.runScript(script);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void executeCompiled() throws Exception {
+        scripter.runScript(compiled);
+    }
+}
@@ -0,0 +1,149 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.NoSuchElementException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU and allocation cost of the engine's hot paths against a stub driver, so no browser is needed.
+ *      Scores are per instruction, or per call for the helpers; run through {@link BenchmarkMain} to report the
+ *      allocation rate per operation alongside them. `runScript` dispatch is measured by {@link DispatchBenchmark}.
+ *      The engine's private helpers are called through constant method handles, which the JIT inlines like direct calls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class EngineBenchmark {
+    private static final int INSTRUCTIONS = 100;
+    private static final int SNAPSHOTS = 10;
+
+    private static final MethodHandle RUN_SUBSEQUENCE = handle("runSubsequence", List.class);
+    private static final MethodHandle RESOLVE_EXPRESSION_VALUE = handle("resolveExpressionValue", String.class);
+    private static final MethodHandle EXCEPTION_TO_SLUG_NAME = handle("exceptionToSlugName", Exception.class);
+
+    private SeleniumScripter scripter;
+    private List<Instruction> sequence;
+    private CompiledScript snapshotScript;
+    private Map<String, Object> block;
+    private Instruction instruction;
+    private List<Integer> list;
+    private Exception exception;
+
+    @Setup
+    public void setUp() throws Exception {
+        StubWebDriver driver = new StubWebDriver();
+        driver.setPageSource(page());
+        scripter = new SeleniumScripter(driver);
+
+        // A sequence of cheap instructions, so that the score is the engine's own overhead
+        Map<String, Object> script = new LinkedHashMap<>();
+        for (int i = 0; i < INSTRUCTIONS; ++i) {
+            Map<String, Object> set = new HashMap<>();
+            set.put("operation", i % 2 == 0 ? "set" : "noop");
+            set.put("variable", "v" + (i % 10));
+            set.put("value", "row-" + i);
+            script.put(Integer.toString(i), set);
+        }
+        sequence = new ScriptCompiler().compile(script).getInstructions();
+        scripter.runScript(script); // Instantiate the variables the expressions reference
+
+        Map<String, Object> snapshots = new LinkedHashMap<>();
+        for (int i = 0; i < SNAPSHOTS; ++i) {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("operation", "snapshot");
+            snapshots.put(Integer.toString(i), snapshot);
+        }
+        snapshotScript = new ScriptCompiler().compile(snapshots);
+
+        block = new HashMap<>();
+        block.put("operation", "click");
+        block.put("selector", "xpath");
+        block.put("name", "//table[@id='results']/tbody/tr[{v1}]/td[2]/a");
+        block.put("delay", 2);
+        block.put("until", "urlchanged");
+        instruction = new ScriptCompiler().compile(Collections.singletonMap("click", block))
+                .getInstructions().get(0);
+
+        list = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            list.add(i);
+        }
+        exception = new NoSuchElementException("Unable to locate element");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void runSubsequence() throws Throwable {
+        RUN_SUBSEQUENCE.invokeExact(scripter, sequence);
+    }
+
+    @Benchmark
+    public String resolveExpressionValue() throws Throwable {
+        return (String) RESOLVE_EXPRESSION_VALUE.invokeExact(scripter, "//div[@class='{v2}']/ul[{v4}]/li[{v6}]/span");
+    }
+
+    @Benchmark
+    public List slice() throws Exception {
+        return SeleniumScripter.slice("-900:-100", list);
+    }
+
+    @Benchmark
+    public Map<String, Object> convertToTreeMap() {
+        return ScriptCompiler.convertToTreeMap(block);
+    }
+
+    @Benchmark
+    public void validate() throws Exception {
+        instruction.validate("selector", "name", "delay");
+    }
+
+    @Benchmark
+    public String exceptionToSlugName() throws Throwable {
+        return (String) EXCEPTION_TO_SLUG_NAME.invokeExact(scripter, exception);
+    }
+
+    /**
+     * Push snapshots of a 100KB page, then drop them so that the stack does not grow across invocations
+     */
+    @Benchmark
+    @OperationsPerInvocation(SNAPSHOTS)
+    public void snapshot(Blackhole blackhole) throws Exception {
+        scripter.runScript(snapshotScript);
+        List<Snapshot> snapshots = scripter.getSnapshots();
+        blackhole.consume(snapshots.size());
+        snapshots.clear();
+    }
+
+    private static MethodHandle handle(String name, Class<?>... parameters) {
+        try {
+            Method method = SeleniumScripter.class.getDeclaredMethod(name, parameters);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The engine has no `" + name + "` method to benchmark!", e);
+        }
+    }
+
+    private static String page() {
+        StringBuilder html = new StringBuilder("<html><head><title>Results</title></head><body><table id=\"results\"><tbody>");
+        for (int row = 0; html.length() < 100 * 1024; ++row) {
+            html.append("<tr><td>").append(row).append("</td><td><a href=\"/item/").append(row).append("\">Item ")
+                    .append(row).append("</a></td></tr>");
+        }
+        return html.append("</tbody></table></body></html>").toString();
+    }
+}
@@ -0,0 +1,71 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the cost of resolving the script variables referenced by an expression.
+ *      `legacyReplace` is the original compile-scan-replace-rescan loop, `template` renders the cached
+ *      {@link ExpressionTemplate}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    @Param({
+            "//table[@id='results']/tbody/tr/td[2]/a",
+            "//*{row}/td[2]/a",
+            "//div[@class='{a}']/{b}/ul[{c}]/li[{d}]/span[@data-id='{e}']/{f}"
+    })
+    public String expression;
+
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        variables = new HashMap<>();
+        variables.put("row", "[@id=\"results\"]/TBODY[1]/TR[1500]");
+        variables.put("a", "results");
+        variables.put("b", "section");
+        variables.put("c", 3);
+        variables.put("d", 42);
+        variables.put("e", "a1b2c3");
+        variables.put("f", "text()");
+    }
+
+    @Benchmark
+    public String legacyReplace() throws ParseException {
+        String resolved = String.valueOf(expression);
+
+        Pattern identifierPattern = Pattern.compile("\\{[a-zA-Z_][a-zA-Z_0-9]*}");
+        Matcher matches = identifierPattern.matcher(resolved);
+        while(matches.find()) {
+            String identifier = matches.group();
+            String name = identifier.subSequence(1, identifier.length() - 1).toString();
+
+            Object value = variables.get(name);
+            if(value == null) {
+                throw new ParseException("Variable `" + name + "` not instantiated!", 0);
+            }
+
+            resolved = resolved.replace(identifier, value.toString());
+            matches = identifierPattern.matcher(resolved);
+        }
+
+        return resolved;
+    }
+
+    @Benchmark
+    public String template() throws ParseException {
+        return ExpressionTemplate.of(expression).render(variables);
+    }
+}
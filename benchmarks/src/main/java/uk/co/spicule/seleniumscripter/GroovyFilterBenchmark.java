@@ -0,0 +1,82 @@
+package uk.co.spicule.seleniumscripter;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of one `filter` evaluation with the Optum `filtermap` expression, compiling the script on every
+ *      evaluation as the engine used to, and running a fresh instance of the cached compiled class as it does now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class GroovyFilterBenchmark {
+    private static final String EVALUATION = "def newlist = [];\n"
+            + "capturelists.get('autocompletelist').each { g ->\n"
+            + " if( g.containsKey('BrandName') && g.get('BrandName').toString().toUpperCase().contains('Abilify'.toUpperCase())){\n"
+            + "  newlist.add(g.BrandName)\n"
+            + "}\n"
+            + "else if( g.containsKey('GenericName') && g.get('GenericName').toString().toUpperCase().contains('Abilify'.toUpperCase())){\n"
+            + "  newlist.add(g.BrandName)\n"
+            + "}\n"
+            + "else if( g.containsKey('AltBrandName') && g.get('AltBrandName').toString().toUpperCase().contains('Abilify'.toUpperCase())){\n"
+            + "        newlist.add(g.AltBrandName)\n"
+            + "      }\n"
+            + "else if((g.containsKey('FormularyAlternatives') && \"Abilify\".toUpperCase() in g.get('FormularyAlternatives').AltBrandName)){\n"
+            + "     g.get('FormularyAlternatives').each{ h ->\n"
+            + "        if(h.AltBrandName.toUpperCase().contains(\"Abilify\".toUpperCase())){\n"
+            + "            newlist.add(h.AltBrandName)\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n"
+            + "}\n"
+            + "return newlist.unique();\n";
+
+    @Param({"20"})
+    private int drugs;
+
+    private Map<String, List> captureLists;
+    private GroovyScriptCache cache;
+
+    @Setup
+    public void setUp() {
+        List<Map<String, Object>> autocomplete = new ArrayList<>();
+        for (int i = 0; i < drugs; ++i) {
+            Map<String, Object> drug = new HashMap<>();
+            drug.put("BrandName", i % 4 == 0 ? "ABILIFY " + i + " MG" : "BRAND " + i);
+            drug.put("GenericName", i % 4 == 1 ? "abilify generic" : "generic " + i);
+            drug.put("FormularyAlternatives", Collections.singletonList(Collections.singletonMap("AltBrandName", "ALT " + i)));
+            autocomplete.add(drug);
+        }
+        captureLists = new HashMap<>();
+        captureLists.put("autocompletelist", autocomplete);
+        cache = new GroovyScriptCache(128, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Object uncached() {
+        return new GroovyShell(binding()).evaluate(EVALUATION);
+    }
+
+    @Benchmark
+    public Object cached() {
+        return cache.evaluate(EVALUATION, binding());
+    }
+
+    private Binding binding() {
+        Binding binding = new Binding();
+        binding.setProperty("capturelists", captureLists);
+        return binding;
+    }
+}
@@ -0,0 +1,116 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained by a stack of captured formulary pages, and the time taken to capture them, for each
+ *      snapshot representation.
+ *      `string` holds the raw UTF-16 strings as the stack used to, `utf8` holds compact UTF-8 snapshot bodies and
+ *      `deflate` holds compressed ones. The retained heap per page is printed at the end of every iteration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class SnapshotMemoryBenchmark {
+    private static final int PAGES = 200;
+    private static final String[] DRUGS = {"atorvastatin", "lisinopril", "metformin ER", "insulin glargine",
+            "adalimumab", "apixaban", "semaglutide", "levothyroxine", "amlodipine", "sertraline"};
+    private static final String[] TIERS = {"Tier 1 \u2013 Preferred Generic", "Tier 2 \u2013 Generic",
+            "Tier 3 \u2013 Preferred Brand\u00ae", "Tier 4 \u2013 Non-Preferred", "Tier 5 \u2013 Specialty\u2122"};
+
+    @Param({"string", "utf8", "deflate"})
+    public String representation;
+
+    private String[] pages;
+    private Object stack; // Keeps the captured pages reachable until the heap has been measured
+    private long retainedBytesPerPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        pages = new String[PAGES];
+        for (int i = 0; i < PAGES; ++i) {
+            pages[i] = formularyPage(random, i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.println("retained " + retainedBytesPerPage + " bytes/page (" + representation + ")");
+        stack = null;
+    }
+
+    @Benchmark
+    public void capture() {
+        stack = null;
+        long before = usedHeap();
+
+        if ("string".equals(representation)) {
+            List<String> strings = new ArrayList<>();
+            for (String page : pages) {
+                strings.add(new String(page.toCharArray())); // A fresh copy, as `getPageSource()` would return
+            }
+            stack = strings;
+        } else {
+            SnapshotStore store = new SnapshotStore();
+            store.setMemoryBudget(Long.MAX_VALUE);
+            store.setCompression("deflate".equals(representation));
+            for (int i = 0; i < pages.length; ++i) {
+                store.add(new Snapshot("page-" + i, new String(pages[i].toCharArray())));
+            }
+            stack = store;
+        }
+
+        retainedBytesPerPage = (usedHeap() - before) / PAGES;
+    }
+
+    /**
+     * Collect garbage several times, keeping the lowest reading of the used heap
+     * @return the number of bytes of heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; ++i) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Generate a formulary search results page of roughly 500KB
+     * @param random the source of row values
+     * @param index the page number
+     * @return the page HTML
+     */
+    private static String formularyPage(Random random, int index) {
+        StringBuilder html = new StringBuilder(512 * 1024);
+        html.append("<!DOCTYPE html><html><head><title>Formulary \u2013 Page ").append(index)
+                .append("</title><link rel=\"stylesheet\" href=\"/static/formulary.css\"></head><body>")
+                .append("<nav class=\"breadcrumbs\"><a href=\"/\">Home</a> \u203a <a href=\"/plans\">Plans</a> \u203a ")
+                .append("Drug List</nav><table id=\"results\" class=\"formulary-table\"><thead><tr><th>Drug Name</th>")
+                .append("<th>Tier</th><th>Requirements &amp; Limits</th><th>Notes</th></tr></thead><tbody>");
+        for (int row = 0; html.length() < 500 * 1024; ++row) {
+            String drug = DRUGS[random.nextInt(DRUGS.length)];
+            html.append("<tr class=\"").append(row % 2 == 0 ? "even" : "odd").append("\" data-ndc=\"")
+                    .append(10000000000L + random.nextInt(Integer.MAX_VALUE)).append("\"><td><a href=\"/drug/")
+                    .append(drug.replace(' ', '-')).append("\">").append(drug).append(' ')
+                    .append(5 * (1 + random.nextInt(40))).append(" mg tablet</a></td><td>")
+                    .append(TIERS[random.nextInt(TIERS.length)]).append("</td><td>")
+                    .append(random.nextBoolean() ? "PA; " : "").append(random.nextBoolean() ? "QL (30 per 30 days); " : "")
+                    .append(random.nextBoolean() ? "ST" : "").append("</td><td>")
+                    .append(random.nextInt(4) == 0 ? "Covered under Part B when administered in a clinic." : "")
+                    .append("</td></tr>");
+        }
+        return html.append("</tbody></table><footer>\u00a9 Example Health Plan</footer></body></html>").toString();
+    }
+}
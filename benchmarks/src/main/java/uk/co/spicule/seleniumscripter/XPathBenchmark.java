@@ -0,0 +1,93 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of fetching the XPaths of every row in a large result list, as the `for` and `capturelist`
+ *      operations do.
+ *      `perElement` is the original one-`executeScript`-per-element path, `batchedElements` sends the whole
+ *      `findElements` result in one script and `batchedSelector` evaluates the selector in-page.
+ *      Requires a local Chrome and chromedriver; the fixture page is generated into a temporary file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class XPathBenchmark {
+    private static final String SELECTOR = "//table[@id='results']/tbody/tr";
+
+    @Param({"2000"})
+    public int rows;
+
+    private File fixture;
+    private RemoteWebDriver driver;
+    private SeleniumScripter scripter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = writeFixture(rows);
+
+        driver = new DriverFactory(Collections.singletonList("--headless")).generateDriver(BrowserType.CHROME);
+        driver.get(fixture.toURI().toString());
+        scripter = new SeleniumScripter(driver);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        driver.quit();
+        Files.deleteIfExists(fixture.toPath());
+    }
+
+    @Benchmark
+    public List<String> perElement() {
+        List<String> xpaths = new ArrayList<>();
+        for (WebElement element : driver.findElements(By.xpath(SELECTOR))) {
+            xpaths.add(scripter.getElementXPath(element));
+        }
+        return xpaths;
+    }
+
+    @Benchmark
+    public List<String> batchedElements() {
+        return scripter.getElementXPaths(driver.findElements(By.xpath(SELECTOR)));
+    }
+
+    @Benchmark
+    public List<String> batchedSelector() throws Exception {
+        return scripter.getElementXPaths("xpath", SELECTOR);
+    }
+
+    /**
+     * Generate a results page holding a table with the specified number of rows
+     * @param rows the number of table rows
+     * @return the fixture file
+     * @throws IOException occurs when the fixture failed to write to disk
+     */
+    private static File writeFixture(int rows) throws IOException {
+        StringBuilder html = new StringBuilder("<html><body><div class=\"content\"><table id=\"results\"><tbody>");
+        for (int i = 0; i < rows; ++i) {
+            html.append("<tr><td>").append(i).append("</td><td><a href=\"#").append(i).append("\">Result ")
+                    .append(i).append("</a></td></tr>");
+        }
+        html.append("</tbody></table></div></body></html>");
+
+        File fixture = File.createTempFile("xpath-benchmark", ".html");
+        Files.write(fixture.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+        return fixture;
+    }
+}
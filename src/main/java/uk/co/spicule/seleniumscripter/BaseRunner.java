@@ -5,7 +5,6 @@ import org.openqa.selenium.remote.RemoteWebDriver;
 
 import javax.management.AttributeNotFoundException;
 import java.io.IOException;
-import java.text.ParseException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -14,7 +13,7 @@ import org.yaml.snakeyaml.Yaml;
 public class BaseRunner {
     private boolean headless = false;
     private final String browserType = BrowserType.CHROME; // Type of driver to use
-    private final List<String> options = Arrays.asList("--no-sandbox",
+    static final List<String> OPTIONS = Arrays.asList("--no-sandbox",
             "--disable-gpu",
             "--disable-extensions",
             "--ignore-certificate-errors",
@@ -49,25 +48,14 @@ public class BaseRunner {
         System.setProperty(org.slf4j.impl.SimpleLogger.DEFAULT_LOG_LEVEL_KEY, "Debug");
 
         // Create driver factory
-        DriverFactory factory = new DriverFactory(options);
+        DriverFactory factory = new DriverFactory(OPTIONS);
         factory.setHeadless(headless);
 
         // Create driver
-        switch (browserType) {
-            case BrowserType.CHROME:
-                driver = factory.generateChromeDriver();
-                break;
-            case BrowserType.EDGE:
-                driver = factory.generateEdgeDriver();
-                break;
-            case BrowserType.FIREFOX:
-                driver = factory.generateFirefoxDriver();
-                break;
-            default:
-                throw new ParseException("Invalid browser type: " + browserType, 0);
-        }
+        driver = factory.generateDriver(browserType);
         driver.get(url);
         SeleniumScripter scriptRunner = new SeleniumScripter(driver, true);
+        scriptRunner.setDriverFactory(factory, browserType);
 
         // Set the default path
         String path = System.getProperty("user.home");
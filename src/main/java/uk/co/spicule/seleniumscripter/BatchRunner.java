@@ -0,0 +1,348 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.json.simple.JSONValue;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a manifest of (url, script) jobs over a shared {@link DriverPool}, so that a night of plan and formulary crawls
+ *      reuses a handful of warm browser sessions instead of launching one per job.
+ *      Jobs run concurrently, one per pooled session. A job that fails is recorded in the run report and its session is
+ *      reset (or replaced, if the browser died) before the next job, so it never affects the other jobs.
+ *      The manifest is a YAML (or JSON) file:
+ *          concurrency: 4          # The number of driver sessions, default 2
+ *          browser: chrome         # default chrome
+ *          headless: true          # default true
+ *          profile: scrape         # The `DriverProfile` to launch sessions with, default `default`
+ *          pageLoadStrategy: eager # Overrides the profile's page-load strategy: normal, eager or none
+ *          report: run-report.json # default `run-report.json` next to the manifest
+ *          jobs:
+ *            - name: alabama
+ *              url: https://www.medicaid.alabamaservices.org/ALPortal/NDC%20Look%20Up/tabId/39/Default.aspx
+ *              script: alabama.yaml # Relative to the manifest
+ */
+public class BatchRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final DriverPool pool; // Leases the sessions jobs run on
+    private final ScriptMetrics metrics = new ScriptMetrics(); // Operation timings and command counts across all jobs
+    private String outputPath = "./"; // The starting path for screenshots and stack dumps, a directory per job
+    private BiConsumer<Job, List<Snapshot>> snapshotHandler = null; // Receives the snapshots of each successful job
+
+    /**
+     * A single script to run against a starting page
+     */
+    public static final class Job {
+        private final String name;
+        private final String url;
+        private final Map<String, Object> script;
+
+        public Job(String name, String url, Map<String, Object> script) {
+            this.name = name;
+            this.url = url;
+            this.script = script;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Map<String, Object> getScript() {
+            return script;
+        }
+    }
+
+    /**
+     * The outcome of a single job
+     */
+    public static final class Result {
+        private final Job job;
+        private final long wallMillis;
+        private final int snapshots;
+        private final String failure; // The reason the job failed, or null if it succeeded
+
+        Result(Job job, long wallMillis, int snapshots, String failure) {
+            this.job = job;
+            this.wallMillis = wallMillis;
+            this.snapshots = snapshots;
+            this.failure = failure;
+        }
+
+        public Job getJob() {
+            return job;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public int getSnapshots() {
+            return snapshots;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        public boolean isSuccessful() {
+            return failure == null;
+        }
+    }
+
+    /**
+     * @param pool the pool to lease job sessions from, whose size is the number of jobs run at once
+     */
+    public BatchRunner(DriverPool pool) {
+        this.pool = pool;
+    }
+
+    public ScriptMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setOutputPath(String path) {
+        this.outputPath = path;
+    }
+
+    /**
+     * Set a handler to receive the snapshots of each successful job, from the thread that ran it
+     * @param handler the snapshot handler
+     */
+    public void setSnapshotHandler(BiConsumer<Job, List<Snapshot>> handler) {
+        this.snapshotHandler = handler;
+    }
+
+    /**
+     * Run every job, as many at once as the pool has sessions
+     * @param jobs the jobs to run
+     * @return the result of each job, in manifest order
+     * @throws InterruptedException occurs when the thread is interrupted while waiting for the jobs to finish
+     */
+    public List<Result> run(List<Job> jobs) throws InterruptedException {
+        Result[] results = new Result[jobs.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(pool.getSize(), jobs.size())));
+        for (int i = 0; i < jobs.size(); ++i) {
+            final int index = i;
+            executor.submit(() -> {
+                try {
+                    results[index] = run(jobs.get(index));
+                } catch (Throwable e) {
+                    results[index] = new Result(jobs.get(index), 0, 0, e.toString());
+                }
+            });
+        }
+
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            LOG.info("Waiting on the remaining batch jobs...");
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Run a single job on a leased session, recording rather than propagating any failure
+     * @param job the job to run
+     * @return the result of the job
+     */
+    private Result run(Job job) {
+        LOG.info("Starting job `" + job.getName() + "` on " + job.getUrl());
+        long start = System.nanoTime();
+        RemoteWebDriver driver = null;
+        SeleniumScripter scripter = null;
+        ScreenshotWriter screenshotWriter = new ScreenshotWriter(2, 8); // Closed with the job, so its threads don't pile up
+        String failure = null;
+        try {
+            driver = pool.lease();
+            driver.get(job.getUrl());
+            scripter = new SeleniumScripter(driver);
+            scripter.setMetrics(metrics);
+            scripter.setScreenshotWriter(screenshotWriter);
+            scripter.setOutputPath(new File(outputPath, job.getName()).getPath());
+            scripter.runScript(job.getScript());
+            if (snapshotHandler != null) {
+                snapshotHandler.accept(job, scripter.getSnapshots());
+            }
+        } catch (Exception e) {
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+            LOG.error("Job `" + job.getName() + "` failed:");
+            e.printStackTrace();
+        } finally {
+            screenshotWriter.close();
+            if (driver != null) {
+                metrics.uninstrument(driver); // So that the pool's resets and health probes are not counted
+                pool.release(driver);
+            }
+        }
+
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int snapshots = 0;
+        if (scripter != null) {
+            // Delete the job's spilled snapshots, which the handler has had its chance to read
+            snapshots = scripter.getSnapshots().size();
+            ((SnapshotStore) scripter.getSnapshots()).close();
+        }
+        LOG.info("Finished job `" + job.getName() + "` in " + wallMillis + "ms with " + snapshots + " snapshots"
+                + (failure == null ? "" : ", failed with " + failure));
+        return new Result(job, wallMillis, snapshots, failure);
+    }
+
+    /**
+     * Load the jobs of a manifest
+     * @param manifest the manifest file
+     * @return the jobs, in manifest order
+     * @throws IOException occurs when the manifest or one of its scripts fails to read
+     * @throws ParseException occurs when a job is missing its name, url or script
+     */
+    public static List<Job> loadJobs(File manifest) throws IOException, ParseException {
+        Map<String, Object> config = loadYaml(manifest);
+        Object entries = config.get("jobs");
+        if (!(entries instanceof List)) {
+            throw new ParseException("Manifest `" + manifest + "` has no list of `jobs`!", 0);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Object entry : (List<?>) entries) {
+            if (!(entry instanceof Map)) {
+                throw new ParseException("Job #" + (jobs.size() + 1) + " in `" + manifest + "` is not a map!", 0);
+            }
+
+            Map<String, Object> fields = asMap(entry);
+            for (String field : Arrays.asList("name", "url", "script")) {
+                if (fields.get(field) == null) {
+                    throw new ParseException("Job #" + (jobs.size() + 1) + " in `" + manifest + "` has no `" + field + "`!", 0);
+                }
+            }
+            String name = fields.get("name").toString();
+            if (!names.add(name)) {
+                throw new ParseException("Job name `" + name + "` is used more than once in `" + manifest + "`!", 0);
+            }
+
+            File script = new File(fields.get("script").toString());
+            if (!script.isAbsolute()) {
+                script = new File(manifest.getAbsoluteFile().getParentFile(), script.getPath());
+            }
+            jobs.add(new Job(name, fields.get("url").toString(), loadYaml(script)));
+        }
+        return jobs;
+    }
+
+    /**
+     * Write a consolidated run report
+     * @param results the result of each job
+     * @param wallMillis the wall time of the whole run
+     * @param file the JSON file to write the report to
+     * @throws IOException occurs when the report fails to write
+     */
+    public void writeReport(List<Result> results, long wallMillis, File file) throws IOException {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        int failed = 0;
+        int snapshots = 0;
+        for (Result result : results) {
+            Map<String, Object> job = new LinkedHashMap<>();
+            job.put("name", result.getJob().getName());
+            job.put("url", result.getJob().getUrl());
+            job.put("status", result.isSuccessful() ? "succeeded" : "failed");
+            job.put("wallMillis", result.getWallMillis());
+            job.put("snapshots", result.getSnapshots());
+            job.put("failure", result.getFailure());
+            jobs.add(job);
+
+            failed += result.isSuccessful() ? 0 : 1;
+            snapshots += result.getSnapshots();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("jobs", jobs);
+        report.put("succeeded", results.size() - failed);
+        report.put("failed", failed);
+        report.put("snapshots", snapshots);
+        report.put("wallMillis", wallMillis);
+        report.put("webDriverCommands", metrics.getCommands());
+        report.put("driverPool", pool.getMetrics().toString());
+
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            JSONValue.writeJSONString(report, out);
+        }
+    }
+
+    private static Map<String, Object> loadYaml(File file) throws IOException, ParseException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            Object content = new Yaml().load(in);
+            if (!(content instanceof Map)) {
+                throw new ParseException("`" + file + "` is not a YAML map!", 0);
+            }
+            return asMap(content);
+        }
+    }
+
+    /**
+     * @param yaml a map parsed from YAML, whose keys are strings
+     * @return the map, typed
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object yaml) {
+        return (Map<String, Object>) yaml;
+    }
+
+    /**
+     * Run a manifest of jobs and write the run report, exiting with status 1 if any job failed
+     * @param args the path to the manifest
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: BatchRunner <manifest.yaml>");
+            System.exit(2);
+        }
+
+        File manifest = new File(args[0]);
+        Map<String, Object> config = loadYaml(manifest);
+        List<Job> jobs = loadJobs(manifest);
+        int concurrency = Integer.parseInt(String.valueOf(config.getOrDefault("concurrency", 2)));
+        String browser = String.valueOf(config.getOrDefault("browser", BrowserType.CHROME));
+        File report = new File(String.valueOf(config.getOrDefault("report",
+                new File(manifest.getAbsoluteFile().getParentFile(), "run-report.json").getPath())));
+
+        DriverFactory factory = new DriverFactory(BaseRunner.OPTIONS);
+        factory.setHeadless(Boolean.parseBoolean(String.valueOf(config.getOrDefault("headless", true))));
+        factory.setProfile(String.valueOf(config.getOrDefault("profile", DriverProfile.DEFAULT)));
+        if (config.containsKey("pageLoadStrategy")) {
+            factory.getProfile().setPageLoadStrategy(PageLoadStrategy.valueOf(config.get("pageLoadStrategy").toString().toUpperCase()));
+        }
+
+        long start = System.nanoTime();
+        int failed = 0;
+        try (DriverPool pool = new DriverPool(factory, browser, concurrency)) {
+            BatchRunner runner = new BatchRunner(pool);
+            List<Result> results = runner.run(jobs);
+            runner.writeReport(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), report);
+
+            for (Result result : results) {
+                failed += result.isSuccessful() ? 0 : 1;
+            }
+            LOG.info("Ran " + jobs.size() + " jobs, " + failed + " failed, see `" + report + "` for the run report");
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
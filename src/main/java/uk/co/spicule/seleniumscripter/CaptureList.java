@@ -0,0 +1,267 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * A capture list which is appended to in place.
+ *      Elements are stored in fixed-size chunks, so that appending never copies the elements already in the list.
+ *      The list is append-only: elements cannot be replaced or removed. Iterators see the elements that were in the
+ *      list when they were created and never throw a {@link ConcurrentModificationException}, so a list can be
+ *      appended to while it is being iterated over, including from another thread.
+ *      Once more than the spill threshold of elements are held in memory, the oldest full chunks are serialized to a
+ *      temporary segment file and read back lazily, one chunk at a time.
+ * @param <E> the element type
+ */
+public class CaptureList<E> extends AbstractList<E> implements RandomAccess, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(CaptureList.class);
+
+    static final int CHUNK_SIZE = 1024; // The number of elements in each chunk
+
+    private volatile Object[] chunks = new Object[8]; // Each chunk is either an element array or a spilled chunk
+    private volatile int size = 0; // The number of elements in the list
+    private volatile Loaded loaded = null; // The last spilled chunk read back from disk
+    private int firstResident = 0; // The index of the oldest chunk still held in memory
+    private int spillThreshold = Integer.MAX_VALUE; // The number of elements to hold in memory before spilling
+    private File directory = null; // The directory to write segment files to, or null for the system temp directory
+    private SnapshotStore.Segment segment = null; // The segment file this list spills to
+
+    /**
+     * A chunk which was serialized to a segment file
+     */
+    private static final class Spilled {
+        private final SnapshotStore.Segment segment;
+        private final long offset;
+        private final int length;
+
+        Spilled(SnapshotStore.Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A spilled chunk which was read back into memory
+     */
+    private static final class Loaded {
+        private final Spilled source;
+        private final Object[] elements;
+
+        Loaded(Spilled source, Object[] elements) {
+            this.source = source;
+            this.elements = elements;
+        }
+    }
+
+    public CaptureList() {
+    }
+
+    public CaptureList(Collection<? extends E> elements) {
+        addAll(elements);
+    }
+
+    public synchronized int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Set the number of elements to hold in memory before the oldest chunks are spilled to disk.
+     *      The elements must be serializable; if one is not, spilling is disabled for the list.
+     * @param elements the spill threshold, or {@link Integer#MAX_VALUE} to never spill
+     */
+    public synchronized void setSpillThreshold(int elements) {
+        this.spillThreshold = elements;
+        spill();
+    }
+
+    public synchronized File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Set the directory that spilled chunks are written to
+     * @param directory the spill directory, or null for the system temp directory
+     */
+    public synchronized void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the number of elements which have been spilled to disk
+     */
+    public synchronized int getSpilledCount() {
+        return firstResident * CHUNK_SIZE;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Object chunk = chunks[index / CHUNK_SIZE];
+        Object[] elements = chunk instanceof Spilled ? load((Spilled) chunk) : (Object[]) chunk;
+        return (E) elements[index % CHUNK_SIZE];
+    }
+
+    @Override
+    public synchronized boolean add(E element) {
+        append(element);
+        spill();
+        return true;
+    }
+
+    /**
+     * Only appending is supported
+     * @param index the size of the list
+     * @param element the element to append
+     */
+    @Override
+    public void add(int index, E element) {
+        if (index != size) {
+            throw new UnsupportedOperationException("Capture lists can only be appended to!");
+        }
+        add(element);
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends E> elements) {
+        for (E element : elements) {
+            append(element);
+        }
+        spill();
+        return !elements.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final int end = size;
+        return new Iterator<E>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < end;
+            }
+
+            @Override
+            public E next() {
+                if (cursor >= end) {
+                    throw new NoSuchElementException();
+                }
+                return get(cursor++);
+            }
+        };
+    }
+
+    /**
+     * Create a copy of the list which shares every full chunk with this one, so that both can be appended to
+     *      independently without copying the elements they have in common
+     * @return the copy
+     */
+    public synchronized CaptureList<E> fork() {
+        CaptureList<E> fork = new CaptureList<>();
+        fork.chunks = Arrays.copyOf(chunks, chunks.length);
+        int partial = size / CHUNK_SIZE;
+        if (size % CHUNK_SIZE != 0) {
+            fork.chunks[partial] = Arrays.copyOf((Object[]) chunks[partial], CHUNK_SIZE);
+        }
+        fork.size = size;
+        fork.firstResident = firstResident;
+        fork.spillThreshold = spillThreshold;
+        fork.directory = directory;
+        return fork;
+    }
+
+    /**
+     * Delete the segment file written by this list.
+     *      Any spilled element of this list, or of a fork of it, can no longer be read afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.delete();
+            segment = null;
+        }
+    }
+
+    private void append(Object element) {
+        int chunk = size / CHUNK_SIZE;
+        if (size % CHUNK_SIZE == 0) {
+            Object[] grown = chunk < chunks.length ? chunks : Arrays.copyOf(chunks, chunks.length * 2);
+            grown[chunk] = new Object[CHUNK_SIZE];
+            chunks = grown;
+        }
+        ((Object[]) chunks[chunk])[size % CHUNK_SIZE] = element;
+        size = size + 1; // Publishes the element to readers
+    }
+
+    /**
+     * Spill the oldest full chunks to disk until the elements held in memory fit within the spill threshold
+     */
+    private void spill() {
+        while (size - firstResident * CHUNK_SIZE > spillThreshold && (firstResident + 1) * CHUNK_SIZE <= size) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(chunks[firstResident]);
+                }
+                if (segment == null) {
+                    File file = File.createTempFile("capturelist-", ".segment", directory);
+                    segment = new SnapshotStore.Segment(file);
+                }
+                long offset = segment.write(bytes.toByteArray());
+                chunks[firstResident] = new Spilled(segment, offset, bytes.size());
+                ++firstResident;
+            } catch (NotSerializableException e) {
+                LOG.warn("Capture list elements of type `" + e.getMessage() + "` can't be spilled, keeping the list in memory!");
+                spillThreshold = Integer.MAX_VALUE;
+            } catch (IOException e) {
+                LOG.error("Failed to spill capture list elements to disk, keeping them in memory:");
+                e.printStackTrace();
+                spillThreshold = Integer.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Read a spilled chunk back from disk, reusing the last chunk read if it is the same one
+     * @param chunk the spilled chunk
+     * @return the elements of the chunk
+     * @throws UncheckedIOException occurs when the chunk fails to read from its segment file
+     */
+    private Object[] load(Spilled chunk) {
+        Loaded last = loaded;
+        if (last != null && last.source == chunk) {
+            return last.elements;
+        }
+
+        try (InputStream in = chunk.segment.openStream(chunk.offset, chunk.length);
+             ObjectInputStream objects = new ObjectInputStream(in)) {
+            Object[] elements = (Object[]) objects.readObject();
+            loaded = new Loaded(chunk, elements);
+            return elements;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spilled capture list elements!", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Writes periodic checkpoints of a long-running crawl and restores them to resume it.
+ *      A checkpoint holds the position of every running `for` and `loop` operation, the script variables, the capture
+ *      lists and the number of snapshots taken. The snapshots themselves are appended to a log file as they are taken,
+ *      so a checkpoint only records how much of the log belongs to it. Capture lists which are appended to in place are
+ *      logged the same way, one file per list, so that a checkpoint never reads back elements which have already
+ *      been spilled to disk.
+ *      To resume, the script is run again from the start so that the browser gets back to the same page, but each
+ *      checkpointed loop skips the iterations it had already completed. When the innermost checkpointed loop is reached,
+ *      the variables, capture lists and snapshots are replaced with those of the checkpoint, discarding anything the
+ *      replayed instructions collected a second time.
+ */
+final class Checkpointer {
+    private static final Logger LOG = LoggerFactory.getLogger(Checkpointer.class);
+
+    static final String STATE_FILE = "checkpoint.ser"; // The latest checkpoint
+    static final String SNAPSHOT_LOG = "snapshots.log"; // Every snapshot taken, in stack order
+
+    private final File directory; // The directory the checkpoint files are written to
+    private final Map<String, Object> variables; // The scripter's variables
+    private final Map<String, List<?>> captureLists; // The scripter's capture lists
+    private final List<Snapshot> snapshots; // The scripter's snapshot stack
+    private final Deque<Frame> frames = new ArrayDeque<>(); // The running loops, outermost first
+    private long interval = 0; // The least number of milliseconds between two checkpoints, 0 for every iteration
+    private long lastWritten = 0; // When the last checkpoint was written
+    private int loggedSnapshots = 0; // The number of snapshots in the log file
+    private long logLength = 0; // The length of the log file in bytes
+    private State resumeState = null; // The checkpoint being resumed, until its innermost loop is reached
+    private final Map<String, ListLog> listLogs = new HashMap<>(); // The log of each capture list, by name
+    private final Set<String> unserializable = new HashSet<>(); // Variables which could not be checkpointed
+
+    /**
+     * The position of a running loop
+     */
+    static final class Frame implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String key; // Identifies the loop instruction within the script
+        private final int size; // The number of items the loop iterates over
+        private int index; // The iteration to start from when resuming
+        private final BitSet finished = new BitSet(); // Iterations after `index` which finished out of order
+        private transient boolean resumed = false; // Whether the loop was fast-forwarded to a checkpointed position
+
+        Frame(String key, int size, int index) {
+            this.key = key;
+            this.size = size;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The part of a capture list which was appended to its log file
+     */
+    private static final class ListLog implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String file; // The name of the log file within the checkpoint directory
+        private int size = 0; // The number of elements in the log file
+        private long length = 0; // The length of the log file in bytes
+        private int spillThreshold = Integer.MAX_VALUE; // The spill threshold of the list
+        private File directory = null; // The spill directory of the list
+        private transient List<?> list = null; // The list which was logged, so that a replaced list is logged afresh
+
+        ListLog(String file) {
+            this.file = file;
+        }
+
+        ListLog copy() {
+            ListLog copy = new ListLog(file);
+            copy.size = size;
+            copy.length = length;
+            copy.spillThreshold = spillThreshold;
+            copy.directory = directory;
+            return copy;
+        }
+    }
+
+    /**
+     * The contents of a checkpoint file
+     */
+    private static final class State implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Frame> frames = new ArrayList<>();
+        private final Map<String, byte[]> variables = new HashMap<>(); // Serialized values by name
+        private final Map<String, byte[]> captureLists = new HashMap<>(); // Serialized lists by name
+        private final Map<String, ListLog> listLogs = new HashMap<>(); // Logged capture lists by name
+        private int snapshots; // The number of snapshots in the log at the time of the checkpoint
+        private long snapshotBytes; // The length of the log at the time of the checkpoint
+    }
+
+    /**
+     * @param directory the directory to write the checkpoint files to
+     * @param variables the scripter's variables
+     * @param captureLists the scripter's capture lists
+     * @param snapshots the scripter's snapshot stack
+     * @throws IOException occurs when the directory fails to be created
+     */
+    Checkpointer(File directory, Map<String, Object> variables, Map<String, List<?>> captureLists, List<Snapshot> snapshots)
+            throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.variables = variables;
+        this.captureLists = captureLists;
+        this.snapshots = snapshots;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    void setInterval(long millis) {
+        this.interval = millis;
+    }
+
+    /**
+     * Load the last checkpoint written to the directory, to be restored once the script reaches it again
+     * @return true if a checkpoint was found
+     * @throws IOException occurs when the checkpoint fails to read
+     */
+    boolean load() throws IOException {
+        File file = new File(directory, STATE_FILE);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            resumeState = (State) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Checkpoint `" + file + "` is not valid!", e);
+        }
+
+        StringBuilder position = new StringBuilder();
+        for (Frame frame : resumeState.frames) {
+            position.append(" `").append(frame.key).append("` at ").append(frame.index).append('/').append(frame.size);
+        }
+        LOG.info("Resuming from a checkpoint with " + resumeState.snapshots + " snapshots, skipping to" + position);
+        return true;
+    }
+
+    /**
+     * @return true if a loaded checkpoint has not been reached yet
+     */
+    boolean isResuming() {
+        return resumeState != null;
+    }
+
+    /**
+     * Start tracking a loop, restoring the checkpoint being resumed if this is its innermost loop
+     * @param instruction the loop instruction
+     * @param size the number of items the loop iterates over
+     * @return the index of the first iteration to run
+     */
+    int enter(Instruction instruction, int size) {
+        String key = instruction.getName() + "@" + instruction.getPath();
+        int depth = frames.size();
+        int start = 0;
+        boolean resumed = false;
+        BitSet finished = new BitSet();
+
+        if (resumeState != null && depth < resumeState.frames.size()) {
+            Frame saved = resumeState.frames.get(depth);
+            if (saved.key.equals(key)) {
+                if (saved.size != size) {
+                    LOG.warn("Loop `" + key + "` now has " + size + " items, but had " + saved.size
+                            + " when it was checkpointed!");
+                }
+                start = Math.min(saved.index, size);
+                finished.or(saved.finished);
+                LOG.info("Resuming loop `" + key + "` from iteration " + start + "!");
+                if (depth == resumeState.frames.size() - 1) {
+                    restore();
+                } else {
+                    resumed = true;
+                }
+            }
+        }
+
+        Frame frame = new Frame(key, size, start);
+        frame.resumed = resumed;
+        frame.finished.or(finished);
+        frames.addLast(frame);
+        return start;
+    }
+
+    /**
+     * Record that the current iteration of the innermost loop finished, writing a checkpoint if one is due
+     */
+    void completed() {
+        Frame frame = frames.peekLast();
+        if (frame != null) {
+            completed(frame.index);
+        }
+    }
+
+    /**
+     * Record that an iteration of the innermost loop finished, possibly before some of the iterations preceding it,
+     *      writing a checkpoint if one is due
+     * @param iteration the index of the iteration
+     */
+    void completed(int iteration) {
+        Frame frame = frames.peekLast();
+        if (frame == null) {
+            return;
+        }
+        frame.finished.set(iteration);
+        while (frame.finished.get(frame.index)) {
+            frame.finished.clear(frame.index++);
+        }
+
+        if (resumeState != null && frame.resumed) {
+            // The checkpointed inner loop was not reached again, so restore the checkpoint here rather than repeat it
+            LOG.warn("Loop `" + frame.key + "` finished a resumed iteration without reaching its checkpoint!");
+            restore();
+        }
+
+        if (resumeState == null && System.currentTimeMillis() - lastWritten >= interval) {
+            try {
+                write();
+            } catch (IOException e) {
+                LOG.error("Failed to write a checkpoint, continuing without it:");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @param iteration the index of an iteration of the innermost loop
+     * @return true if the iteration finished before the checkpoint being resumed, or since the loop was entered
+     */
+    boolean isCompleted(int iteration) {
+        Frame frame = frames.peekLast();
+        return frame != null && (iteration < frame.index || frame.finished.get(iteration));
+    }
+
+    /**
+     * Stop tracking the innermost loop
+     */
+    void exit() {
+        frames.pollLast();
+    }
+
+    /**
+     * Delete the checkpoint files once the script has finished, so that a later resume starts from scratch
+     */
+    void finish() {
+        if (resumeState != null) {
+            LOG.warn("The script finished without reaching its checkpoint, the script may have changed!");
+            resumeState = null;
+        }
+        new File(directory, STATE_FILE).delete();
+        new File(directory, SNAPSHOT_LOG).delete();
+        for (ListLog log : listLogs.values()) {
+            new File(directory, log.file).delete();
+        }
+        listLogs.clear();
+        loggedSnapshots = 0;
+        logLength = 0;
+    }
+
+    /**
+     * Write a checkpoint of the running loops and the scripter's state
+     * @throws IOException occurs when the checkpoint fails to write
+     */
+    void write() throws IOException {
+        State state = new State();
+        for (Frame frame : frames) {
+            Frame copy = new Frame(frame.key, frame.size, frame.index);
+            copy.finished.or(frame.finished);
+            state.frames.add(copy);
+        }
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            byte[] value = serialize(variable.getKey(), variable.getValue());
+            if (value != null) {
+                state.variables.put(variable.getKey(), value);
+            }
+        }
+        for (Map.Entry<String, List<?>> list : captureLists.entrySet()) {
+            if (list.getValue() instanceof CaptureList) {
+                ListLog log = logCaptureList(list.getKey(), (CaptureList<?>) list.getValue());
+                if (log != null) {
+                    state.listLogs.put(list.getKey(), log.copy());
+                }
+                continue;
+            }
+            byte[] value = serialize(list.getKey(), new ArrayList<Object>(list.getValue()));
+            if (value != null) {
+                state.captureLists.put(list.getKey(), value);
+            }
+        }
+        logSnapshots();
+        state.snapshots = loggedSnapshots;
+        state.snapshotBytes = logLength;
+
+        // Replace the previous checkpoint atomically, so that a crash while writing never leaves a broken one
+        File file = new File(directory, STATE_FILE);
+        File temporary = new File(directory, STATE_FILE + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeObject(state);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastWritten = System.currentTimeMillis();
+    }
+
+    /**
+     * Append the snapshots taken since the last checkpoint to the log, rewriting it if snapshots were removed
+     * @throws IOException occurs when the log fails to write
+     */
+    private void logSnapshots() throws IOException {
+        if (snapshots.size() < loggedSnapshots) {
+            loggedSnapshots = 0;
+            logLength = 0;
+        }
+        if (snapshots.size() == loggedSnapshots && logLength > 0) {
+            return;
+        }
+
+        File log = new File(directory, SNAPSHOT_LOG);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(log, logLength > 0)))) {
+            for (int i = loggedSnapshots; i < snapshots.size(); ++i) {
+                Snapshot snapshot = snapshots.get(i);
+                byte[] name = String.valueOf(snapshot.getName()).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                if (snapshot.getBody() == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(snapshot.getContentLength());
+                    snapshot.writeContentTo(out);
+                }
+            }
+        }
+        loggedSnapshots = snapshots.size();
+        logLength = log.length();
+    }
+
+    /**
+     * Append the elements added to a capture list since the last checkpoint to its log, one chunk at a time.
+     *      A list which was replaced or has shrunk since it was last logged is logged again from scratch.
+     * @param name the name of the capture list
+     * @param list the capture list
+     * @return the log of the list, or null if its elements can't be serialized
+     * @throws IOException occurs when the log fails to write
+     */
+    private ListLog logCaptureList(String name, CaptureList<?> list) throws IOException {
+        ListLog log = listLogs.get(name);
+        if (log == null) {
+            log = new ListLog(unusedListLogName());
+            listLogs.put(name, log);
+        }
+        if (log.list != list || list.size() < log.size) {
+            log.list = list;
+            log.size = 0;
+            log.length = 0;
+        }
+        log.spillThreshold = list.getSpillThreshold();
+        log.directory = list.getDirectory();
+
+        File file = new File(directory, log.file);
+        int end = list.size();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, log.length > 0)))) {
+            while (log.size < end) {
+                Object[] chunk = new Object[Math.min(CaptureList.CHUNK_SIZE, end - log.size)];
+                for (int i = 0; i < chunk.length; ++i) {
+                    chunk[i] = list.get(log.size + i);
+                }
+                byte[] bytes = serialize(name, chunk);
+                if (bytes == null) {
+                    return null;
+                }
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                log.size += chunk.length;
+                log.length += 4 + bytes.length;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * @return a capture list log file name which no list is logged to
+     */
+    private String unusedListLogName() {
+        Set<String> used = new HashSet<>();
+        for (ListLog log : listLogs.values()) {
+            used.add(log.file);
+        }
+        for (int i = listLogs.size(); ; ++i) {
+            String name = "capturelist-" + i + ".log";
+            if (!used.contains(name)) {
+                return name;
+            }
+        }
+    }
+
+    /**
+     * Read a capture list back from its log, dropping any elements logged after the checkpoint
+     * @param saved the log of the list at the time of the checkpoint
+     * @return the capture list
+     * @throws IOException occurs when the log fails to read
+     */
+    private CaptureList<Object> readCaptureList(ListLog saved) throws IOException {
+        CaptureList<Object> list = new CaptureList<>();
+        list.setDirectory(saved.directory);
+        list.setSpillThreshold(saved.spillThreshold);
+
+        File file = new File(directory, saved.file);
+        try (RandomAccessFile log = new RandomAccessFile(file, "rw")) {
+            log.setLength(saved.length);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (list.size() < saved.size) {
+                list.addAll(Arrays.asList((Object[]) deserialize(readBytes(in, in.readInt()))));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Replace the scripter's state with that of the checkpoint being resumed
+     */
+    private void restore() {
+        State state = resumeState;
+        resumeState = null;
+
+        try {
+            Map<String, Object> restoredVariables = new HashMap<>();
+            for (Map.Entry<String, byte[]> variable : state.variables.entrySet()) {
+                restoredVariables.put(variable.getKey(), deserialize(variable.getValue()));
+            }
+            Map<String, List<?>> restoredLists = new HashMap<>();
+            for (Map.Entry<String, byte[]> list : state.captureLists.entrySet()) {
+                restoredLists.put(list.getKey(), (List<?>) deserialize(list.getValue()));
+            }
+            Map<String, ListLog> restoredLogs = new HashMap<>();
+            for (Map.Entry<String, ListLog> saved : state.listLogs.entrySet()) {
+                ListLog log = saved.getValue().copy();
+                log.list = readCaptureList(log);
+                restoredLists.put(saved.getKey(), log.list);
+                restoredLogs.put(saved.getKey(), log);
+            }
+            List<Snapshot> restoredSnapshots = readSnapshots(state);
+
+            variables.clear();
+            variables.putAll(restoredVariables);
+            captureLists.clear();
+            captureLists.putAll(restoredLists);
+            listLogs.clear();
+            listLogs.putAll(restoredLogs);
+            snapshots.clear();
+            snapshots.addAll(restoredSnapshots);
+            loggedSnapshots = state.snapshots;
+            logLength = state.snapshotBytes;
+        } catch (IOException e) {
+            LOG.error("Failed to restore the checkpoint, continuing with the state of the replayed script:");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read the snapshots belonging to a checkpoint from the log, dropping any logged after it
+     * @param state the checkpoint
+     * @return the snapshots
+     * @throws IOException occurs when the log fails to read
+     */
+    private List<Snapshot> readSnapshots(State state) throws IOException {
+        List<Snapshot> restored = new ArrayList<>();
+        File log = new File(directory, SNAPSHOT_LOG);
+        if (state.snapshots == 0) {
+            log.delete();
+            return restored;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(state.snapshotBytes);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+            for (int i = 0; i < state.snapshots; ++i) {
+                String name = new String(readBytes(in, in.readInt()), StandardCharsets.UTF_8);
+                int length = in.readInt();
+                restored.add(new Snapshot(name, length < 0 ? null : new String(readBytes(in, length), StandardCharsets.UTF_8)));
+            }
+        }
+        return restored;
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Serialize a value, skipping it with a warning if it can't be serialized, e.g. a web element
+     * @param name the name of the variable or capture list
+     * @param value the value
+     * @return the serialized value, or null if it can't be serialized
+     * @throws IOException occurs when the value fails to serialize for another reason
+     */
+    private byte[] serialize(String name, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            if (unserializable.add(name)) {
+                LOG.warn("`" + name + "` holds a `" + e.getMessage() + "` which can't be checkpointed, it won't be restored on resume!");
+            }
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package uk.co.spicule.seleniumscripter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A script that has been compiled by the {@link ScriptCompiler} and can be run any number of times, by any number of
+ *      {@link SeleniumScripter}s.
+ */
+public final class CompiledScript {
+    private final ScriptCompiler compiler; // The compiler used to lazily compile subscripts
+    private final List<Instruction> instructions; // The top-level instructions, in script order
+    private final Map<?, ?> subscripts; // The raw `subscripts` section of the script
+    private final Map<String, CompiledScript> compiledSubscripts = new ConcurrentHashMap<>();
+
+    CompiledScript(ScriptCompiler compiler, List<Instruction> instructions, Map<?, ?> subscripts) {
+        this.compiler = compiler;
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.subscripts = subscripts;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Fetch one of the script's named subscripts, compiling it on first use
+     * @param name the subscript name
+     * @return the compiled subscript, or null if the script has no such subscript
+     */
+    public CompiledScript getSubscript(String name) {
+        CompiledScript subscript = compiledSubscripts.get(name);
+        if (subscript == null) {
+            Object raw = subscripts.get(name);
+            if (!(raw instanceof Map)) {
+                return null;
+            }
+
+            subscript = compiler.compile(ScriptCompiler.convertToTreeMap((Map<String, Object>) raw));
+            CompiledScript existing = compiledSubscripts.putIfAbsent(name, subscript);
+            if (existing != null) {
+                subscript = existing;
+            }
+        }
+        return subscript;
+    }
+}
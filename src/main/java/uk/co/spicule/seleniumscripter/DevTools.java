@@ -0,0 +1,146 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.remote.*;
+import org.openqa.selenium.remote.http.HttpMethod;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Sends Chrome DevTools Protocol commands through chromedriver.
+ *      Selenium 3 has no public API for this, so the chromedriver endpoint which relays DevTools commands is
+ *      registered on the driver's command executor the first time it is used.
+ */
+final class DevTools {
+    private static final String COMMAND = "sendCommandWithResult";
+    private static final CommandInfo COMMAND_INFO = new CommandInfo("/session/:sessionId/chromium/send_command_and_get_result", HttpMethod.POST);
+
+    // The URL patterns blocked in each driver session, to be blocked again in every tab it opens
+    private static final Map<WebDriver, List<String>> BLOCKED_URLS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private DevTools() {
+    }
+
+    /**
+     * @param driver the web driver
+     * @return true if the driver is a Chrome driver which can relay DevTools commands
+     */
+    static boolean isSupported(WebDriver driver) {
+        return driver instanceof ChromeDriver
+                && ScriptMetrics.unwrap(((ChromeDriver) driver).getCommandExecutor()) instanceof HttpCommandExecutor;
+    }
+
+    /**
+     * Send a DevTools command and wait for its result
+     * @param driver the Chrome driver
+     * @param command the DevTools method, e.g. `Page.captureScreenshot`
+     * @param params the method parameters
+     * @return the command result
+     * @throws WebDriverException occurs when the command fails or the driver does not support DevTools commands
+     */
+    static Map<String, Object> send(WebDriver driver, String command, Map<String, Object> params) {
+        if (!isSupported(driver)) {
+            throw new WebDriverException("DevTools commands are only supported by local Chrome drivers!");
+        }
+
+        RemoteWebDriver chrome = (RemoteWebDriver) driver;
+        CommandExecutor executor = chrome.getCommandExecutor(); // Possibly counting the commands it sends
+        define((HttpCommandExecutor) ScriptMetrics.unwrap(executor));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("cmd", command);
+        parameters.put("params", params);
+
+        Response response;
+        try {
+            response = executor.execute(new Command(chrome.getSessionId(), COMMAND, parameters));
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to send DevTools command `" + command + "`!", e);
+        }
+        if (response.getStatus() != null && response.getStatus() != 0) {
+            throw new WebDriverException("DevTools command `" + command + "` failed: " + response.getValue());
+        }
+
+        return (Map<String, Object>) response.getValue();
+    }
+
+    /**
+     * Block requests to URLs matching a set of patterns in the current tab, and remember the patterns so that
+     *      {@link #blockUrlsInTab(WebDriver)} can block them in the tabs opened later: DevTools commands only apply
+     *      to the tab they are sent to
+     * @param driver the Chrome driver
+     * @param patterns the URL patterns, in `Network.setBlockedURLs` syntax
+     * @throws WebDriverException occurs when the commands fail or the driver does not support DevTools commands
+     */
+    static void blockUrls(WebDriver driver, List<String> patterns) {
+        BLOCKED_URLS.put(driver, patterns);
+        blockUrlsInTab(driver);
+    }
+
+    /**
+     * Block the URL patterns the session was given by {@link #blockUrls(WebDriver, List)} in its current tab, if any
+     * @param driver the web driver
+     * @throws WebDriverException occurs when the commands fail
+     */
+    static void blockUrlsInTab(WebDriver driver) {
+        List<String> patterns = BLOCKED_URLS.get(driver);
+        if (patterns != null) {
+            send(driver, "Network.enable", Collections.emptyMap());
+            send(driver, "Network.setBlockedURLs", Collections.singletonMap("urls", patterns));
+        }
+    }
+
+    /**
+     * Capture the whole page, beyond the viewport, as a PNG in a single call without scrolling
+     * @param driver the Chrome driver
+     * @return the PNG image bytes
+     * @throws WebDriverException occurs when the capture fails or the driver does not support DevTools commands
+     */
+    static byte[] captureFullPage(WebDriver driver) {
+        Map<String, Object> metrics = send(driver, "Page.getLayoutMetrics", new HashMap<>());
+        Map<String, Object> size = (Map<String, Object>) metrics.get(metrics.containsKey("cssContentSize")
+                ? "cssContentSize"
+                : "contentSize");
+
+        Map<String, Object> clip = new HashMap<>();
+        clip.put("x", 0);
+        clip.put("y", 0);
+        clip.put("width", size.get("width"));
+        clip.put("height", size.get("height"));
+        clip.put("scale", 1);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("format", "png");
+        params.put("captureBeyondViewport", true);
+        params.put("clip", clip);
+
+        Map<String, Object> screenshot = send(driver, "Page.captureScreenshot", params);
+        return Base64.getDecoder().decode((String) screenshot.get("data"));
+    }
+
+    /**
+     * Register the DevTools command on a command executor, if it has not been already
+     * @param executor the driver's command executor
+     */
+    private static void define(HttpCommandExecutor executor) {
+        synchronized (executor) {
+            try {
+                Method defineCommand = HttpCommandExecutor.class.getDeclaredMethod("defineCommand", String.class, CommandInfo.class);
+                defineCommand.setAccessible(true);
+                defineCommand.invoke(executor, COMMAND, COMMAND_INFO);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                throw new WebDriverException("Failed to register DevTools commands with the driver!", e);
+            }
+        }
+    }
+}
@@ -1,24 +1,38 @@
 package uk.co.spicule.seleniumscripter;
 
 
-import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.remote.BrowserType;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.text.ParseException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class DriverFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(DriverFactory.class);
+
     boolean headless; // Toggles headless mode
     final List<String> options; // Browser options
+    private final Map<String, DriverProfile> profiles = new ConcurrentHashMap<>(); // Selectable profiles by name
+    private volatile DriverProfile profile; // The profile applied to new sessions
 
     public DriverFactory(List<String> options) {
         this.options = options;
+        this.profile = DriverProfile.standard();
+        registerProfile(profile);
+        registerProfile(DriverProfile.scrape());
     }
 
     public boolean setHeadless(boolean headless) {
@@ -26,30 +40,112 @@ public class DriverFactory {
         return this.headless;
     }
 
+    /**
+     * Make a profile selectable by its name, replacing any registered profile of the same name
+     * @param profile the profile
+     */
+    public void registerProfile(DriverProfile profile) {
+        profiles.put(profile.getName(), profile);
+    }
+
+    /**
+     * Select the profile applied to sessions created from now on
+     * @param name the name of a registered profile, e.g. `DriverProfile.SCRAPE`
+     * @throws ParseException occurs when no profile of that name is registered
+     */
+    public void setProfile(String name) throws ParseException {
+        DriverProfile selected = profiles.get(name);
+        if (selected == null) {
+            throw new ParseException("Invalid driver profile: " + name, 0);
+        }
+        this.profile = selected;
+    }
+
+    public DriverProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Generate a driver for the specified browser
+     * @param browserType the type of browser, one of `BrowserType.CHROME`, `BrowserType.EDGE` or `BrowserType.FIREFOX`
+     * @return the new driver
+     * @throws ParseException occurs when an unsupported browser type is specified
+     */
+    public RemoteWebDriver generateDriver(String browserType) throws ParseException {
+        switch (browserType) {
+            case BrowserType.CHROME:
+                return generateChromeDriver();
+            case BrowserType.EDGE:
+                return generateEdgeDriver();
+            case BrowserType.FIREFOX:
+                return generateFirefoxDriver();
+            default:
+                throw new ParseException("Invalid browser type: " + browserType, 0);
+        }
+    }
+
     public RemoteWebDriver generateChromeDriver() {
+        DriverProfile profile = this.profile;
+
         // Create and populate driver options
         ChromeOptions chromeOptions = new ChromeOptions();
         options.forEach(chromeOptions::addArguments);
+        chromeOptions.setHeadless(headless || profile.isHeadless());
+
+        // Refuse to download images, and fail the DNS lookups of blocked hosts in every tab
+        if (profile.isBlockingImages()) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            chromeOptions.setExperimentalOption("prefs", prefs);
+        }
+        String hostResolverRules = profile.getHostResolverRules();
+        if (hostResolverRules != null) {
+            chromeOptions.addArguments("--host-resolver-rules=" + hostResolverRules);
+        }
 
         // Set a load strategy
-        chromeOptions.setPageLoadStrategy(PageLoadStrategy.NORMAL);
+        chromeOptions.setPageLoadStrategy(profile.getPageLoadStrategy());
         //capabilities.setCapability(CapabilityType.PROXY, seleniumProxy);
 
         // Create and load the driver with options
         ChromeDriver driver = new ChromeDriver(chromeOptions);
-        driver.manage().timeouts().pageLoadTimeout(3600, TimeUnit.SECONDS);
+        driver.manage().timeouts().pageLoadTimeout(profile.getPageLoadTimeout(), TimeUnit.SECONDS);
+
+        // Block the resource types which have no preference, e.g. fonts and media, in this tab and those `for` opens
+        List<String> patterns = profile.getBlockedUrlPatterns();
+        if (!patterns.isEmpty()) {
+            try {
+                DevTools.blockUrls(driver, patterns);
+            } catch (WebDriverException e) {
+                LOG.warn("Failed to block fonts and media for the `" + profile.getName() + "` profile: " + e.getMessage());
+            }
+        }
 
         return driver;
     }
 
     public RemoteWebDriver generateFirefoxDriver() {
+        DriverProfile profile = this.profile;
+
         // Create and populate driver options
         FirefoxOptions driverOptions = new FirefoxOptions();
         options.forEach(driverOptions::addArguments);
-        driverOptions.setHeadless(headless);
+        driverOptions.setHeadless(headless || profile.isHeadless());
+        driverOptions.setPageLoadStrategy(profile.getPageLoadStrategy());
+        if (profile.isBlockingImages()) {
+            driverOptions.addPreference("permissions.default.image", 2);
+        }
+        if (profile.isBlockingFonts()) {
+            driverOptions.addPreference("browser.display.use_document_fonts", 0);
+        }
+        if (profile.isBlockingMedia()) {
+            driverOptions.addPreference("media.autoplay.default", 5);
+        }
 
         // Create and load the driver with options
-        return new FirefoxDriver(driverOptions);
+        FirefoxDriver driver = new FirefoxDriver(driverOptions);
+        driver.manage().timeouts().pageLoadTimeout(profile.getPageLoadTimeout(), TimeUnit.SECONDS);
+        return driver;
     }
 
     public RemoteWebDriver generateEdgeDriver() {
@@ -61,4 +157,4 @@ public class DriverFactory {
         // Create and load the driver with options
         return new EdgeDriver(driverOptions);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,390 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of warm driver sessions which are leased out to scripts and reset when they are returned, so that scripts
+ *      don't each pay for a browser launch and session handshake.
+ *      Only sessions whose cookies can be cleared for every site are reused, so that no login or session cookie leaks
+ *      from one lease into the next: Chrome sessions are cleared through DevTools, while sessions of other browsers
+ *      are quit and replaced on release.
+ */
+public class DriverPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(DriverPool.class);
+
+    private final DriverFactory factory; // Creates the pooled sessions
+    private final String browserType; // The type of browser to create, e.g. `BrowserType.CHROME`
+    private final int size; // The number of sessions the pool keeps
+    private long leaseTimeout = 300; // The default time in seconds to wait for a session to become available
+
+    private final BlockingQueue<RemoteWebDriver> idle = new LinkedBlockingQueue<>(); // Sessions ready to be leased
+    private final Set<RemoteWebDriver> leased = Collections.newSetFromMap(new ConcurrentHashMap<>()); // Sessions in use
+    private final AtomicInteger sessions = new AtomicInteger(); // Live sessions, including those being launched
+    private final AtomicInteger launching = new AtomicInteger(); // Sessions currently being launched
+    private final ExecutorService launcher; // Launches sessions in parallel
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseWaitNanos = new AtomicLong();
+    private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+    private final AtomicLong sessionsCreated = new AtomicLong();
+    private final AtomicLong creationNanos = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * Create a pool and start launching its sessions in the background
+     * @param factory the factory used to create sessions
+     * @param browserType the type of browser to create, one of `BrowserType.CHROME`, `BrowserType.EDGE` or
+     *                    `BrowserType.FIREFOX`
+     * @param size the number of sessions to keep in the pool
+     */
+    public DriverPool(DriverFactory factory, String browserType, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A driver pool must hold at least one session!");
+        }
+
+        this.factory = factory;
+        this.browserType = browserType;
+        this.size = size;
+        this.launcher = Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, "driver-pool-launcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        replenish();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setLeaseTimeout(long seconds) {
+        this.leaseTimeout = seconds;
+    }
+
+    /**
+     * Wait for every session that is currently launching to be ready
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the pool is full, false if the timeout elapsed first or some sessions failed to launch
+     * @throws InterruptedException occurs when the thread is interrupted while waiting
+     */
+    public boolean awaitWarm(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (launching.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return sessions.get() >= size && launching.get() == 0;
+    }
+
+    /**
+     * Lease a session from the pool, waiting up to the default lease timeout for one to become available
+     * @return the leased session
+     * @throws InterruptedException occurs when the thread is interrupted while waiting
+     * @throws TimeoutException occurs when no healthy session becomes available in time
+     */
+    public RemoteWebDriver lease() throws InterruptedException {
+        return lease(leaseTimeout, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Lease a session from the pool
+     * @param timeout the maximum time to wait for a session to become available
+     * @param unit the unit of the timeout
+     * @return the leased session
+     * @throws InterruptedException occurs when the thread is interrupted while waiting
+     * @throws TimeoutException occurs when no healthy session becomes available in time
+     */
+    public RemoteWebDriver lease(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("The driver pool has been closed!");
+            }
+            replenish();
+
+            RemoteWebDriver driver = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (driver == null) {
+                throw new TimeoutException("No driver session became available within " + unit.toSeconds(timeout) + "s!");
+            }
+            leased.add(driver);
+
+            // Evict sessions which died while they were idle, e.g. after a browser crash
+            if (!isHealthy(driver)) {
+                evict(driver);
+                continue;
+            }
+
+            long wait = System.nanoTime() - start;
+            leases.incrementAndGet();
+            leaseWaitNanos.addAndGet(wait);
+            maxLeaseWaitNanos.accumulateAndGet(wait, Math::max);
+            return driver;
+        }
+    }
+
+    /**
+     * Return a leased session to the pool.
+     *      The session's extra windows are closed, its cookies and storage are cleared and it is navigated to
+     *      `about:blank`. Sessions which can't be cleared for every site, or fail to reset, are evicted and replaced.
+     * @param driver the session to return
+     */
+    public void release(RemoteWebDriver driver) {
+        if (!leased.contains(driver)) {
+            throw new IllegalArgumentException("The driver session was not leased from this pool!");
+        } else if (closed) {
+            leased.remove(driver);
+            sessions.decrementAndGet();
+            quit(driver);
+            return;
+        }
+
+        try {
+            if (!reset(driver)) {
+                LOG.info("Replacing a driver session whose cookies can't be cleared for every site");
+                evict(driver);
+                replenish();
+                return;
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Evicting a driver session that failed to reset: " + e.getMessage());
+            evict(driver);
+            replenish();
+            return;
+        }
+
+        recycled.incrementAndGet();
+        leased.remove(driver);
+        idle.offer(driver);
+    }
+
+    /**
+     * Clear all state left behind by the previous lease of a session
+     * @param driver the session to reset
+     * @return false if the session's cookies could not be cleared for every site, and it must not be reused
+     */
+    private boolean reset(RemoteWebDriver driver) {
+        // Close every window but the first
+        Iterator<String> handles = driver.getWindowHandles().iterator();
+        String main = handles.next();
+        while (handles.hasNext()) {
+            driver.switchTo().window(handles.next());
+            driver.close();
+        }
+        driver.switchTo().window(main);
+
+        // Clear the storage of the current site and the cookies of every site, then leave it
+        ((JavascriptExecutor) driver).executeScript("try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+        if (!clearBrowsingData(driver)) {
+            return false;
+        }
+        driver.get("about:blank");
+        return true;
+    }
+
+    /**
+     * Clear the cookies of every site a session visited, along with the storage of the site it is on.
+     *      WebDriver can only delete the cookies of the current site, so only Chrome sessions, through DevTools, can be
+     *      cleared; sessions of other browsers are replaced instead.
+     * @param driver the session to clear
+     * @return true if the session was cleared, false if it can't be
+     * @throws org.openqa.selenium.WebDriverException occurs when a DevTools command fails
+     */
+    protected boolean clearBrowsingData(RemoteWebDriver driver) {
+        if (!DevTools.isSupported(driver)) {
+            return false;
+        }
+
+        Object origin = ((JavascriptExecutor) driver).executeScript("return window.location.origin;");
+        DevTools.send(driver, "Network.clearBrowserCookies", Collections.emptyMap());
+        if (origin instanceof String && ((String) origin).startsWith("http")) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("origin", origin);
+            params.put("storageTypes", "all");
+            DevTools.send(driver, "Storage.clearDataForOrigin", params);
+        }
+        return true;
+    }
+
+    /**
+     * Probe a session to check that its browser is still responsive
+     * @param driver the session to probe
+     * @return true if the session responded
+     */
+    private boolean isHealthy(RemoteWebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (RuntimeException e) {
+            LOG.warn("Driver session failed its health probe: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void evict(RemoteWebDriver driver) {
+        evicted.incrementAndGet();
+        leased.remove(driver);
+        sessions.decrementAndGet();
+        quit(driver);
+    }
+
+    private static void quit(RemoteWebDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to quit driver session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Launch enough new sessions to bring the pool back up to its size
+     */
+    private synchronized void replenish() {
+        while (!closed && sessions.get() < size) {
+            sessions.incrementAndGet();
+            launching.incrementAndGet();
+            launcher.submit(this::launch);
+        }
+    }
+
+    private void launch() {
+        long start = System.nanoTime();
+        try {
+            RemoteWebDriver driver = factory.generateDriver(browserType);
+            creationNanos.addAndGet(System.nanoTime() - start);
+            sessionsCreated.incrementAndGet();
+
+            if (closed) {
+                sessions.decrementAndGet();
+                quit(driver);
+            } else {
+                idle.offer(driver);
+            }
+        } catch (Exception e) {
+            sessions.decrementAndGet();
+            LOG.error("Failed to launch a pooled driver session:", e);
+        } finally {
+            launching.decrementAndGet();
+        }
+    }
+
+    /**
+     * Quit every idle session and stop launching new ones. Sessions which are still leased are quit when released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        launcher.shutdownNow();
+
+        RemoteWebDriver driver;
+        while ((driver = idle.poll()) != null) {
+            sessions.decrementAndGet();
+            quit(driver);
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool's metrics
+     */
+    public Metrics getMetrics() {
+        return new Metrics(this);
+    }
+
+    /**
+     * A point-in-time snapshot of a driver pool's metrics.
+     */
+    public static final class Metrics {
+        private final long leases;
+        private final long leaseWaitMillis;
+        private final long maxLeaseWaitMillis;
+        private final long sessionsCreated;
+        private final long creationMillis;
+        private final long recycled;
+        private final long evicted;
+        private final int idle;
+        private final int leased;
+
+        private Metrics(DriverPool pool) {
+            leases = pool.leases.get();
+            leaseWaitMillis = TimeUnit.NANOSECONDS.toMillis(pool.leaseWaitNanos.get());
+            maxLeaseWaitMillis = TimeUnit.NANOSECONDS.toMillis(pool.maxLeaseWaitNanos.get());
+            sessionsCreated = pool.sessionsCreated.get();
+            creationMillis = TimeUnit.NANOSECONDS.toMillis(pool.creationNanos.get());
+            recycled = pool.recycled.get();
+            evicted = pool.evicted.get();
+            idle = pool.idle.size();
+            leased = pool.leased.size();
+        }
+
+        public long getLeases() {
+            return leases;
+        }
+
+        public long getTotalLeaseWaitMillis() {
+            return leaseWaitMillis;
+        }
+
+        public long getMaxLeaseWaitMillis() {
+            return maxLeaseWaitMillis;
+        }
+
+        public double getAverageLeaseWaitMillis() {
+            return leases == 0 ? 0 : (double) leaseWaitMillis / leases;
+        }
+
+        public long getSessionsCreated() {
+            return sessionsCreated;
+        }
+
+        public long getTotalCreationMillis() {
+            return creationMillis;
+        }
+
+        public double getAverageCreationMillis() {
+            return sessionsCreated == 0 ? 0 : (double) creationMillis / sessionsCreated;
+        }
+
+        public long getRecycled() {
+            return recycled;
+        }
+
+        public long getEvicted() {
+            return evicted;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getLeased() {
+            return leased;
+        }
+
+        @Override
+        public String toString() {
+            return "DriverPool.Metrics{leases=" + leases
+                    + ", averageLeaseWaitMillis=" + getAverageLeaseWaitMillis()
+                    + ", maxLeaseWaitMillis=" + maxLeaseWaitMillis
+                    + ", sessionsCreated=" + sessionsCreated
+                    + ", averageCreationMillis=" + getAverageCreationMillis()
+                    + ", recycled=" + recycled
+                    + ", evicted=" + evicted
+                    + ", idle=" + idle
+                    + ", leased=" + leased + "}";
+        }
+    }
+}
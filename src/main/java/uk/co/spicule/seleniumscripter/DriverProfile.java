@@ -0,0 +1,185 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.PageLoadStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named set of browser settings that a {@link DriverFactory} applies to every session it creates.
+ *      The `default` profile loads pages exactly as a user's browser would. The `scrape` profile is for crawls which
+ *      only keep the page HTML: it runs headless, does not download images, fonts or media, blocks requests to a list
+ *      of third-party tracking and advertising hosts, and gives up on pages which take more than a minute to load.
+ */
+public class DriverProfile {
+    public static final String DEFAULT = "default";
+    public static final String SCRAPE = "scrape";
+
+    // URL patterns of the resource types a profile can block, in DevTools `Network.setBlockedURLs` syntax
+    static final List<String> FONT_PATTERNS = Arrays.asList("*.woff", "*.woff2", "*.ttf", "*.otf", "*.eot");
+    static final List<String> MEDIA_PATTERNS = Arrays.asList("*.mp4", "*.webm", "*.ogg", "*.ogv", "*.mp3", "*.wav",
+            "*.m4a", "*.m3u8", "*.mov", "*.avi");
+
+    // Third-party hosts which the `scrape` profile blocks by default
+    static final List<String> TRACKER_HOSTS = Arrays.asList("google-analytics.com",
+            "googletagmanager.com",
+            "googleadservices.com",
+            "doubleclick.net",
+            "facebook.net",
+            "connect.facebook.net",
+            "hotjar.com",
+            "newrelic.com",
+            "nr-data.net",
+            "optimizely.com",
+            "quantserve.com",
+            "scorecardresearch.com",
+            "adobedtm.com",
+            "demdex.net",
+            "omtrdc.net",
+            "crazyegg.com",
+            "clarity.ms");
+
+    private final String name; // The name the profile is selected by
+    private boolean headless = false; // Run the browser headless, whatever the factory's headless setting
+    private boolean blockImages = false; // Don't download images
+    private boolean blockFonts = false; // Don't download web fonts
+    private boolean blockMedia = false; // Don't download audio and video
+    private List<String> blockedHosts = new ArrayList<>(); // Hosts, and their subdomains, to refuse requests to
+    private long pageLoadTimeout = 3600; // The time in seconds to wait for a page to load
+    private PageLoadStrategy pageLoadStrategy = PageLoadStrategy.NORMAL; // What a navigation waits for before returning
+
+    public DriverProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return a profile which loads pages exactly as a user's browser would
+     */
+    public static DriverProfile standard() {
+        return new DriverProfile(DEFAULT);
+    }
+
+    /**
+     * @return a profile which only loads what is needed to build the page HTML
+     */
+    public static DriverProfile scrape() {
+        DriverProfile profile = new DriverProfile(SCRAPE);
+        profile.setHeadless(true);
+        profile.setBlockImages(true);
+        profile.setBlockFonts(true);
+        profile.setBlockMedia(true);
+        profile.setBlockedHosts(TRACKER_HOSTS);
+        profile.setPageLoadTimeout(60);
+        return profile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    public boolean isBlockingImages() {
+        return blockImages;
+    }
+
+    public void setBlockImages(boolean blockImages) {
+        this.blockImages = blockImages;
+    }
+
+    public boolean isBlockingFonts() {
+        return blockFonts;
+    }
+
+    public void setBlockFonts(boolean blockFonts) {
+        this.blockFonts = blockFonts;
+    }
+
+    public boolean isBlockingMedia() {
+        return blockMedia;
+    }
+
+    public void setBlockMedia(boolean blockMedia) {
+        this.blockMedia = blockMedia;
+    }
+
+    public List<String> getBlockedHosts() {
+        return Collections.unmodifiableList(blockedHosts);
+    }
+
+    /**
+     * Set the third-party hosts to refuse requests to. Each host also blocks its subdomains.
+     * @param hosts the host names, e.g. `doubleclick.net`
+     */
+    public void setBlockedHosts(List<String> hosts) {
+        this.blockedHosts = new ArrayList<>(hosts);
+    }
+
+    public long getPageLoadTimeout() {
+        return pageLoadTimeout;
+    }
+
+    /**
+     * @param seconds the time to wait for a page to load before a navigation fails
+     */
+    public void setPageLoadTimeout(long seconds) {
+        this.pageLoadTimeout = seconds;
+    }
+
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    /**
+     * Set what a navigation waits for before returning: every subresource (`NORMAL`), the DOM being built (`EAGER`) or
+     *      nothing (`NONE`). With `EAGER` or `NONE`, scripts wait for their own `ready` condition after `restore` and
+     *      `token`, so that they continue as soon as the data they need is in the DOM.
+     * @param strategy the page-load strategy
+     */
+    public void setPageLoadStrategy(PageLoadStrategy strategy) {
+        this.pageLoadStrategy = strategy;
+    }
+
+    /**
+     * DevTools blocks apply per tab: they cover the session's first tab and the tabs a {@link TabPool} opens, but not
+     *      windows the page itself opens, e.g. through `window.open`
+     * @return the URL patterns to block through DevTools, for the resource types the profile blocks
+     */
+    List<String> getBlockedUrlPatterns() {
+        List<String> patterns = new ArrayList<>();
+        if (blockFonts) {
+            patterns.addAll(FONT_PATTERNS);
+        }
+        if (blockMedia) {
+            patterns.addAll(MEDIA_PATTERNS);
+        }
+        return patterns;
+    }
+
+    /**
+     * @return a Chrome `--host-resolver-rules` value which fails the DNS lookup of every blocked host, or null if the
+     *      profile blocks no hosts
+     */
+    String getHostResolverRules() {
+        if (blockedHosts.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder rules = new StringBuilder();
+        for (String host : blockedHosts) {
+            if (rules.length() > 0) {
+                rules.append(", ");
+            }
+            rules.append("MAP ").append(host).append(" ~NOTFOUND, MAP *.").append(host).append(" ~NOTFOUND");
+        }
+        return rules.toString();
+    }
+}
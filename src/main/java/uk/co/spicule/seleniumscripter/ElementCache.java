@@ -0,0 +1,81 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Remembers the element each locator last found on the current page, so that consecutive operations on the same
+ *      element (e.g. `wait`, `click` then `keys`) share one `findElement` round trip.
+ *      A cached handle is only ever used through a first interaction which would fail on a stale handle anyway; if it
+ *      does, the element is looked up again and the interaction retried once. The cache is cleared whenever the
+ *      scripter navigates or switches window or frame, and after every action which may change the page (clicks, keys,
+ *      selections, injected elements and scripts).
+ */
+final class ElementCache {
+    private final Map<By, WebElement> elements = new HashMap<>(); // The last element found by each locator
+    private long hits = 0; // Uses served by a cached handle
+    private long misses = 0; // Uses which had to look the element up
+    private long stale = 0; // Cached handles found to be stale on use
+
+    /**
+     * Find the element a locator matches and interact with it, re-using the cached handle if it is still attached
+     * @param driver the web driver
+     * @param by the element locator
+     * @param firstUse the first interaction with the element, which must not have side effects if it fails
+     * @param <T> the type of the interaction's result
+     * @return the result of the first interaction
+     * @throws org.openqa.selenium.NoSuchElementException occurs when no element matches the locator
+     */
+    <T> T use(WebDriver driver, By by, Function<WebElement, T> firstUse) {
+        WebElement element = elements.get(by);
+        if (element != null) {
+            try {
+                T result = firstUse.apply(element);
+                ++hits;
+                return result;
+            } catch (StaleElementReferenceException e) {
+                ++stale;
+                elements.remove(by);
+            }
+        }
+
+        ++misses;
+        element = driver.findElement(by);
+        elements.put(by, element);
+        return firstUse.apply(element);
+    }
+
+    /**
+     * Remember an element found by other means, e.g. by a wait condition
+     * @param by the locator which found the element
+     * @param element the element
+     */
+    void put(By by, WebElement element) {
+        elements.put(by, element);
+    }
+
+    /**
+     * Forget every cached element, e.g. after the page has changed
+     */
+    void invalidate() {
+        elements.clear();
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getStale() {
+        return stale;
+    }
+}
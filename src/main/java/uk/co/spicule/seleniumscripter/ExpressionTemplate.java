@@ -0,0 +1,109 @@
+package uk.co.spicule.seleniumscripter;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A script expression, e.g. `//div[@id='{id}']/a[{i}]`, parsed once into its literal and `{variable}` segments so
+ *      that it can be rendered against the script variables without re-scanning it.
+ *      Parsed templates are cached per distinct expression and shared by every scripter.
+ */
+final class ExpressionTemplate {
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[a-zA-Z_][a-zA-Z_0-9]*}");
+    private static final int MAX_CACHED_TEMPLATES = 4096; // Bounds the cache if expressions are built from page data
+    private static final Map<String, ExpressionTemplate> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, ExpressionTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ExpressionTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            }); // Templates by expression, least recently used first
+
+    private final String expression; // The original expression
+    private final String[] segments; // Alternating literal and variable-name segments, starting with a literal
+    private final int literalLength; // The total length of the literal segments
+
+    private ExpressionTemplate(String expression) {
+        List<String> parts = new ArrayList<>();
+        int literalLength = 0;
+        int start = 0;
+
+        Matcher matches = VARIABLE_PATTERN.matcher(expression);
+        while (matches.find()) {
+            String literal = expression.substring(start, matches.start());
+            parts.add(literal);
+            parts.add(expression.substring(matches.start() + 1, matches.end() - 1));
+            literalLength += literal.length();
+            start = matches.end();
+        }
+        parts.add(expression.substring(start));
+        literalLength += expression.length() - start;
+
+        this.expression = expression;
+        this.segments = parts.toArray(new String[0]);
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Fetch the parsed template of an expression, parsing and caching it on first use
+     * @param expression the expression to parse
+     * @return the expression template
+     */
+    static ExpressionTemplate of(String expression) {
+        ExpressionTemplate template = CACHE.get(expression);
+        if (template == null) {
+            template = new ExpressionTemplate(expression);
+            CACHE.put(expression, template);
+        }
+        return template;
+    }
+
+    /**
+     * @return true if the expression references at least one variable
+     */
+    boolean hasVariables() {
+        return segments.length > 1;
+    }
+
+    /**
+     * Substitute the values of the referenced variables into the expression
+     * @param variables the script variables
+     * @return the rendered expression
+     * @throws ParseException occurs when the expression references a variable that has not been instantiated
+     */
+    String render(Map<String, Object> variables) throws ParseException {
+        if (!hasVariables()) {
+            return expression;
+        }
+
+        // Resolve every value first so the builder can be sized exactly
+        String[] values = new String[segments.length / 2];
+        int length = literalLength;
+        for (int i = 1; i < segments.length; i += 2) {
+            Object value = variables.get(segments[i]);
+            if (value == null) {
+                throw new ParseException("Variable `" + segments[i] + "` not instantiated!", 0);
+            }
+            values[i / 2] = value.toString();
+            length += values[i / 2].length();
+        }
+
+        StringBuilder resolved = new StringBuilder(length);
+        resolved.append(segments[0]);
+        for (int i = 1; i < segments.length; i += 2) {
+            resolved.append(values[i / 2]).append(segments[i + 1]);
+        }
+        return resolved.toString();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
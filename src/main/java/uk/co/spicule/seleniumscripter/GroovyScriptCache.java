@@ -0,0 +1,165 @@
+package uk.co.spicule.seleniumscripter;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles each distinct Groovy source once and runs a fresh instance of the compiled class, with its own binding, on
+ *      every evaluation.
+ *      Compiled classes are kept in a least-recently-used cache shared by every scripter. Each class gets its own class
+ *      loader, so that an evicted class can be unloaded from Metaspace. Half the cache is evicted when Metaspace is
+ *      nearly full.
+ */
+final class GroovyScriptCache {
+    private static final Logger LOG = LoggerFactory.getLogger(GroovyScriptCache.class);
+    private static final GroovyScriptCache SHARED = new GroovyScriptCache(128, defaultMetaspaceLimit());
+
+    private final AtomicInteger names = new AtomicInteger(); // Numbers the generated script classes
+    private final Map<String, Compiled> scripts; // Compiled scripts by source, in access order
+    private final int capacity; // The most compiled scripts to keep
+    private final long metaspaceLimit; // The Metaspace usage in bytes above which the cache is trimmed
+    private final MemoryPoolMXBean metaspace; // The Metaspace memory pool, or null if the JVM has none
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * A compiled script class and the loader that owns it
+     */
+    private static final class Compiled {
+        private final GroovyClassLoader loader;
+        private final Class<? extends Script> type;
+
+        Compiled(GroovyClassLoader loader, Class<? extends Script> type) {
+            this.loader = loader;
+            this.type = type;
+        }
+    }
+
+    /**
+     * @param capacity the most compiled scripts to keep
+     * @param metaspaceLimit the Metaspace usage in bytes above which the cache is trimmed
+     */
+    GroovyScriptCache(int capacity, long metaspaceLimit) {
+        this.capacity = capacity;
+        this.metaspaceLimit = metaspaceLimit;
+        this.metaspace = metaspacePool();
+        this.scripts = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                if (size() > GroovyScriptCache.this.capacity) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared by every scripter
+     */
+    static GroovyScriptCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Run a Groovy script, compiling it only if it has not been run recently
+     * @param source the Groovy source
+     * @param binding the variables the script can see
+     * @return the result of the script
+     */
+    Object evaluate(String source, Binding binding) {
+        Script script = InvokerHelper.createScript(compile(source), binding);
+        return script.run();
+    }
+
+    /**
+     * Fetch the compiled class of a Groovy source, compiling it on a cache miss
+     * @param source the Groovy source
+     * @return the compiled script class
+     */
+    synchronized Class<? extends Script> compile(String source) {
+        Compiled entry = scripts.get(source);
+        if (entry != null) {
+            ++hits;
+            return entry.type;
+        }
+
+        ++misses;
+        trimIfMetaspaceIsFull();
+        GroovyClassLoader loader = new GroovyClassLoader(GroovyScriptCache.class.getClassLoader());
+        Class<? extends Script> type = loader.parseClass(source, "Script" + names.incrementAndGet() + ".groovy");
+        scripts.put(source, new Compiled(loader, type));
+        return type;
+    }
+
+    /**
+     * Evict the least recently used half of the cache if Metaspace usage is over the limit, so that the evicted
+     *      classes can be unloaded by the next collection
+     */
+    private void trimIfMetaspaceIsFull() {
+        if (metaspace == null || metaspace.getUsage().getUsed() < metaspaceLimit) {
+            return;
+        }
+
+        int evict = (scripts.size() + 1) / 2;
+        LOG.warn("Metaspace usage is over " + metaspaceLimit + " bytes, evicting " + evict + " of " + scripts.size()
+                + " compiled Groovy scripts!");
+        Iterator<Compiled> eldest = scripts.values().iterator();
+        while (evict-- > 0 && eldest.hasNext()) {
+            release(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static void release(Compiled entry) {
+        entry.loader.clearCache();
+        try {
+            entry.loader.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close an evicted Groovy class loader!");
+        }
+    }
+
+    synchronized int size() {
+        return scripts.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private static MemoryPoolMXBean metaspacePool() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP && pool.getName().equals("Metaspace")) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 80% of the maximum Metaspace size, or no limit if Metaspace is unbounded
+     */
+    private static long defaultMetaspaceLimit() {
+        MemoryPoolMXBean pool = metaspacePool();
+        return pool == null || pool.getUsage().getMax() < 0 ? Long.MAX_VALUE : pool.getUsage().getMax() / 5 * 4;
+    }
+}
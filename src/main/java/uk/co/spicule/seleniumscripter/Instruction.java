@@ -0,0 +1,177 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.By;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single, immutable script instruction produced by the {@link ScriptCompiler}.
+ *      All of the block's scalar fields are converted to their string and numeric forms, nested instruction blocks are
+ *      compiled and the element locator is built up-front, so that executing the instruction never has to re-parse
+ *      the original script map.
+ */
+public final class Instruction {
+    private final String name; // The name of the block this instruction was compiled from
+    private final String path; // The position of the instruction within the script, e.g. `7.do[2]`
+    private final Operation operation; // The operation to run, or null if this is a parameter section
+    private final Map<String, Object> fields; // The original block fields
+    private final Map<String, String> strings; // The string form of every scalar field
+    private final Map<String, Number> numbers; // The numeric form of every scalar field that holds a number
+    private final Map<String, List<Instruction>> blocks; // Compiled sequences of child instructions
+    private final Map<String, Instruction> sections; // Compiled parameter maps, e.g. the `forEach` of a `for` block
+    private final By by; // The pre-built element locator, or null if it depends on script variables
+    private final String error; // A deferred compilation error, raised when the instruction is executed
+
+    Instruction(String name,
+                String path,
+                Operation operation,
+                Map<String, Object> fields,
+                Map<String, String> strings,
+                Map<String, Number> numbers,
+                Map<String, List<Instruction>> blocks,
+                Map<String, Instruction> sections,
+                By by,
+                String error) {
+        this.name = name;
+        this.path = path;
+        this.operation = operation;
+        this.fields = Collections.unmodifiableMap(fields);
+        this.strings = Collections.unmodifiableMap(strings);
+        this.numbers = Collections.unmodifiableMap(numbers);
+        this.blocks = Collections.unmodifiableMap(blocks);
+        this.sections = Collections.unmodifiableMap(sections);
+        this.by = by;
+        this.error = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the number of fields in the original block
+     */
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * @return the compilation error to raise when this instruction is executed, or null if it compiled cleanly
+     */
+    String getError() {
+        return error;
+    }
+
+    /**
+     * @return the pre-built element locator, or null if the locator must be resolved at runtime
+     */
+    By getBy() {
+        return by;
+    }
+
+    /**
+     * Assert that all of the specified fields exist in this instruction
+     * @param requiredFields the fields to check for
+     * @throws ParseException occurs when the specified field does not exist
+     */
+    void validate(String... requiredFields) throws ParseException {
+        for (String r : requiredFields) {
+            if (!fields.containsKey(r)) {
+                throw new ParseException("Expected `" + r + "` field in block: `" + fields + "`, but none was found!", 0);
+            }
+        }
+    }
+
+    public boolean has(String field) {
+        return fields.containsKey(field);
+    }
+
+    /**
+     * Fetch the raw value of a field
+     * @param field the field name
+     * @return the original value, or null if the field does not exist
+     */
+    public Object get(String field) {
+        return fields.get(field);
+    }
+
+    /**
+     * Fetch the string value of a field
+     * @param field the field name
+     * @return the string value, or null if the field does not exist
+     */
+    public String getString(String field) {
+        return strings.get(field);
+    }
+
+    public String getString(String field, String defaultValue) {
+        String value = strings.get(field);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Fetch the numeric value of a field as a long
+     * @param field the field name
+     * @param defaultValue the value to use if the field does not exist
+     * @return the field value
+     * @throws ParseException occurs when the field exists but does not hold a number
+     */
+    public long getLong(String field, long defaultValue) throws ParseException {
+        return getNumber(field, defaultValue).longValue();
+    }
+
+    public int getInt(String field, int defaultValue) throws ParseException {
+        return getNumber(field, defaultValue).intValue();
+    }
+
+    private Number getNumber(String field, Number defaultValue) throws ParseException {
+        if (!fields.containsKey(field)) {
+            return defaultValue;
+        }
+
+        Number number = numbers.get(field);
+        if (number == null) {
+            throw new ParseException("Invalid numeric type: \"" + strings.get(field) + "\"", 0);
+        }
+        return number;
+    }
+
+    public boolean getBoolean(String field, boolean defaultValue) {
+        String value = strings.get(field);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Fetch a compiled sequence of child instructions
+     * @param field the field holding the sequence, e.g. `do`, `then` or `catch`
+     * @return the child instructions, or null if the field does not exist
+     */
+    public List<Instruction> getBlock(String field) {
+        return blocks.get(field);
+    }
+
+    /**
+     * Fetch a compiled parameter map
+     * @param field the field holding the parameters, e.g. `forEach`
+     * @return the parameter section, or null if the field does not exist or is not a map
+     */
+    public Instruction getSection(String field) {
+        return sections.get(field);
+    }
+
+    @Override
+    public String toString() {
+        return fields.toString();
+    }
+}
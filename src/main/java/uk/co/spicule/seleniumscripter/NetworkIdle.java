@@ -0,0 +1,89 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * Detects when a page has loaded, or has stopped loading.
+ *      A lightweight tracker of in-flight XHR and fetch requests is injected into the page on first use; the page is
+ *      idle once its document has loaded and no request has been pending, nor any resource finished loading, for a
+ *      quiet window. Requests the page started before the tracker was installed are taken from the performance
+ *      timeline: those which finished move the quiet window on, and those with no end yet count as pending.
+ */
+final class NetworkIdle {
+    // Marks the current document so that a navigation away from it can be told apart from the document itself
+    private static final String MARK_SCRIPT = "window.__ssNavigating=true;window.addEventListener('pagehide',function(){window.__ssLeft=true});";
+
+    // Installs the request tracker if needed, then reports whether the page has been idle for `arguments[0]` ms
+    private static final String IDLE_SCRIPT = "var q=arguments[0],P=window.performance;"
+            + "if(window.__ssNavigating&&!window.__ssLeft){return false}"
+            + "if(document.readyState!=='complete'){return false}"
+            + "var timeline=function(){return P&&P.getEntriesByType?P.getEntriesByType('resource'):[]};"
+            + "var n=window.__ssNetwork;"
+            + "if(!n){n=window.__ssNetwork={pending:0,last:Date.now()};"
+            + "var o=P?(P.timeOrigin||(P.timing&&P.timing.navigationStart)||0):0;"
+            + "var seen=function(l){for(var i=0;i<l.length;i++){if(l[i].responseEnd){n.last=Math.max(n.last,o+l[i].responseEnd)}}};"
+            + "seen(timeline());"
+            + "var done=function(){n.pending=Math.max(0,n.pending-1);n.last=Date.now()};"
+            + "var X=XMLHttpRequest.prototype,send=X.send;"
+            + "X.send=function(){n.pending++;n.last=Date.now();this.addEventListener('loadend',done);return send.apply(this,arguments)};"
+            + "if(window.fetch){var f=window.fetch;window.fetch=function(){n.pending++;n.last=Date.now();"
+            + "return f.apply(this,arguments).then(function(r){done();return r},function(e){done();throw e})}}"
+            + "if(window.PerformanceObserver){try{new PerformanceObserver(function(l){seen(l.getEntries())}).observe({type:'resource',buffered:true})}catch(e){}}"
+            + "return false}"
+            + "var early=timeline().filter(function(e){return !e.responseEnd}).length;" // Started before the tracker
+            + "return n.pending===0&&early===0&&(Date.now()-n.last)>=q;";
+
+    // Reports whether the marked document has been left, and the new one has reached a ready state
+    private static final String NAVIGATED_SCRIPT = "if(window.__ssNavigating&&!window.__ssLeft){return false}"
+            + "return arguments[0]==='loading'||document.readyState===arguments[0]||document.readyState==='complete';";
+
+    private NetworkIdle() {
+    }
+
+    /**
+     * Mark the current document before navigating away from it, so that the idle condition waits for the next one
+     * @param driver the web driver
+     */
+    static void markNavigation(WebDriver driver) {
+        ((JavascriptExecutor) driver).executeScript(MARK_SCRIPT);
+    }
+
+    /**
+     * Mark the current document before navigating away from it, ignoring pages which can't run scripts
+     * @param driver the web driver
+     */
+    static void markNavigationQuietly(WebDriver driver) {
+        try {
+            markNavigation(driver);
+        } catch (WebDriverException e) {
+            // There is no document to tell apart from the next one, e.g. an alert is open
+        }
+    }
+
+    /**
+     * @return a condition which holds once the marked document has been left
+     */
+    static ExpectedCondition<Boolean> navigated() {
+        return readyState("loading");
+    }
+
+    /**
+     * @param state the document ready state to wait for, `interactive` once the DOM is built or `complete` once every
+     *              subresource has loaded
+     * @return a condition which holds once the marked document has been left and the new one reached the ready state
+     */
+    static ExpectedCondition<Boolean> readyState(String state) {
+        return (driver) -> Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(NAVIGATED_SCRIPT, state));
+    }
+
+    /**
+     * @param quietMillis the time no request must have been pending for, in milliseconds
+     * @return a condition which holds once the page is idle
+     */
+    static ExpectedCondition<Boolean> condition(long quietMillis) {
+        return (driver) -> Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(IDLE_SCRIPT, quietMillis));
+    }
+}
@@ -0,0 +1,95 @@
+package uk.co.spicule.seleniumscripter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The set of operations understood by the {@link SeleniumScripter}, along with the fields each of them requires.
+ */
+public enum Operation {
+    // Internal pseudo-operations
+    UNDEFINED("{undefined}"),
+    VERSION(null),
+
+    // Script operations
+    ALERT("alert", "action"),
+    BREAK("break"),
+    CAPTURELIST("capturelist", "selector", "name", "variable"),
+    CAPTURELISTTOSNAPSHOTS("capturelisttosnapshots", "variable"),
+    CLICK("click", "selector", "name"),
+    CLICKLISTITEM("clicklistitem", "selector", "name", "item"),
+    DO_WHILE("do_while", "do_while", "do"),
+    DUMPSTACK("dumpstack"),
+    EXECUTE_JS("execute_js", "javascriptOperator"),
+    FILTER("filter"),
+    FOR("for", "forEach", "do"),
+    IF("if", "selector", "name", "condition", "then"),
+    INJECTCONTENT("injectcontent", "type"),
+    PUSHSNAPSHOT("pushsnapshot", "type"),
+    INJECTELEMENT("injectelement", "selector", "name", "tag", "value"),
+    JSBACK("jsback"),
+    JSCLICK("jsclick", "selector", "name"),
+    JSREFRESH("jsrefresh"),
+    KEYS("keys", "selector", "name", "value"),
+    LOOP("loop", "variable", "subscript"),
+    LOADPAGE("loadpage"),
+    WINDOW("window", "condition"),
+    NOOP("noop"),
+    PARALLEL("parallel", "subscript"),
+    PAUSE("pause"),
+    RECAPTCHA("recaptcha", "selector", "name"),
+    RESTORE("restore"),
+    SCREENSHOT("screenshot", "targetdir"),
+    SELECT("select", "selector", "name", "selectBy", "value"),
+    SET("set", "variable", "value"),
+    SNAPSHOT("snapshot"),
+    TOKEN("token", "url"),
+    TRY("try", "try", "catch", "expect"),
+    WAIT("wait"); // `selector` and `name` are required by every condition but `networkidle`
+
+    private static final Map<String, Operation> KEYWORDS = new HashMap<>();
+    static {
+        for (Operation operation : values()) {
+            if (operation.keyword != null) {
+                KEYWORDS.put(operation.keyword, operation);
+            }
+        }
+    }
+
+    private final String keyword; // The (lower-case) name used in the `operation` field of a script block
+    private final String[] requiredFields; // The fields that must be present in a block of this operation
+
+    Operation(String keyword, String... requiredFields) {
+        this.keyword = keyword;
+        this.requiredFields = requiredFields;
+    }
+
+    /**
+     * Look up an operation by the value of a block's `operation` field
+     * @param keyword the operation name, case-insensitive
+     * @return the matching operation, or null if no such operation exists
+     */
+    public static Operation fromKeyword(String keyword) {
+        return KEYWORDS.get(keyword.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the name used in the `operation` field of a script block
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @return the fields that must be present in a block of this operation
+     */
+    String[] getRequiredFields() {
+        return requiredFields;
+    }
+
+    @Override
+    public String toString() {
+        return keyword == null ? name().toLowerCase(Locale.ROOT) : keyword;
+    }
+}
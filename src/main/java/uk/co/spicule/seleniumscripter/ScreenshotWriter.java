@@ -0,0 +1,186 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Encodes and writes screenshots on a small pool of background threads, so that the script can move on as soon as a
+ *      page has been captured.
+ *      Each image is PNG encoded in memory and written to its destination once, sequentially, through a file channel.
+ *      This also suits file systems like DBFS which don't support the random-access writes `ImageIO` makes to files.
+ *      At most `threads + queueSize` screenshots are in flight at once; beyond that, {@link #write} blocks the caller
+ *      until a slot frees up. Encoder threads are started on demand and stop once they have been idle for a while, so
+ *      an idle writer holds no threads.
+ */
+public class ScreenshotWriter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ScreenshotWriter.class);
+
+    private final int threads; // The number of encoder threads
+    private final int capacity; // The number of screenshots which may be in flight at once
+    private final Semaphore slots; // Screenshots which may be queued or encoding at once
+    private final AtomicReference<IOException> failure = new AtomicReference<>(); // The first write failure
+    private long keepAliveMillis = 30000; // The time an idle encoder thread waits for work before it stops
+    private ThreadPoolExecutor encoders = null; // Started on the first write
+
+    /**
+     * @param threads the number of background encoder threads
+     * @param queueSize the number of screenshots which may wait for an encoder before writes block
+     */
+    public ScreenshotWriter(int threads, int queueSize) {
+        if (threads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("A screenshot writer needs at least one thread and a non-negative queue!");
+        }
+
+        this.threads = threads;
+        this.capacity = threads + queueSize;
+        this.slots = new Semaphore(capacity, true); // Fair, so a flush is not starved by new writes
+    }
+
+    private synchronized ExecutorService encoders() {
+        if (encoders == null) {
+            // The slots bound the number of queued tasks, so the queue itself needs no bound
+            encoders = new ThreadPoolExecutor(threads, threads, keepAliveMillis, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "screenshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            encoders.allowCoreThreadTimeOut(true);
+        }
+        return encoders;
+    }
+
+    /**
+     * @param millis the time an idle encoder thread waits for work before it stops
+     */
+    synchronized void setKeepAlive(long millis) {
+        keepAliveMillis = millis;
+        if (encoders != null) {
+            encoders.setKeepAliveTime(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the number of encoder threads currently running
+     */
+    synchronized int getThreadCount() {
+        return encoders == null ? 0 : encoders.getPoolSize();
+    }
+
+    /**
+     * Queue an image to be PNG encoded and written, waiting for a free slot if too many are already in flight
+     * @param image the captured image
+     * @param destination the file to write to
+     * @throws InterruptedException occurs when the thread is interrupted while waiting for a free slot
+     */
+    public void write(BufferedImage image, Path destination) throws InterruptedException {
+        submit(() -> writePng(image, destination), destination);
+    }
+
+    /**
+     * Queue an already encoded image to be written, waiting for a free slot if too many are already in flight
+     * @param png the PNG image bytes
+     * @param destination the file to write to
+     * @throws InterruptedException occurs when the thread is interrupted while waiting for a free slot
+     */
+    public void write(byte[] png, Path destination) throws InterruptedException {
+        submit(() -> {
+            try (FileChannel channel = FileChannel.open(destination,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(png);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }, destination);
+    }
+
+    /**
+     * A screenshot write to run in the background
+     */
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private void submit(Task task, Path destination) throws InterruptedException {
+        slots.acquire();
+        try {
+            encoders().execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Failed to write screenshot to: " + destination);
+                    e.printStackTrace();
+                    failure.compareAndSet(null, e instanceof IOException
+                            ? (IOException) e
+                            : new IOException("Failed to write screenshot to: " + destination, e));
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Encode an image as a PNG and write it to a file in a single sequential pass
+     * @param image the image to encode
+     * @param destination the file to write to
+     * @throws IOException occurs when the image fails to encode or write
+     */
+    static void writePng(BufferedImage image, Path destination) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(destination,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+             ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Wait for every queued screenshot to be written
+     * @throws IOException occurs when any screenshot written since the last flush failed to write
+     * @throws InterruptedException occurs when the thread is interrupted while waiting
+     */
+    public void flush() throws IOException, InterruptedException {
+        // Every slot is free once every queued screenshot has been written
+        slots.acquire(capacity);
+        slots.release(capacity);
+
+        IOException e = failure.getAndSet(null);
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Stop the encoder threads once every queued screenshot has been written
+     */
+    @Override
+    public synchronized void close() {
+        if (encoders != null) {
+            encoders.shutdown();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.By;
+
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Compiles a YAML/JSON script map into a tree of immutable {@link Instruction}s.
+ *      Operation lookup, field validation, number parsing and locator construction all happen once, here, instead of
+ *      every time a block is executed. Errors found while compiling are deferred to the instruction they belong to, so
+ *      a script still only fails when (and if) the offending block is reached.
+ */
+public class ScriptCompiler {
+    private static final String SUBSEQUENCE = "subsequence"; // The block name given to instructions in a sequence
+
+    // The fields of each operation which hold a sequence of child instructions
+    private static final Map<Operation, String[]> BLOCK_FIELDS = new EnumMap<>(Operation.class);
+    static {
+        BLOCK_FIELDS.put(Operation.DO_WHILE, new String[] {"do_while", "do"});
+        BLOCK_FIELDS.put(Operation.FOR, new String[] {"do"});
+        BLOCK_FIELDS.put(Operation.IF, new String[] {"then", "else"});
+        BLOCK_FIELDS.put(Operation.TRY, new String[] {"try", "catch"});
+    }
+
+    /**
+     * Compile a script map
+     * @param script the deserialized YAML/JSON script
+     * @return the compiled script
+     */
+    public CompiledScript compile(Map<String, Object> script) {
+        List<Instruction> instructions = new ArrayList<>(script.size());
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) script).entrySet()) {
+            String name = entry.getKey().toString();
+            instructions.add(compileBlock(name, name, entry.getValue()));
+        }
+
+        Object subscripts = script.get("subscripts");
+        return new CompiledScript(this,
+                instructions,
+                subscripts instanceof Map ? (Map<?, ?>) subscripts : Collections.emptyMap());
+    }
+
+    /**
+     * Compile a single top-level or sequence block
+     * @param name the block name
+     * @param path the position of the block in the script
+     * @param block the raw block value
+     * @return the compiled instruction
+     */
+    private Instruction compileBlock(String name, String path, Object block) {
+        if (block instanceof Map) {
+            return compileInstruction(name, path, (Map<?, ?>) block, false);
+        } else if (block instanceof String && name.toLowerCase().equals("version")) {
+            Map<String, Object> fields = Collections.singletonMap("version", block);
+            return new Instruction(name, path, Operation.VERSION, fields,
+                    Collections.singletonMap("version", block.toString()),
+                    Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), null, null);
+        } else {
+            return new Instruction(name, path, null, Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), null,
+                    "Subscript did not convert to map!");
+        }
+    }
+
+    /**
+     * Compile an instruction or parameter section
+     * @param name the block name
+     * @param path the position of the block in the script
+     * @param block the raw block map
+     * @param section true if the map holds the parameters of another instruction rather than an operation
+     * @return the compiled instruction
+     */
+    private Instruction compileInstruction(String name, String path, Map<?, ?> block, boolean section) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        Map<String, String> strings = new HashMap<>();
+        Map<String, Number> numbers = new HashMap<>();
+        Map<String, Instruction> sections = new HashMap<>();
+        Map<String, List<Instruction>> blocks = new HashMap<>();
+
+        // Pre-convert every field
+        for (Map.Entry<?, ?> entry : block.entrySet()) {
+            String field = entry.getKey().toString();
+            Object value = entry.getValue();
+            fields.put(field, value);
+
+            if (value == null) {
+                continue;
+            }
+            strings.put(field, value.toString());
+
+            Number number = parseNumber(value);
+            if (number != null) {
+                numbers.put(field, number);
+            }
+            if (value instanceof Map) {
+                sections.put(field, compileInstruction(field, path + "." + field, (Map<?, ?>) value, true));
+            }
+        }
+
+        // Resolve the operation
+        Operation operation = null;
+        String error = null;
+        if (!section) {
+            Object keyword = fields.get("operation");
+            operation = keyword == null ? Operation.UNDEFINED : Operation.fromKeyword(keyword.toString());
+            if (operation == null) {
+                error = "Invalid operation: " + keyword.toString().toLowerCase();
+            } else {
+                error = validate(fields, operation.getRequiredFields());
+            }
+        }
+
+        // Validate operation-specific parameter sections
+        if (error == null && operation == Operation.FOR) {
+            Instruction forEach = sections.get("forEach");
+            error = forEach == null
+                    ? "Expected `forEach` field in block: `" + fields + "` to be a map!"
+                    : validate(forEach, new String[] {"selector", "name"});
+        }
+
+        // Compile any nested sequences of instructions
+        for (String field : BLOCK_FIELDS.getOrDefault(operation, new String[0])) {
+            Object value = fields.get(field);
+            if (value instanceof List) {
+                List<?> sequence = (List<?>) value;
+                List<Instruction> compiled = new ArrayList<>(sequence.size());
+                for (int i = 0; i < sequence.size(); ++i) {
+                    compiled.add(compileBlock(SUBSEQUENCE, path + "." + field + "[" + i + "]", sequence.get(i)));
+                }
+                blocks.put(field, Collections.unmodifiableList(compiled));
+            }
+        }
+
+        return new Instruction(name, path, operation, fields, strings, numbers, blocks, sections,
+                buildLocator(strings.get("selector"), strings.get("name")), error);
+    }
+
+    /**
+     * Build the element locator of an instruction ahead of time, if it does not depend on any script variables
+     * @param selector the HTML selection method
+     * @param name the value of the selection attribute
+     * @return the locator, or null if it must be built at runtime
+     */
+    private By buildLocator(String selector, String name) {
+        if (selector == null || name == null || ExpressionTemplate.of(name).hasVariables()) {
+            return null;
+        }
+
+        try {
+            return SeleniumScripter.by(selector, name);
+        } catch (ParseException e) {
+            return null; // Leave the invalid selector to be reported when the instruction runs
+        }
+    }
+
+    /**
+     * Assert that all of the specified fields exist
+     * @param fields the fields of the block
+     * @param requiredFields the fields to check for
+     * @return the validation error message, or null if all of the fields exist
+     */
+    private static String validate(Map<String, Object> fields, String[] requiredFields) {
+        for (String r : requiredFields) {
+            if (!fields.containsKey(r)) {
+                return "Expected `" + r + "` field in block: `" + fields + "`, but none was found!";
+            }
+        }
+        return null;
+    }
+
+    private static String validate(Instruction section, String[] requiredFields) {
+        try {
+            section.validate(requiredFields);
+            return null;
+        } catch (ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Parse a numeric field value
+     * @param value the raw field value
+     * @return the number, or null if the value is not numeric
+     */
+    private static Number parseNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else if (!(value instanceof String)) {
+            return null;
+        }
+
+        String number = ((String) value).trim();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            try {
+                return Double.parseDouble(number);
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Convert an instruction block to a tree map.
+     * @param hashMap the original instruction block
+     * @param <K> the generic key type
+     * @param <V> the generic value type
+     * @return the instruction as a tree map
+     */
+    static <K, V> Map<K, V> convertToTreeMap(Map<K, V> hashMap)
+    {
+        // Create a new TreeMap
+        Map<K, V> treeMap = new TreeMap<>();
+
+        // Pass the hashMap to putAll() method
+        treeMap.putAll(hashMap);
+
+        // Return the TreeMap
+        return treeMap;
+    }
+}
@@ -0,0 +1,453 @@
+package uk.co.spicule.seleniumscripter;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Records how long each operation type and named block takes, how many WebDriver commands a script sends and how its
+ *      time splits between explicit sleeps and condition waits.
+ *      A registry may be shared by several scripters, e.g. the workers of a `parallel` operation. It can be published
+ *      as an MBean with {@link #register(String)} and served in the Prometheus text format with {@link #serve(int)}.
+ */
+public class ScriptMetrics implements ScriptMetricsMXBean, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptMetrics.class);
+
+    // The upper bounds of the latency histogram buckets, in seconds
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private final Map<String, Histogram> operations = new ConcurrentHashMap<>(); // Latencies by operation type
+    private final Map<String, Histogram> blocks = new ConcurrentHashMap<>(); // Latencies by block name
+    private final Map<String, AtomicLong> commands = new ConcurrentHashMap<>(); // WebDriver commands sent, by name
+    private final AtomicLong commandNanos = new AtomicLong(); // Time spent waiting on WebDriver commands
+    private final AtomicLong sleepNanos = new AtomicLong(); // Time spent in explicit sleeps
+    private final AtomicLong waitNanos = new AtomicLong(); // Time spent waiting on conditions
+
+    private ObjectName objectName = null; // The name the registry is published to JMX under, if it is
+    private HttpServer server = null; // Serves the `/metrics` endpoint, if started
+
+    /**
+     * A latency histogram with a success and failure count
+     */
+    static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length + 1); // The last is `+Inf`
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        void record(long elapsedNanos, boolean failed) {
+            double seconds = elapsedNanos / 1e9;
+            int bucket = 0;
+            while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+                ++bucket;
+            }
+            buckets.incrementAndGet(bucket);
+            nanos.addAndGet(elapsedNanos);
+            if (failed) {
+                failures.incrementAndGet();
+            }
+        }
+
+        long getCount() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); ++i) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        long getNanos() {
+            return nanos.get();
+        }
+
+        long getFailures() {
+            return failures.get();
+        }
+    }
+
+    /**
+     * Record a finished instruction
+     * @param operation the instruction's operation
+     * @param block the name of the block the instruction was compiled from
+     * @param elapsedNanos the time the instruction took, including any child instructions
+     * @param failed true if the instruction threw an exception
+     */
+    public void record(Operation operation, String block, long elapsedNanos, boolean failed) {
+        operations.computeIfAbsent(String.valueOf(operation).toLowerCase(), k -> new Histogram()).record(elapsedNanos, failed);
+        if (block != null) {
+            blocks.computeIfAbsent(block, k -> new Histogram()).record(elapsedNanos, failed);
+        }
+    }
+
+    /**
+     * Record a WebDriver command
+     * @param command the command name, e.g. `findElement`
+     * @param elapsedNanos the time the command took
+     */
+    public void recordCommand(String command, long elapsedNanos) {
+        commands.computeIfAbsent(command, k -> new AtomicLong()).incrementAndGet();
+        commandNanos.addAndGet(elapsedNanos);
+    }
+
+    /**
+     * Sleep, recording the time as spent sleeping
+     * @param millis the time to sleep for in milliseconds
+     * @throws InterruptedException occurs when the thread is interrupted while sleeping
+     */
+    public void sleep(long millis) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(millis);
+        } finally {
+            sleepNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Create a wait which records the time its conditions take to hold as spent waiting
+     * @param driver the web driver
+     * @param timeoutSeconds the wait timeout in seconds
+     * @return the wait
+     */
+    public WebDriverWait newWait(WebDriver driver, long timeoutSeconds) {
+        return new WebDriverWait(driver, timeoutSeconds) {
+            @Override
+            public <V> V until(Function<? super WebDriver, V> isTrue) {
+                long start = System.nanoTime();
+                try {
+                    return super.until(isTrue);
+                } finally {
+                    waitNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Count the commands a driver sends from now on, by wrapping its command executor.
+     *      Drivers which are not `RemoteWebDriver`s are left as they are. A driver already counted by another registry
+     *      is moved over to this one.
+     * @param driver the web driver
+     */
+    public void instrument(WebDriver driver) {
+        if (!(driver instanceof RemoteWebDriver)) {
+            return;
+        }
+
+        RemoteWebDriver remote = (RemoteWebDriver) driver;
+        CommandExecutor executor = remote.getCommandExecutor();
+        if (executor instanceof CountingExecutor) {
+            if (((CountingExecutor) executor).metrics == this) {
+                return;
+            }
+            executor = ((CountingExecutor) executor).delegate;
+        }
+
+        try {
+            setCommandExecutor(remote, new CountingExecutor(executor, this));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            LOG.warn("Failed to instrument the driver, WebDriver commands will not be counted!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stop counting the commands a driver sends, e.g. before a pooled session is handed back to its pool
+     * @param driver the web driver
+     */
+    public void uninstrument(WebDriver driver) {
+        if (!(driver instanceof RemoteWebDriver)
+                || !(((RemoteWebDriver) driver).getCommandExecutor() instanceof CountingExecutor)) {
+            return;
+        }
+
+        RemoteWebDriver remote = (RemoteWebDriver) driver;
+        try {
+            setCommandExecutor(remote, unwrap(remote.getCommandExecutor()));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            LOG.warn("Failed to uninstrument the driver, its WebDriver commands will still be counted!");
+            e.printStackTrace();
+        }
+    }
+
+    private static void setCommandExecutor(RemoteWebDriver driver, CommandExecutor executor)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Method setCommandExecutor = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+        setCommandExecutor.setAccessible(true);
+        setCommandExecutor.invoke(driver, executor);
+    }
+
+    /**
+     * Find the executor which actually sends a driver's commands, looking past any counting executor
+     * @param executor the driver's command executor
+     * @return the underlying command executor
+     */
+    static CommandExecutor unwrap(CommandExecutor executor) {
+        return executor instanceof CountingExecutor ? ((CountingExecutor) executor).delegate : executor;
+    }
+
+    /**
+     * A command executor which times every command it passes on
+     */
+    private static final class CountingExecutor implements CommandExecutor {
+        private final CommandExecutor delegate;
+        private final ScriptMetrics metrics;
+
+        CountingExecutor(CommandExecutor delegate, ScriptMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.execute(command);
+            } finally {
+                metrics.recordCommand(command.getName(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Publish the registry to the platform MBean server
+     * @param name the value of the `name` key of the MBean's object name, e.g. the crawl name
+     * @throws JMException occurs when the name is invalid or already taken
+     */
+    public synchronized void register(String name) throws JMException {
+        unregister();
+        ObjectName objectName = new ObjectName("uk.co.spicule.seleniumscripter:type=ScriptMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * Remove the registry from the platform MBean server, if it was published
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOG.warn("Failed to unregister MBean: " + objectName);
+        }
+        objectName = null;
+    }
+
+    /**
+     * Serve the metrics in the Prometheus text format at `http://localhost:{port}/metrics`
+     * @param port the local port to listen on, or 0 for any free port
+     * @return the port the endpoint is listening on
+     * @throws IOException occurs when the port cannot be bound
+     */
+    public synchronized int serve(int port) throws IOException {
+        stop();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = getPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        this.server = server;
+
+        LOG.info("Serving script metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop serving the metrics endpoint, if it was started
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Stop the metrics endpoint and remove the MBean
+     */
+    @Override
+    public void close() {
+        stop();
+        unregister();
+    }
+
+    @Override
+    public String getPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        appendHistograms(text, "seleniumscripter_operation", "operation", "Time taken by each operation type, including child instructions.", operations);
+        appendHistograms(text, "seleniumscripter_block", "block", "Time taken by each named block, including child instructions.", blocks);
+
+        text.append("# HELP seleniumscripter_webdriver_commands_total WebDriver commands sent to the browser.\n")
+                .append("# TYPE seleniumscripter_webdriver_commands_total counter\n");
+        for (Map.Entry<String, Long> command : getCommandCounts().entrySet()) {
+            text.append("seleniumscripter_webdriver_commands_total{command=\"").append(escape(command.getKey())).append("\"} ")
+                    .append(command.getValue()).append('\n');
+        }
+
+        appendSeconds(text, "seleniumscripter_webdriver_command_seconds_total", "Time spent waiting on WebDriver commands.", commandNanos.get());
+        appendSeconds(text, "seleniumscripter_sleep_seconds_total", "Time spent in explicit sleeps.", sleepNanos.get());
+        appendSeconds(text, "seleniumscripter_wait_seconds_total", "Time spent waiting on conditions.", waitNanos.get());
+        return text.toString();
+    }
+
+    private static void appendHistograms(StringBuilder text, String metric, String label, String help, Map<String, Histogram> histograms) {
+        text.append("# HELP ").append(metric).append("_seconds ").append(help).append('\n')
+                .append("# TYPE ").append(metric).append("_seconds histogram\n");
+        Map<String, Histogram> sorted = new TreeMap<>(histograms);
+        for (Map.Entry<String, Histogram> entry : sorted.entrySet()) {
+            String labels = label + "=\"" + escape(entry.getKey()) + "\"";
+            Histogram histogram = entry.getValue();
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; ++i) {
+                cumulative += histogram.buckets.get(i);
+                text.append(metric).append("_seconds_bucket{").append(labels).append(",le=\"").append(BUCKETS[i])
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            cumulative += histogram.buckets.get(BUCKETS.length);
+            text.append(metric).append("_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n')
+                    .append(metric).append("_seconds_sum{").append(labels).append("} ").append(histogram.getNanos() / 1e9).append('\n')
+                    .append(metric).append("_seconds_count{").append(labels).append("} ").append(cumulative).append('\n');
+        }
+
+        text.append("# HELP ").append(metric).append("s_total Finished ").append(label).append("s by result.\n")
+                .append("# TYPE ").append(metric).append("s_total counter\n");
+        for (Map.Entry<String, Histogram> entry : sorted.entrySet()) {
+            String labels = label + "=\"" + escape(entry.getKey()) + "\"";
+            long failures = entry.getValue().getFailures();
+            text.append(metric).append("s_total{").append(labels).append(",result=\"success\"} ")
+                    .append(entry.getValue().getCount() - failures).append('\n')
+                    .append(metric).append("s_total{").append(labels).append(",result=\"failure\"} ")
+                    .append(failures).append('\n');
+        }
+    }
+
+    private static void appendSeconds(StringBuilder text, String metric, String help, long nanos) {
+        text.append("# HELP ").append(metric).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(metric).append(" counter\n")
+                .append(metric).append(' ').append(nanos / 1e9).append('\n');
+    }
+
+    /**
+     * Escape a Prometheus label value
+     * @param value the raw value
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static Map<String, Long> collect(Map<String, Histogram> histograms, Function<Histogram, Long> value) {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            values.put(entry.getKey(), value.apply(entry.getValue()));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return collect(operations, Histogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getOperationFailures() {
+        return collect(operations, Histogram::getFailures);
+    }
+
+    @Override
+    public Map<String, Long> getOperationMillis() {
+        return collect(operations, h -> TimeUnit.NANOSECONDS.toMillis(h.getNanos()));
+    }
+
+    @Override
+    public Map<String, Long> getBlockCounts() {
+        return collect(blocks, Histogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getBlockFailures() {
+        return collect(blocks, Histogram::getFailures);
+    }
+
+    @Override
+    public Map<String, Long> getBlockMillis() {
+        return collect(blocks, h -> TimeUnit.NANOSECONDS.toMillis(h.getNanos()));
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : commands.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    @Override
+    public long getCommands() {
+        long total = 0;
+        for (AtomicLong count : commands.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    @Override
+    public long getCommandMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(commandNanos.get());
+    }
+
+    @Override
+    public long getSleepMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(sleepNanos.get());
+    }
+
+    @Override
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+        blocks.clear();
+        commands.clear();
+        commandNanos.set(0);
+        sleepNanos.set(0);
+        waitNanos.set(0);
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.spicule.seleniumscripter;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a {@link ScriptMetrics} registry.
+ *      Times are in milliseconds; the maps are keyed on operation, block or WebDriver command name.
+ */
+public interface ScriptMetricsMXBean {
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getOperationFailures();
+
+    Map<String, Long> getOperationMillis();
+
+    Map<String, Long> getBlockCounts();
+
+    Map<String, Long> getBlockFailures();
+
+    Map<String, Long> getBlockMillis();
+
+    Map<String, Long> getCommandCounts();
+
+    long getCommands();
+
+    long getCommandMillis();
+
+    long getSleepMillis();
+
+    long getWaitMillis();
+
+    /**
+     * @return every metric in the Prometheus text exposition format
+     */
+    String getPrometheusText();
+
+    /**
+     * Clear every metric
+     */
+    void reset();
+}
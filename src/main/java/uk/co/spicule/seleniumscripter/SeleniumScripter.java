@@ -4,9 +4,10 @@ import com.spicule.ashot.AShot;
 import com.spicule.ashot.Screenshot;
 import com.spicule.ashot.shooting.ShootingStrategies;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.remote.RemoteWebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,19 +18,23 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.WebDriverWait;
-import javax.imageio.ImageIO;
 import javax.management.AttributeNotFoundException;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.NotActiveException;
-import java.nio.file.Files;
 import java.text.ParseException;
+import java.time.Duration;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 import static org.openqa.selenium.support.ui.ExpectedConditions.numberOfWindowsToBe;
@@ -50,30 +55,61 @@ public class SeleniumScripter {
     private static final int MINOR = 7;
     private static final int PATCH = 10;
 
+    // In-page function which builds the absolute (unoptimized) xpath of an element
+    private static final String XPATH_FUNCTION = "gPt=function(c){if(c.id!==''){return'[@id=\"'+c.id+'\"]'}if(c===document.body){return c.tagName}var a=0;var e=c.parentNode.childNodes;for(var b=0;b<e.length;b++){var d=e[b];if(d===c){return gPt(c.parentNode)+'/'+c.tagName+'['+(a+1)+']'}if(d.nodeType===1&&d.tagName===c.tagName){a++}}};";
+
+    // In-page script which sets the value of an input through its native setter, so that frameworks such as React see
+    //      the change, then fires the events typing would
+    private static final String SET_VALUE_SCRIPT = "var e=arguments[0],v=arguments[1];var d=Object.getOwnPropertyDescriptor(Object.getPrototypeOf(e),'value');if(d&&d.set){d.set.call(e,v)}else{e.value=v}e.dispatchEvent(new Event('input',{bubbles:true}));e.dispatchEvent(new Event('change',{bubbles:true}));";
+
+    // In-page script which returns the outerHTML of a list of elements, in a single round trip
+    private static final String OUTER_HTML_SCRIPT = "return arguments[0].map(function(e){return e.outerHTML});";
+
+    private static final int MAX_CACHED_LOCATORS = 4096; // Bounds the locator cache if names are built from page data
+    private static final Map<String, By> LOCATORS = Collections.synchronizedMap(new LinkedHashMap<String, By>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, By> eldest) {
+            return size() > MAX_CACHED_LOCATORS;
+        }
+    }); // Locators by selector and name, least recently used first
+
     // Constant things
     private boolean DEV_MODE = false; // Unlocks development and experimental features
     private final String url; // The initial url the agent starts at
     private final WebDriver driver; // The web driver
     private final long defaultWaitTimeout = 30; // The default element wait timeout in seconds
-    private final List<Snapshot> snapshots = new ArrayList<>(); // The stack of HTML content to return to the crawl
+    private final long defaultNavigationTimeout = 10; // The longest time in seconds to wait for a page after `back` or `reload`
+    private final long defaultNetworkQuietTime = 500; // The time in milliseconds without requests before a page is network-idle
+    private final int defaultParallelism = 2; // The default number of driver sessions used by the `parallel` op
+    private final int defaultTabs = 4; // The default number of tabs used by a `for` op with a `tabs` section
+    private final SnapshotStore snapshots = new SnapshotStore(); // The stack of HTML content to return to the crawl
     private final List<String> capturedLabel = new ArrayList<>(); // A list of html things?
     private final Map<String, Object> scriptVariables = new HashMap<>(); // Variables instantiated by the script
+    private final ElementCache elementCache = new ElementCache(); // Elements found on the current page, by locator
 
     // Application logger
     public final static Logger LOG = LoggerFactory.getLogger(SeleniumScripter.class);
 
     // Misc variables
     private String outputPath = "./"; // The starting path to use when saving screenshots or stack results
+    private DriverFactory driverFactory = null; // Creates the extra driver sessions used by the `parallel` op
+    private String browserType = BrowserType.CHROME; // The type of browser the driver factory should create
+    private DriverPool driverPool = null; // Leases warm driver sessions to the `parallel` op, preferred over the factory
+    private ScreenshotWriter screenshotWriter = new ScreenshotWriter(2, 8); // Encodes and writes screenshots in the background
+    private ScriptMetrics metrics = new ScriptMetrics(); // Operation timings and WebDriver command counts
+    private Checkpointer checkpointer = null; // Checkpoints `for` and `loop` progress, or null when disabled
 
     // Deprecated variables
     // TODO: To be removed once the loop operation is fully closed out
-    private Map<String, Object> masterScript;
-    private final Map<String, List> captureLists = new HashMap<>(); // The `loop` op's variable to iterate over
+    private CompiledScript masterScript;
+    private final Map<String, List<?>> captureLists = new HashMap<>(); // The `loop` op's variable to iterate over
+    private int captureListSpillThreshold = Integer.MAX_VALUE; // The number of capture list elements to hold in memory
 
     public SeleniumScripter(WebDriver driver) {
         LOG.info(version());
 
         this.driver = driver;
+        metrics.instrument(driver);
         url = driver.getCurrentUrl();
     }
 
@@ -81,6 +117,7 @@ public class SeleniumScripter {
         LOG.info(version());
 
         this.driver = driver;
+        metrics.instrument(driver);
         url = driver.getCurrentUrl();
         this.DEV_MODE = DEV_MODE;
 
@@ -89,6 +126,36 @@ public class SeleniumScripter {
         }
     }
 
+    /**
+     * Create a worker that runs part of a `parallel` operation on its own driver session.
+     *      The worker starts with its own copy of the parent's script variables and capture lists.
+     * @param driver the worker's web driver
+     * @param parent the scripter running the `parallel` operation
+     */
+    private SeleniumScripter(WebDriver driver, SeleniumScripter parent) {
+        this.driver = driver;
+        url = parent.url;
+        DEV_MODE = parent.DEV_MODE;
+        outputPath = parent.outputPath;
+        masterScript = parent.masterScript;
+        driverFactory = parent.driverFactory;
+        browserType = parent.browserType;
+        driverPool = parent.driverPool;
+        screenshotWriter = parent.screenshotWriter;
+        metrics = parent.metrics;
+        metrics.instrument(driver);
+        snapshots.setMemoryBudget(parent.snapshots.getMemoryBudget());
+        snapshots.setDirectory(parent.snapshots.getDirectory());
+        snapshots.setDeduplicate(parent.snapshots.isDeduplicating());
+        snapshots.setCompression(parent.snapshots.isCompressing());
+        scriptVariables.putAll(parent.scriptVariables);
+        captureListSpillThreshold = parent.captureListSpillThreshold;
+        for(Map.Entry<String, List<?>> entry : parent.captureLists.entrySet()) {
+            List<?> list = entry.getValue();
+            captureLists.put(entry.getKey(), list instanceof CaptureList ? ((CaptureList<?>) list).fork() : list);
+        }
+    }
+
     public static final String version() {
         return "SeleniumScripter v" + MAJOR + "." + MINOR + "." + PATCH;
     }
@@ -100,7 +167,7 @@ public class SeleniumScripter {
      * @return List the sliced list
      * @throws ParseException occurs when an invalid slice string is specified
      */
-    public static List slice(String slice, List list) throws ParseException {
+    public static <T> List<T> slice(String slice, List<T> list) throws ParseException {
         // Validate that the slice is formatted correctly
         if(!slice.matches("-{0,1}[0-9]+:-{0,1}[0-9]+")) {
             throw new ParseException("Invalid slice specification, must match pattern: `^-{0,1}[0-9]+:-{0,1}[0-9]+$`!", 0);
@@ -123,19 +190,6 @@ public class SeleniumScripter {
         return list.subList(start, end);
     }
 
-    private Number parseNumber(String number) throws ParseException {
-        Scanner scan = new Scanner(number);
-        if(scan.hasNextInt()){
-            return Integer.parseInt(number);
-        }
-        else if(scan.hasNextDouble()) {
-            return Double.parseDouble(number);
-        }
-        else {
-            throw new ParseException("Invalid numeric type: \"" + number + "\"", 0);
-        }
-    }
-
     /**
      * Convert a full exception name and package origin to just its slug name
      * @param e the thrown exception
@@ -146,30 +200,6 @@ public class SeleniumScripter {
         return parts[parts.length - 1].toLowerCase();
     }
 
-    /**
-     * Validate a Map-script by asserting that the specified field exists
-     * @param script the script to assert against
-     * @param requiredField the field to check for
-     * @throws ParseException occurs when the specified field does not exist
-     */
-    private void validate(Map<String, Object> script, String requiredField) throws ParseException {
-        validate(script, new String[] {requiredField});
-    }
-
-    /**
-     * Validate a Map-script by asserting that all of the specified fields exists
-     * @param script the script to assert against
-     * @param requiredFields the fields to check for
-     * @throws ParseException occurs when the specified field does not exist
-     */
-    private void validate(Map<String, Object> script, String[] requiredFields) throws ParseException {
-        for (String r : requiredFields) {
-            if (!script.containsKey(r)) {
-                throw new ParseException("Expected `" + r + "` field in block: `" + script + "`, but none was found!", 0);
-            }
-        }
-    }
-
     /**
      * A simple wrapper for displaying the same deprecation message
      * @param name the name of the deprecated operation
@@ -179,13 +209,24 @@ public class SeleniumScripter {
     }
 
     /**
-     * Convert selector and value string to a `selenium.By` object
+     * Convert selector and value string to a `selenium.By` object.
+     *      Locators are cached, so that names built from script variables are not re-parsed on every iteration.
      * @param selector the HTML selection method
      * @param name the value of the selection attribute
      * @throws ParseException occurs when an invalid selector value is specified
      * @return By the desired element
      */
-    private By by(String selector, String name) throws ParseException {
+    static By by(String selector, String name) throws ParseException {
+        String key = selector + '\0' + name;
+        By by = LOCATORS.get(key);
+        if(by == null) {
+            by = newBy(selector, name);
+            LOCATORS.put(key, by);
+        }
+        return by;
+    }
+
+    private static By newBy(String selector, String name) throws ParseException {
         switch (selector) {
             case "id":
                 return By.id(name);
@@ -203,6 +244,28 @@ public class SeleniumScripter {
         }
     }
 
+    /**
+     * Fetch the locator of an instruction, re-using the one built by the compiler if possible
+     * @param script the instruction holding the `selector` and `name` fields
+     * @param name the (resolved) value of the selection attribute
+     * @throws ParseException occurs when an invalid selector value is specified
+     * @return By the desired element
+     */
+    private By by(Instruction script, String name) throws ParseException {
+        By by = script.getBy();
+        return by != null ? by : by(script.getString("selector"), name);
+    }
+
+    /**
+     * Scroll an element into view
+     * @param element the element
+     * @return the element
+     */
+    private WebElement scrollIntoView(WebElement element) {
+        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView();", element);
+        return element;
+    }
+
     /**
      * Return the current time in the form of the date string `yyyy_MM_dd_HH-mm-ss.SSS`
      * @return the datestring
@@ -219,30 +282,9 @@ public class SeleniumScripter {
      * @throws ParseException occurs when the requested variable name was not instantiated
      */
     private String resolveExpressionValue(String expression) throws ParseException {
-        String resolved = String.valueOf(expression); // Create a deep copy of the expression
-
-        // Create the regex pattern and matcher iterable
-        Pattern identifierPattern = Pattern.compile("\\{[a-zA-Z_][a-zA-Z_0-9]*}");
-        Matcher matches = identifierPattern.matcher(resolved);
-
-        // For ever regex match, get the name of the identifier, perform a lookup in the script-variables map, and
-        //      inject the value if found, else, throw an error indicating an un-instantiated variable.
-        while(matches.find()) {
-            String identifier = matches.group(); // The current match substring
-            String name = identifier.subSequence(1, identifier.length() - 1).toString(); // The identifier
-
-            // Get the value of the identifier, throw a value exception if it came back null
-            Object value = scriptVariables.get(name);
-            if(value == null) {
-                throw new ParseException("Variable `" + name + "` not instantiated!", 0);
-            }
-
-            // Inject the variable-value into the expression
-            resolved = resolved.replace(identifier, value.toString());
-            matches = identifierPattern.matcher(resolved);
-        }
-
-        return resolved;
+        // Look up the parsed form of the expression, then inject the value of every variable it references, else,
+        //      throw an error indicating an un-instantiated variable.
+        return ExpressionTemplate.of(String.valueOf(expression)).render(scriptVariables);
     }
 
     /**
@@ -251,7 +293,45 @@ public class SeleniumScripter {
      * @return String the full web element xpath
      */
     public String getElementXPath(WebElement element) {
-        return (String) ((JavascriptExecutor) driver).executeScript("gPt=function(c){if(c.id!==''){return'[@id=\"'+c.id+'\"]'}if(c===document.body){return c.tagName}var a=0;var e=c.parentNode.childNodes;for(var b=0;b<e.length;b++){var d=e[b];if(d===c){return gPt(c.parentNode)+'/'+c.tagName+'['+(a+1)+']'}if(d.nodeType===1&&d.tagName===c.tagName){a++}}};return gPt(arguments[0]);", element);
+        return (String) ((JavascriptExecutor) driver).executeScript(XPATH_FUNCTION + "return gPt(arguments[0]);", element);
+    }
+
+    /**
+     * Fetch the absolute (unoptimized) xpaths of several web elements in a single browser round trip.
+     * @param elements the web elements to fetch the paths of
+     * @return the full web element xpaths, in the same order as the elements
+     */
+    public List<String> getElementXPaths(List<WebElement> elements) {
+        if(elements.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Object xpaths = ((JavascriptExecutor) driver).executeScript(XPATH_FUNCTION
+                + "var x=[];for(var i=0;i<arguments[0].length;i++){x.push(gPt(arguments[0][i]))}return x;", elements);
+        return new ArrayList<>((List<String>) xpaths);
+    }
+
+    /**
+     * Find every element matching a selector and fetch their absolute (unoptimized) xpaths in a single browser round
+     *      trip. The elements are looked up in-page, so no element references are sent over the wire at all.
+     * @param selector the HTML selection method, one of `id`, `class`, `css`/`cssSelector`, `name` or `xpath`
+     * @param name the value of the selection attribute
+     * @return the full web element xpaths, in document order
+     * @throws ParseException occurs when an invalid selector type is specified
+     */
+    public List<String> getElementXPaths(String selector, String name) throws ParseException {
+        by(selector, name); // Reject invalid selector types the same way `findElements` would
+
+        Object xpaths = ((JavascriptExecutor) driver).executeScript(XPATH_FUNCTION
+                + "var s=arguments[0],n=arguments[1],e=[];"
+                + "if(s==='id'){e=document.querySelectorAll('[id=\"'+n.replace(/([\"\\\\])/g,'\\\\$1')+'\"]')}"
+                + "else if(s==='class'){e=document.getElementsByClassName(n)}"
+                + "else if(s==='name'){e=document.getElementsByName(n)}"
+                + "else if(s==='xpath'){var r=document.evaluate(n,document,null,XPathResult.ORDERED_NODE_SNAPSHOT_TYPE,null);"
+                + "for(var j=0;j<r.snapshotLength;j++){if(r.snapshotItem(j).nodeType===1){e.push(r.snapshotItem(j))}}}"
+                + "else{e=document.querySelectorAll(n)}"
+                + "var x=[];for(var i=0;i<e.length;i++){x.push(gPt(e[i]))}return x;", selector, name);
+        return new ArrayList<>((List<String>) xpaths);
     }
 
     /**
@@ -271,131 +351,217 @@ public class SeleniumScripter {
             ParseException,
             InterruptedException,
             StopIteration {
+        runScript(new ScriptCompiler().compile(script));
+    }
+
+    /**
+     * Run a selenium script that has already been compiled.
+     * @param script the compiled selenium script
+     * @throws IOException occurs when screenshots failed to write to persistence
+     * @throws AttributeNotFoundException occurs when an invalid element attribute is specified
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     * @throws InterruptedException occurs when the process wakes up from a sleep event in a child-instruction
+     * @throws StopIteration occurs when a break statement is called outside of a loop
+     */
+    public void runScript(CompiledScript script) throws IOException,
+            AttributeNotFoundException,
+            ParseException,
+            InterruptedException,
+            StopIteration {
         // TODO: remove this as soon as the `loop` op is closed out
         if(masterScript == null){
             masterScript = script;
         }
 
-        for (Map.Entry instruction : script.entrySet()) {
-            String instructionName = instruction.getKey().toString();
-            Object instructionBlock = instruction.getValue();
-
-            if (instructionBlock instanceof Map) {
-                Map<String, Object> subscript = (Map<String, Object>) instructionBlock;
-                String operation = subscript.getOrDefault("operation", "{UNDEFINED}")
-                        .toString()
-                        .toLowerCase();
-
-                LOG.info("Executing `" + operation + "` operation in block `" + instructionName + "` with " + operation.length() + " fields!");
-                switch (operation.toLowerCase()) {
-                    case "{undefined}":
-                        LOG.warn("Found the " + instructionName + " block with no defined operation! Skipping...");
-                        break;
-                    case "alert":
-                        alertOperation(subscript);
-                        break;
-                    case "break":
-                        breakOperation(subscript);
-                        break;
-                    case "capturelist":
-                        captureListOperation(subscript);
-                        break;
-                    case "capturelisttosnapshots":
-                        captureListToSnapshotsOperation(subscript);
-                        break;
-                    case "click":
-                        clickOperation(subscript);
-                        break;
-                    case "clicklistitem":
-                        clickListItemOperation(subscript);
-                        break;
-                    case "do_while":
-                        doWhileOperation(subscript);
-                        break;
-                    case "dumpstack":
-                        dumpStackOperation(subscript);
-                        break;
-                    case "execute_js":
-                        executeJavascriptOperation(subscript);
-                        break;
-                    case "filter":
-                        filterOperation(subscript);
-                        break;
-                    case "for":
-                        forOperation(subscript);
-                        break;
-                    case "if":
-                        ifOperation(subscript);
-                        break;
-                    case "injectcontent":
-                        LOG.warn("The `injectcontent` has been renamed to `pushsnapshot`!");
-                    case "pushsnapshot":
-                        pushSnapshot(subscript);
-                        break;
-                    case "injectelement":
-                        injectAdjacentElement(subscript);
-                        break;
-                    case "jsback":
-                        jsBackOperation();
-                        break;
-                    case "jsclick":
-                        jsClickOperation(subscript);
-                        break;
-                    case "jsrefresh":
-                        jsRefreshOperation();
-                        break;
-                    case "keys":
-                        keysOperation(subscript);
-                        break;
-                    case "loop":
-                        loopOperation(subscript);
-                        break;
-                    case "loadpage":
-                        loadPageOperation(subscript);
-                        break;
-                    case "window":
-                        loadWindowOperation(subscript);
-                        break;
-                    case "noop":
-                        break;
-                    case "pause":
-                        pauseOperation(subscript);
-                        break;
-                    case "recaptcha":
-                        reCaptchaClick(subscript);
-                        break;
-                    case "restore":
-                        restoreOperation(subscript);
-                        break;
-                    case "screenshot":
-                        screenshotOperation(subscript);
-                        break;
-                    case "select":
-                        selectOperation(subscript);
-                        break;
-                    case "set":
-                        setOperation(subscript);
-                        break;
-                    case "snapshot":
-                        snapshotOperation(subscript);
-                        break;
-                    case "token":
-                        getTokenOperation(subscript);
-                        break;
-                    case "try":
-                        tryOperation(subscript);
-                        break;
-                    case "wait":
-                        waitOperation(subscript);
-                        break;
-                    default:
-                        throw new ParseException("Invalid operation: " + operation, 0);
-                }
-            } else if(instructionBlock instanceof String && instructionName.toLowerCase().equals("version")) {
-                System.out.println("Version: " + instructionBlock);
-            } else {
-                throw new ParseException("Subscript did not convert to map!", 0);
+        try {
+            runSubsequence(script.getInstructions());
+        } catch (Exception e) {
+            // Still wait for the screenshots taken so far, but report the failure of the script itself
+            try {
+                screenshotWriter.flush();
+            } catch (IOException ignored) {
+                // Already logged by the screenshot writer
             }
+            throw e;
+        }
+
+        // Wait for every screenshot to be written
+        screenshotWriter.flush();
+
+        // The run is complete, so a later resume has nothing to skip
+        if(checkpointer != null) {
+            checkpointer.finish();
+        }
+
+        LOG.info("Script metrics: " + metrics.getCommands() + " WebDriver commands in " + metrics.getCommandMillis()
+                + "ms, " + metrics.getSleepMillis() + "ms sleeping, " + metrics.getWaitMillis() + "ms waiting on conditions");
+        LOG.info("Element cache: " + elementCache.getHits() + " hits, " + elementCache.getMisses() + " misses, "
+                + elementCache.getStale() + " stale handles");
+
+        if(snapshots.isDeduplicating()) {
+            LOG.info("Snapshot deduplication: " + snapshots.getDeduplicationHits() + " hits, "
+                    + snapshots.getDeduplicationMisses() + " misses, ~" + snapshots.getDeduplicatedBytes()
+                    + " bytes saved");
+        }
+    }
+
+    /**
+     * Run a single compiled instruction.
+     * @param script the instruction to run
+     * @throws IOException occurs when screenshots failed to write to persistence
+     * @throws AttributeNotFoundException occurs when an invalid element attribute is specified
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     * @throws InterruptedException occurs when the process wakes up from a sleep event in a child-instruction
+     * @throws StopIteration occurs when a break statement is called outside of a loop
+     */
+    private void execute(Instruction script) throws IOException,
+            AttributeNotFoundException,
+            ParseException,
+            InterruptedException,
+            StopIteration {
+        Operation operation = script.getOperation();
+        if(operation == Operation.VERSION) {
+            System.out.println("Version: " + script.getString("version"));
+            return;
+        } else if(script.getError() != null) {
+            throw new ParseException(script.getError(), 0);
+        }
+
+        LOG.info("Executing `" + operation + "` operation in block `" + script.getName() + "` with " + script.size() + " fields!");
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            run(operation, script);
+            failed = false;
+        } catch (StopIteration e) {
+            failed = false; // Breaking out of a loop is not a failure
+            throw e;
+        } finally {
+            metrics.record(operation, script.getName(), System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Run the operation of a single compiled instruction.
+     * @param operation the operation to run
+     * @param script the instruction holding the operation's parameters
+     * @throws IOException occurs when screenshots failed to write to persistence
+     * @throws AttributeNotFoundException occurs when an invalid element attribute is specified
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     * @throws InterruptedException occurs when the process wakes up from a sleep event in a child-instruction
+     * @throws StopIteration occurs when a break statement is called outside of a loop
+     */
+    private void run(Operation operation, Instruction script) throws IOException,
+            AttributeNotFoundException,
+            ParseException,
+            InterruptedException,
+            StopIteration {
+        switch (operation) {
+            case UNDEFINED:
+                LOG.warn("Found the " + script.getName() + " block with no defined operation! Skipping...");
+                break;
+            case ALERT:
+                alertOperation(script);
+                break;
+            case BREAK:
+                breakOperation(script);
+                break;
+            case CAPTURELIST:
+                captureListOperation(script);
+                break;
+            case CAPTURELISTTOSNAPSHOTS:
+                captureListToSnapshotsOperation(script);
+                break;
+            case CLICK:
+                clickOperation(script);
+                break;
+            case CLICKLISTITEM:
+                clickListItemOperation(script);
+                break;
+            case DO_WHILE:
+                doWhileOperation(script);
+                break;
+            case DUMPSTACK:
+                dumpStackOperation(script);
+                break;
+            case EXECUTE_JS:
+                executeJavascriptOperation(script);
+                break;
+            case FILTER:
+                filterOperation(script);
+                break;
+            case FOR:
+                forOperation(script);
+                break;
+            case IF:
+                ifOperation(script);
+                break;
+            case INJECTCONTENT:
+                LOG.warn("The `injectcontent` has been renamed to `pushsnapshot`!");
+            case PUSHSNAPSHOT:
+                pushSnapshot(script);
+                break;
+            case INJECTELEMENT:
+                injectAdjacentElement(script);
+                break;
+            case JSBACK:
+                jsBackOperation(script);
+                break;
+            case JSCLICK:
+                jsClickOperation(script);
+                break;
+            case JSREFRESH:
+                jsRefreshOperation(script);
+                break;
+            case KEYS:
+                keysOperation(script);
+                break;
+            case LOOP:
+                loopOperation(script);
+                break;
+            case LOADPAGE:
+                loadPageOperation(script);
+                break;
+            case WINDOW:
+                loadWindowOperation(script);
+                break;
+            case NOOP:
+                break;
+            case PARALLEL:
+                parallelOperation(script);
+                break;
+            case PAUSE:
+                pauseOperation(script);
+                break;
+            case RECAPTCHA:
+                reCaptchaClick(script);
+                break;
+            case RESTORE:
+                restoreOperation(script);
+                break;
+            case SCREENSHOT:
+                screenshotOperation(script);
+                break;
+            case SELECT:
+                selectOperation(script);
+                break;
+            case SET:
+                setOperation(script);
+                break;
+            case SNAPSHOT:
+                snapshotOperation(script);
+                break;
+            case TOKEN:
+                getTokenOperation(script);
+                break;
+            case TRY:
+                tryOperation(script);
+                break;
+            case WAIT:
+                waitOperation(script);
+                break;
+            default:
+                throw new ParseException("Invalid operation: " + operation, 0);
         }
     }
 
@@ -404,19 +570,17 @@ public class SeleniumScripter {
      * @param script the alert subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void alertOperation(Map<String, Object> script) throws ParseException {
-        validate(script, "action"); // Validation
-
+    private void alertOperation(Instruction script) throws ParseException {
         // Get or fill operation parameters
-        String action = script.get("action").toString().toLowerCase();
-        long timeout = Long.parseLong(script.getOrDefault("timeout", defaultWaitTimeout).toString());
+        String action = script.getString("action").toLowerCase();
+        long timeout = script.getLong("timeout", defaultWaitTimeout);
 
         LOG.info("Attempting to `" + action + "` alert within " + timeout + "s...");
 
         Alert alert;
         try {
             // Wait for an alert to appear
-            alert = new WebDriverWait(driver, timeout).until(ExpectedConditions.alertIsPresent());
+            alert = metrics.newWait(driver, timeout).until(ExpectedConditions.alertIsPresent());
         } catch (NoAlertPresentException | TimeoutException e) {
             // Consume the NoAlertPresentException, print the stack trace and fall through
             LOG.warn("Waited for an alert to appear within " + timeout + "s but none was found!");
@@ -432,8 +596,8 @@ public class SeleniumScripter {
                 alert.dismiss();
                 break;
             case "keys":
-                validate(script, "name");
-                String name = script.get("name").toString();
+                script.validate("name");
+                String name = script.getString("name");
                 alert.sendKeys(name);
                 break;
             default:
@@ -446,32 +610,42 @@ public class SeleniumScripter {
      * @param script the loop subscript operation
      */
     @Deprecated
-    private void loopOperation(Map<String, Object> script) throws ParseException {
+    private void loopOperation(Instruction script) throws ParseException {
         deprecated("loop");
 
-        validate(script, new String[] {"variable", "subscript"}); // Validation
-
-        String variableName = script.get("variable").toString();
+        String variableName = script.getString("variable");
 
         if(captureLists.containsKey(variableName)) {
-            List<String> list = captureLists.get(variableName);
-
-            LOG.info("Iterating over list: " + list);
-            for (Object v : list) {
-                scriptVariables.put(variableName, v);
+            CompiledScript subscript = masterScript.getSubscript(script.getString("subscript"));
+            if(subscript == null) {
+                throw new ParseException("No subscript named `" + script.getString("subscript") + "` was found!", 0);
+            }
 
-                Map<String, Object> subscripts = (Map<String, Object>) masterScript.get("subscripts");
-                Map<String, Object> subscript = convertToTreeMap((Map<String, Object>) subscripts.get(script.get("subscript")));
+            int start = checkpointer == null ? 0 : checkpointer.enter(script, captureLists.get(variableName).size());
+            List<?> list = captureLists.get(variableName); // Fetched after a checkpoint may have been restored
+            try {
+                LOG.info("Iterating over list: " + list);
+                for (int i = start; i < list.size(); ++i) {
+                    scriptVariables.put(variableName, list.get(i));
+
+                    try {
+                        runSubsequence(subscript.getInstructions());
+                    } catch (Exception e) {
+                        LOG.error("Caught the following exception inside loop:");
+                        e.printStackTrace();
+                        if (!script.has("exitOnError") || script.get("exitOnError").equals(true)) {
+                            break;
+                        }
+                    }
 
-                try {
-                    runScript(subscript);
-                } catch (Exception e) {
-                    LOG.error("Caught the following exception inside loop:");
-                    e.printStackTrace();
-                    if (!script.containsKey("exitOnError") || script.containsKey("exitOnError") && script.get("exitOnError").equals(true)) {
-                        break;
+                    if(checkpointer != null) {
+                        checkpointer.completed();
                     }
                 }
+            } finally {
+                if(checkpointer != null) {
+                    checkpointer.exit();
+                }
             }
         } else{
             LOG.info("No capturelist of that name found");
@@ -482,15 +656,13 @@ public class SeleniumScripter {
      * Runs a sequence of instructions
      * @param sequence the list of operations to run
      */
-    private void runSubsequence(List<Map<String, String>> sequence) throws IOException,
+    private void runSubsequence(List<Instruction> sequence) throws IOException,
             AttributeNotFoundException,
             ParseException,
             InterruptedException,
             StopIteration {
-        for (Map<String, String> instruction : sequence) {
-            Map<String, Object> instructionBlock = new HashMap<>();
-            instructionBlock.put("subsequence", instruction);
-            runScript(instructionBlock);
+        for (Instruction instruction : sequence) {
+            execute(instruction);
         }
     }
 
@@ -498,7 +670,7 @@ public class SeleniumScripter {
      * Runs a subsequence in a try-catch block and return a boolean of if an error was raised
      * @param sequence
      */
-    private boolean guardedSubsequence(List<Map<String, String>> sequence) {
+    private boolean guardedSubsequence(List<Instruction> sequence) {
         try {
             runSubsequence(sequence);
             return true;
@@ -517,32 +689,35 @@ public class SeleniumScripter {
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
     @Deprecated
-    private void captureListOperation(Map<String, Object> script) throws ParseException {
+    private void captureListOperation(Instruction script) throws ParseException {
         deprecated("capturelist");
 
-        validate(script, new String[] {"selector", "name"}); // Validation
-
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        String variable = script.get("variable").toString();
+        String name = script.getString("name");
+        String variable = script.getString("variable");
 
-        List<WebElement> webElements = driver.findElements(by(selector, name));
         String type = "text";
-        if(script.containsKey("collect")){
-            type = script.get("collect").toString();
-        }
-        if(script.containsKey("type")){
-            type = script.get("type").toString();
-        }
-        List strlist = new ArrayList<>();
-        for(WebElement el : webElements){
-            LOG.info("Capture Element Found: " + el.getText());
-            if ("text".equals(type)) {
-                strlist.add(el.getText());
-            } else if ("elements".equals(type)) {
-                strlist.add(el);
-            } else if ("xpath".equals(type)) {
-                strlist.add(getElementXPath(el));
+        if(script.has("collect")){
+            type = script.getString("collect");
+        }
+        if(script.has("type")){
+            type = script.getString("type");
+        }
+        List strlist;
+        if ("xpath".equals(type)) {
+            // Fetch every xpath in a single round trip
+            strlist = getElementXPaths(script.getString("selector"), name);
+            LOG.info("Capture Elements Found: " + strlist.size());
+        } else {
+            List<WebElement> webElements = driver.findElements(by(script, name));
+            strlist = new ArrayList<>();
+            for(WebElement el : webElements){
+                String text = el.getText();
+                LOG.info("Capture Element Found: " + text);
+                if ("text".equals(type)) {
+                    strlist.add(text);
+                } else if ("elements".equals(type)) {
+                    strlist.add(el);
+                }
             }
         }
 
@@ -550,17 +725,35 @@ public class SeleniumScripter {
 
         String append = "false";
 
-        if(script.containsKey("append")){
-            append = script.get("append").toString();
+        if(script.has("append")){
+            append = script.getString("append");
         }
         if(append.equals("false")) {
             captureLists.put(variable, strlist);
         } else if(append.equals("true")){
-            List list = captureLists.get(variable);
-            List<String> newList = new ArrayList<String>(list);
-            newList.addAll(strlist);
-            captureLists.put(variable, newList);
+            appendableCaptureList(variable).addAll(strlist);
+        }
+    }
+
+    /**
+     * Fetch a capture list which can be appended to in place, converting the existing list on first use
+     * @param variable the name of the capture list
+     * @return the capture list
+     */
+    private CaptureList<Object> appendableCaptureList(String variable) {
+        List list = captureLists.get(variable);
+        if(list instanceof CaptureList) {
+            return (CaptureList<Object>) list;
+        }
+
+        CaptureList<Object> appendable = new CaptureList<>();
+        appendable.setDirectory(snapshots.getDirectory());
+        appendable.setSpillThreshold(captureListSpillThreshold);
+        if(list != null) {
+            appendable.addAll(list);
         }
+        captureLists.put(variable, appendable);
+        return appendable;
     }
 
     /**
@@ -569,11 +762,11 @@ public class SeleniumScripter {
      * @param subscript the captureListToSnapshotsOperation subscript operation
      */
     @Deprecated
-    private void captureListToSnapshotsOperation(Map<String, Object> subscript) {
+    private void captureListToSnapshotsOperation(Instruction subscript) {
         deprecated("capturelisttosnapshots");
 
-        if(captureLists.containsKey(subscript.get("variable").toString())) {
-            List l = captureLists.get(subscript.get("variable").toString());
+        if(captureLists.containsKey(subscript.getString("variable"))) {
+            List l = captureLists.get(subscript.getString("variable"));
 
             for (Object m : l) {
                 String sshot = JSONValue.toJSONString(m);
@@ -583,7 +776,7 @@ public class SeleniumScripter {
                 this.snapshots.add(s);
             }
         } else{
-            LOG.error("No capturelists named " + subscript.get("variable").toString() + " to convert to snapshots.");
+            LOG.error("No capturelists named " + subscript.getString("variable") + " to convert to snapshots.");
         }
     }
 
@@ -592,79 +785,73 @@ public class SeleniumScripter {
      * @param script the click-list-item subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void clickListItemOperation(Map<String, Object> script) throws ParseException {
-        validate(script, new String[] {"selector", "name"}); // Validation
-
+    private void clickListItemOperation(Instruction script) throws ParseException {
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
+        String name = script.getString("name");
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
-        List<WebElement> element = driver.findElements(by(selector, name));
-        int i = ((Double) script.get("item")).intValue();
+        List<WebElement> element = driver.findElements(by(script, name));
+        int i = script.getInt("item", 0);
         LOG.info("Clicking list item: `" + element.toString() + "` of " + i);
         element.get(i).click();
     }
 
     /**
      * Click on a web element.
+     *      Without an `until` block the operation sleeps for `delay` seconds afterwards; with one, it returns as soon as
+     *      the condition holds, with `delay` (or the default wait timeout) as the upper bound.
      * @param script the click subscript operation
      */
-    private void clickOperation(Map<String, Object> script) throws ParseException, InterruptedException {
-        validate(script, new String[] {"selector", "name"}); // Validation
-
+    private void clickOperation(Instruction script) throws ParseException, InterruptedException {
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        long delay = Long.parseLong(script.getOrDefault("delay", 0).toString());
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        long delay = script.getLong("delay", 0);
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
-        // Get the element to-be-clicked
-        WebElement element = driver.findElement(by(selector, name));
-
-        // Scroll the element into view
-        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView();", element);
+        // Get the element to-be-clicked and scroll it into view
+        WebElement element = elementCache.use(driver, by(script, name), this::scrollIntoView);
 
         // Click-n-go
+        String previousUrl = urlBeforeAction(script);
         LOG.info("Clicking element with " + selector + " of `" + name + "`");
         element.click();
+        elementCache.invalidate(); // The click may have changed the page
 
         // Post-click delay
-        LOG.info("Waiting for " + delay + "s before continuing...");
-        Thread.sleep(delay * 1000);
+        LOG.info("Waiting for up to " + delay + "s before continuing...");
+        awaitPostAction(script, null, postActionDelay(script, delay), element, previousUrl);
     }
 
     /**
      * Groovy based filtering - Used in Optum
      * @param script
      */
-    private void filterOperation(Map<String, Object> script){
-        String tovariable = script.get("tovariable").toString();
-        String filterType = script.get("type").toString();
+    private void filterOperation(Instruction script){
+        String tovariable = script.getString("tovariable");
+        String filterType = script.getString("type");
         if(filterType.equals("filtermap")) {
             List<Map> matches = new ArrayList<>();
-            matches = (List<Map>) executeGroovyScript(script.get("evaluation").toString());
+            matches = (List<Map>) executeGroovyScript(script.getString("evaluation"));
             captureLists.put(tovariable, matches);
         }
     }
 
     /**
      * Execute groovy script - Used in Optum
+     *      The script is compiled once and cached; each run gets a fresh instance with its own binding.
      * @param script
      * @return
      */
     private Object executeGroovyScript(String script) {
         Binding sharedData = new Binding();
-        GroovyShell shell = new GroovyShell(sharedData);
         sharedData.setProperty("capturelists", captureLists);
 
-        Object result = shell.evaluate(script);
-
-        return result;
+        return GroovyScriptCache.shared().evaluate(script, sharedData);
     }
 
     /**
@@ -672,19 +859,17 @@ public class SeleniumScripter {
      *  (A legacy operation for the Optum Agent)
      * @param script
      */
-    private void executeJavascriptOperation(Map<String, Object> script) throws ParseException {
-        validate(script, "javascriptOperator"); // Validation
-
-        Boolean sendauth = Boolean.parseBoolean(script.getOrDefault("authheader", false).toString());
-        if(script.containsKey("javascriptOperator")){
-            String name = script.get("javascriptOperator").toString();
+    private void executeJavascriptOperation(Instruction script) throws ParseException {
+        Boolean sendauth = script.getBoolean("authheader", false);
+        if(script.has("javascriptOperator")){
+            String name = script.getString("javascriptOperator");
             if(sendauth) {
                 name = name.replace("{bearer_token}", scriptVariables.get("bearer_token").toString());
             }
             Object v = scriptVariables.get(script.get("replace"));
             if(name.contains("{variable}")) {
-                if(script.containsKey("variableMapValue") && v instanceof Map){
-                    String mapvalue = ((Map) v).get(script.get("variableMapValue").toString()).toString();
+                if(script.has("variableMapValue") && v instanceof Map){
+                    String mapvalue = ((Map) v).get(script.getString("variableMapValue")).toString();
                     name = name.replace("{variable}", mapvalue);
                 } else{
                     name = name.replace("{variable}", v.toString());
@@ -692,15 +877,9 @@ public class SeleniumScripter {
 
             }
             Object resp = ((JavascriptExecutor) driver).executeAsyncScript(name);
-            //captureLists.put(script.get("variable").toString(), (ArrayList)resp);
-            List list = captureLists.get(script.get("variable"));
-            List<String> newList = new ArrayList();
-            if(list != null){
-                newList = new ArrayList<>(list);
-            }
+            elementCache.invalidate(); // The script may have changed the page
             if(resp != null) {
-                newList.addAll((ArrayList) resp);
-                captureLists.put(script.get("variable").toString(), newList);
+                appendableCaptureList(script.getString("variable")).addAll((List) resp);
             }
         }
     }
@@ -710,47 +889,210 @@ public class SeleniumScripter {
      * @param script the click-list-item subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void forOperation(Map<String, Object> script) throws ParseException,
+    private void forOperation(Instruction script) throws ParseException,
             AttributeNotFoundException,
             IOException,
             InterruptedException {
-        // Validation
-        validate(script, new String[] {"forEach", "do"});
-        Map<String, Object> forEachParams = (Map<String, Object>) script.get("forEach");
-        validate(forEachParams, new String[] {"selector", "name"});
+        if(script.getSection("tabs") != null) {
+            forTabsOperation(script);
+            return;
+        }
 
         // Script parameters
-        String selector = forEachParams.get("selector").toString();
-        String name = forEachParams.get("name").toString();
-        String iteratorName = forEachParams.get("variable").toString();
-        List<Map<String, String>> doBlock = (List<Map<String, String>>) script.get("do");
-
-        // Substitute any specified script-variable-values
-        name = resolveExpressionValue(name);
+        Instruction forEachParams = script.getSection("forEach");
+        String iteratorName = forEachParams.getString("variable");
+        List<Instruction> doBlock = script.getBlock("do");
 
         // Fetch Element XPaths to iterate on
-        List<WebElement> elements = driver.findElements(by(selector, name));
-        List xpaths = new ArrayList<>();
-        for(WebElement e : elements) {
-            xpaths.add(getElementXPath(e));
+        List<?> xpaths = getForEachXPaths(forEachParams);
+
+        int start = checkpointer == null ? 0 : checkpointer.enter(script, xpaths.size());
+        try {
+            LOG.info("Iterating over list: " + xpaths);
+            for (int i = start; i < xpaths.size(); ++i) {
+                try {
+                    scriptVariables.put(iteratorName, xpaths.get(i));
+                    runSubsequence(doBlock);
+                } catch(StopIteration e) {
+                    LOG.warn("Exiting `for` loop on a call to `break`!");
+                    break;
+                }
+
+                if(checkpointer != null) {
+                    checkpointer.completed();
+                }
+            }
+        } finally {
+            if(checkpointer != null) {
+                checkpointer.exit();
+            }
         }
+    }
 
-        // Slice the list of elements if specified
-        if(forEachParams.containsKey("slice")) {
-            String slice = forEachParams.get("slice").toString();
-            xpaths = SeleniumScripter.slice(slice, xpaths);
+    /**
+     * Iterate over the pages linked to by a list of elements, loading the pages of several iterations at once in tabs
+     *      of the current driver session.
+     *      The `tabs` section sets the number of tabs (`size`), the element attribute holding each page's URL
+     *      (`attribute`, `href` by default) and the `ready` condition and `timeout` of each page (`complete` within 30
+     *      seconds by default). The `forEach` variable is set to the page URL, and the `do` block runs in the page's tab
+     *      as soon as the page is ready, so iterations can finish, and take their snapshots, out of order. Checkpoints
+     *      record which iterations finished out of order, so that a resumed loop skips them rather than repeat them.
+     * @param script the `for` operation with a `tabs` section
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     * @throws TimeoutException occurs when a page is not ready within the `timeout`
+     */
+    private void forTabsOperation(Instruction script) throws ParseException,
+            AttributeNotFoundException,
+            IOException,
+            InterruptedException {
+        // Script parameters
+        Instruction forEachParams = script.getSection("forEach");
+        Instruction tabsParams = script.getSection("tabs");
+        String iteratorName = forEachParams.getString("variable");
+        List<Instruction> doBlock = script.getBlock("do");
+        int size = tabsParams.getInt("size", defaultTabs);
+        long timeout = readyTimeout(tabsParams);
+        ExpectedCondition<?> ready = ExpectedConditions.and(NetworkIdle.navigated(), readyCondition(tabsParams, "complete"));
+        if(size < 1) {
+            throw new ParseException("Expected `size` of `tabs` to be at least 1, but got: " + size, 0);
+        }
+
+        // Fetch the URLs of the pages to iterate over
+        List<String> urls = getForEachUrls(forEachParams, tabsParams.getString("attribute", "href"));
+
+        int start = checkpointer == null ? 0 : checkpointer.enter(script, urls.size());
+        elementCache.invalidate();
+        try (TabPool tabs = new TabPool(driver, Math.min(size, urls.size() - start))) {
+            LOG.info("Iterating over " + (urls.size() - start) + " pages in " + tabs.getHandles().size() + " tabs: " + urls);
+            Deque<String> idle = new ArrayDeque<>(tabs.getHandles()); // Tabs with no page to load or process
+            Map<String, Integer> loading = new LinkedHashMap<>(); // Iterations by tab, in the order they were started
+            Map<String, Long> deadlines = new HashMap<>(); // The time by which each loading tab must be ready
+            int next = start;
+            while(next < urls.size() || !loading.isEmpty()) {
+                // Start loading the next pages in the idle tabs
+                while(next < urls.size() && !idle.isEmpty()) {
+                    if(checkpointer != null && checkpointer.isCompleted(next)) {
+                        ++next; // Finished out of order before the checkpoint being resumed
+                        continue;
+                    }
+                    String tab = idle.poll();
+                    tabs.navigate(tab, urls.get(next));
+                    loading.put(tab, next++);
+                    deadlines.put(tab, System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout));
+                }
+
+                // Process the first tab whose page is ready
+                String tab = nextReadyTab(tabs, loading, deadlines, ready, urls);
+                if(tab == null) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                    continue;
+                }
+                int i = loading.remove(tab);
+                try {
+                    scriptVariables.put(iteratorName, urls.get(i));
+                    runSubsequence(doBlock);
+                } catch(StopIteration e) {
+                    LOG.warn("Exiting `for` loop on a call to `break`!");
+                    break;
+                } finally {
+                    elementCache.invalidate();
+                }
+                idle.add(tab);
+                if(checkpointer != null) {
+                    checkpointer.completed(i);
+                }
+            }
+        } finally {
+            elementCache.invalidate();
+            if(checkpointer != null) {
+                checkpointer.exit();
+            }
         }
+    }
 
-        LOG.info("Iterating over list: " + xpaths);
-        for (String xpath : (List<String>) xpaths) {
+    /**
+     * Find the first loading tab whose page is ready, leaving it as the current window
+     * @param tabs the tab pool
+     * @param loading the iterations by loading tab
+     * @param deadlines the time by which each loading tab must be ready
+     * @param ready the condition which holds once a page is ready
+     * @param urls the page URLs, by iteration
+     * @return the handle of the tab, or null if no page is ready yet
+     * @throws TimeoutException occurs when a page is not ready by its deadline
+     */
+    private String nextReadyTab(TabPool tabs,
+                                Map<String, Integer> loading,
+                                Map<String, Long> deadlines,
+                                ExpectedCondition<?> ready,
+                                List<String> urls) {
+        for (Map.Entry<String, Integer> entry : loading.entrySet()) {
+            String tab = entry.getKey();
+            tabs.switchTo(tab);
+
+            Object result;
             try {
-                scriptVariables.put(iteratorName, xpath);
-                runSubsequence(doBlock);
-            } catch(StopIteration e) {
-                LOG.warn("Exiting `for` loop on a call to `break`!");
-                break;
+                result = ready.apply(driver);
+            } catch (WebDriverException e) {
+                result = null; // E.g. the page is still navigating, or the element is not there yet
+            }
+            if(result != null && !Boolean.FALSE.equals(result)) {
+                return tab;
+            }
+            if(System.nanoTime() - deadlines.get(tab) > 0) {
+                throw new TimeoutException("The page was not ready in time: " + urls.get(entry.getValue()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetch the URLs of the pages linked to by the elements a `forEach` section iterates over.
+     * @param forEachParams the `forEach` section of a `for` operation
+     * @param attribute the element attribute holding the URL, e.g. `href`
+     * @return the (optionally sliced) list of URLs
+     * @throws ParseException occurs when an invalid selector or slice is specified, or an element has no URL
+     */
+    private List<String> getForEachUrls(Instruction forEachParams, String attribute) throws ParseException {
+        // Substitute any specified script-variable-values
+        String name = resolveExpressionValue(forEachParams.getString("name"));
+
+        // Slice the list of elements if specified, before fetching their URLs
+        List<WebElement> elements = driver.findElements(by(forEachParams, name));
+        if(forEachParams.has("slice")) {
+            elements = SeleniumScripter.slice(forEachParams.getString("slice"), elements);
+        }
+
+        List<String> urls = new ArrayList<>(elements.size());
+        for (WebElement element : elements) {
+            String url = element.getAttribute(attribute);
+            if(url == null || url.isEmpty()) {
+                throw new ParseException("Expected element of `" + name + "` to have a `" + attribute + "` attribute!", 0);
             }
+            urls.add(url);
+        }
+        return urls;
+    }
+
+    /**
+     * Fetch the XPaths of the elements a `forEach` section iterates over.
+     * @param forEachParams the `forEach` section of a `for` or `parallel` operation
+     * @return the (optionally sliced) list of element XPaths
+     * @throws ParseException occurs when an invalid selector or slice is specified
+     */
+    private List<?> getForEachXPaths(Instruction forEachParams) throws ParseException {
+        // Substitute any specified script-variable-values
+        String name = resolveExpressionValue(forEachParams.getString("name"));
+
+        // Fetch Element XPaths to iterate on, in a single round trip
+        List<?> xpaths = getElementXPaths(forEachParams.getString("selector"), name);
+
+        // Slice the list of elements if specified
+        if(forEachParams.has("slice")) {
+            String slice = forEachParams.getString("slice");
+            xpaths = SeleniumScripter.slice(slice, xpaths);
         }
+
+        return xpaths;
     }
 
     /**
@@ -761,26 +1103,24 @@ public class SeleniumScripter {
      * @throws IOException occurs when a snapshot in a child-instruction fails to write to disk
      * @throws InterruptedException occurs when the process wakes up from a sleep event in a child-instruction
      */
-    private void ifOperation(Map<String, Object> script) throws ParseException,
+    private void ifOperation(Instruction script) throws ParseException,
             AttributeNotFoundException,
             IOException,
             InterruptedException,
             StopIteration {
-        validate(script, new String[] {"selector", "name", "condition", "then"}); // Validation
-
         // Fetch element of focus
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        WebElement e = new WebDriverWait(driver, 0)
-                .until(ExpectedConditions.presenceOfElementLocated(by(selector, name)));
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        WebElement e = metrics.newWait(driver, 0)
+                .until(ExpectedConditions.presenceOfElementLocated(by(script, name)));
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
         // Fetch the instruction blocks
         List<String> condition = (List<String>) script.get("condition");
-        List<Map<String, String>> thenBody = (List<Map<String, String>>) script.get("then");
-        List<Map<String, String>> elseBody = (List<Map<String, String>>) script.get("else");
+        List<Instruction> thenBody = script.getBlock("then");
+        List<Instruction> elseBody = script.getBlock("else");
 
         // Fetch condition details
         String left_operand = e.getAttribute(condition.get(0));
@@ -820,7 +1160,7 @@ public class SeleniumScripter {
      * @param script the break subscript operation
      * @throws StopIteration always occurs as a signal to stop iterating
      */
-    private void breakOperation(Map<String, Object> script) throws StopIteration{
+    private void breakOperation(Instruction script) throws StopIteration{
         throw new StopIteration("A call to `break` was caught outside of a loop, but may only be called inside a loop! Caught in block: " + script);
     }
 
@@ -834,15 +1174,13 @@ public class SeleniumScripter {
      * @throws IOException occurs if a subsequent operation tries to take a screenshot and fails to write to disk
      * @throws InterruptedException occurs if a subsequent operation calls sleep and is being woken up again
      */
-    private void doWhileOperation(Map<String, Object> script) throws ParseException,
+    private void doWhileOperation(Instruction script) throws ParseException,
             AttributeNotFoundException,
             IOException,
             InterruptedException {
-        validate(script, new String[] {"do_while", "do"}); // Validation
-
         // Get the instruction parameters
-        List<Map<String, String>> whileBlock = (List<Map<String, String>>) script.get("do_while");
-        List<Map<String, String>> doBlock = (List<Map<String, String>>) script.get("do");
+        List<Instruction> whileBlock = script.getBlock("do_while");
+        List<Instruction> doBlock = script.getBlock("do");
 
         // Run the while block
         do {
@@ -861,17 +1199,16 @@ public class SeleniumScripter {
      * @param script the inject-content subscript instruction
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void pushSnapshot(Map<String, Object> script) throws ParseException {
-        validate(script, "type"); // Validation
-        String k = script.getOrDefault("prefix", "")+UUID.randomUUID().toString();
+    private void pushSnapshot(Instruction script) throws ParseException {
+        String k = script.getString("prefix", "")+UUID.randomUUID().toString();
         String content;
-        final String type = script.get("type").toString().toLowerCase();
-        final String tokenName = script.getOrDefault("name", "null").toString();
+        final String type = script.getString("type").toLowerCase();
+        final String tokenName = script.getString("name", "null");
 
         switch (type) {
             case "override":
-                validate(script, "value");
-                content = script.get("value").toString();
+                script.validate("value");
+                content = script.getString("value");
                 break;
             case "html":
                 content = "<p id=\"error\">no results found</p><p id=\"token\">" + tokenName + "</p>";
@@ -891,19 +1228,23 @@ public class SeleniumScripter {
     }
 
     /**
-     * Go back to the previous page using JS.
+     * Go back to the previous page using JS, then wait for it to go network-idle.
+     * @param script the js-back subscript operation
+     * @throws ParseException occurs when an invalid timeout or quiet window is specified
      */
-    private void jsBackOperation() {
+    private void jsBackOperation(Instruction script) throws ParseException {
         LOG.error("The `jsBack` operation is deprecated and will eventually be removed in favor of the `window back` operation!");
         JavascriptExecutor js = (JavascriptExecutor) driver;
         try {
             LOG.info("Going to last page...");
 
             //Calling executeAsyncScript() method to go back a page
+            NetworkIdle.markNavigation(driver);
+            elementCache.invalidate();
             js.executeScript("window.history.back();");
 
             //waits for page to load
-            js.executeAsyncScript("window.setTimeout(arguments[arguments.length - 1], 10000);");
+            awaitNavigation(script);
             LOG.info("Page refreshed!");
         } catch (org.openqa.selenium.NoSuchElementException e) {
             LOG.error("Back operation failed!");
@@ -912,34 +1253,33 @@ public class SeleniumScripter {
 
     /**
      * Click on a web element using JS.
+     *      Without an `until` block the operation sleeps for `delay` seconds afterwards; with one, it returns as soon as
+     *      the condition holds, with `delay` (or the default wait timeout) as the upper bound.
      * @param script the js-click subscript operation
      */
-    private void jsClickOperation(Map<String, Object> script) throws ParseException,
+    private void jsClickOperation(Instruction script) throws ParseException,
             NoSuchElementException,
             InterruptedException{
-        validate(script, new String[] {"selector", "name"}); // Validation
-
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        long delay = Long.parseLong(script.getOrDefault("delay", 0).toString());
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        long delay = script.getLong("delay", 0);
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
-        // Fetch the to-be-clicked element
-        WebElement element = driver.findElement(by(selector, name));
-
-        // Scroll the element into view
-        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView();", element);
+        // Fetch the to-be-clicked element and scroll it into view
+        WebElement element = elementCache.use(driver, by(script, name), this::scrollIntoView);
 
         // Run the JS to click-n-go
+        String previousUrl = urlBeforeAction(script);
         LOG.info("JS-clicking element with " + selector + " of `" + name + "`!");
         ((JavascriptExecutor) driver).executeScript("arguments[0].click();", element);
+        elementCache.invalidate(); // The click may have changed the page
 
         // Post-click delay
-        LOG.info("Waiting for " + delay + "s before continuing...");
-        Thread.sleep(delay * 1000);
+        LOG.info("Waiting for up to " + delay + "s before continuing...");
+        awaitPostAction(script, null, postActionDelay(script, delay), element, previousUrl);
     }
 
     /**
@@ -947,14 +1287,12 @@ public class SeleniumScripter {
      * @param script the injectelement subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void injectAdjacentElement(Map<String, Object> script) throws ParseException {
-        validate(script, new String[] {"selector", "name", "tag", "value"}); // Validation
-
+    private void injectAdjacentElement(Instruction script) throws ParseException {
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        String htmlTag = script.get("tag").toString();
-        String value = script.get("value").toString();
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        String htmlTag = script.getString("tag");
+        String value = script.getString("value");
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
@@ -963,7 +1301,7 @@ public class SeleniumScripter {
         value = StringEscapeUtils.escapeHtml(value);
 
         // Fetch the element in which new tag/html element will be appended
-        WebElement element = driver.findElement(by(selector, name));
+        WebElement element = driver.findElement(by(script, name));
 
         String newElement = "<" + htmlTag + ">" + value + "</" + htmlTag + ">"; // The new element to inject
 
@@ -972,22 +1310,27 @@ public class SeleniumScripter {
         ((JavascriptExecutor) driver)
                 .executeScript("arguments[0].insertAdjacentHTML(\"afterBegin\", \"" + newElement + "\");",
                         element);
+        elementCache.invalidate(); // The injection may have replaced cached elements
     }
 
     /**
-     * Refresh the current page using JS.
+     * Refresh the current page using JS, then wait for it to go network-idle.
+     * @param script the js-refresh subscript operation
+     * @throws ParseException occurs when an invalid timeout or quiet window is specified
      */
-    private void jsRefreshOperation() {
+    private void jsRefreshOperation(Instruction script) throws ParseException {
         LOG.error("The `jsBack` operation is deprecated and will eventually be removed in favor of the `window reload` operation!");
         JavascriptExecutor js = (JavascriptExecutor) driver;
         try {
             LOG.info("Refreshing the page!");
 
             //Calling executeAsyncScript() method to go back a page
+            NetworkIdle.markNavigation(driver);
+            elementCache.invalidate();
             js.executeScript("location.reload();");
 
             //waits for page to load
-            js.executeAsyncScript("window.setTimeout(arguments[arguments.length - 1], 10000);");
+            awaitNavigation(script);
         } catch (NoSuchElementException e) {
             LOG.info("Refresh failed!");
         }
@@ -995,107 +1338,184 @@ public class SeleniumScripter {
 
     /**
      * Send keyboard input to specified web element.
+     *      The `mode` field selects how the value is entered: `type` (default) slow-types one character every `delay`
+     *      milliseconds then sleeps for `postDelay` milliseconds, `bulk` sends the whole value at once and `script` sets
+     *      it through an in-page input event. The faster modes return as soon as the field holds the value, or the
+     *      `until` condition holds, with `postDelay` as the upper bound.
      * @param script the send-key subscript operation
      * @throws InterruptedException occurs when  an interruption signal is raised after sleeping
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void keysOperation(Map<String, Object> script) throws InterruptedException, ParseException {
-        validate(script, new String[] {"selector", "name", "value"}); // Validation
-
+    private void keysOperation(Instruction script) throws InterruptedException, ParseException {
         // Get all of the instruction parameters or field defaults
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        String input = script.get("value").toString();
-        int charDelay = Integer.parseInt(script.getOrDefault("delay", 300).toString());
-        int postInputDelay = Integer.parseInt(script.getOrDefault("postDelay", 5000).toString());
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        String input = script.getString("value");
+        String mode = script.getString("mode", "type").toLowerCase();
+        int charDelay = script.getInt("delay", 300);
+        int postInputDelay = script.getInt("postDelay", 5000);
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
-        // Fetch the input field
-        WebElement element = driver.findElement(by(selector, name));
-
-        LOG.info("Sending `" + input + "` to element with " + selector + " of `" + name + "`!");
-
-        // Determine the correct
+        // Map the keyword inputs to their keys, else resolve the value to enter
+        Keys key = null;
         switch (input) {
             case "{enter}":
-                element.sendKeys(Keys.ENTER);
+                key = Keys.ENTER;
                 break;
             case "{return}":
-                element.sendKeys(Keys.RETURN);
+                key = Keys.RETURN;
                 break;
             case "{backspace}":
-                element.sendKeys(Keys.BACK_SPACE);
+                key = Keys.BACK_SPACE;
                 break;
             case "{down}":
-                element.sendKeys(Keys.ARROW_DOWN);
+                key = Keys.ARROW_DOWN;
                 break;
-            default:  // If input is none of the keywords then slow-type the input
-                // Substitute any specified script-variable-values
-                input = resolveExpressionValue(input);
-
-                // Clear the input field
-                element.clear();
+            default:  // If input is none of the keywords then enter the input
+                if(!mode.equals("type") && !mode.equals("bulk") && !mode.equals("script")) {
+                    throw new ParseException("Invalid keys `mode`: `" + mode + "`", 0);
+                }
+                break;
+        }
+        final Keys keyword = key;
+        final String value = keyword == null ? resolveExpressionValue(input) : input;
+        String previousUrl = urlBeforeAction(script);
+
+        LOG.info("Sending `" + input + "` to element with " + selector + " of `" + name + "`!");
 
-                // Slow-type each character
-                for (char s : input.toCharArray()) {
+        // Fetch the input field and make the first change to it: send the key, set the value through the native setter
+        //      and fire the events a user would, or clear the field ready to type into
+        WebElement element = elementCache.use(driver, by(script, name), (e) -> {
+            if(keyword != null) {
+                e.sendKeys(keyword);
+            } else if(mode.equals("script")) {
+                ((JavascriptExecutor) driver).executeScript(SET_VALUE_SCRIPT, e, value);
+            } else {
+                e.clear();
+            }
+            return e;
+        });
+        if(keyword != null) {
+            elementCache.invalidate(); // The key may have submitted a form or changed the page
+            return;
+        }
+
+        switch (mode) {
+            case "type": // Slow-type each character
+                for (char s : value.toCharArray()) {
                     element.sendKeys(String.valueOf(s));
-                    Thread.sleep(charDelay);
+                    metrics.sleep(charDelay);
                 }
-                Thread.sleep(postInputDelay); // Wait some more
+                break;
+            case "bulk": // Send the whole value at once
+                element.sendKeys(value);
                 break;
         }
+
+        elementCache.invalidate(); // Input handlers may have changed the page, e.g. to show suggestions
+
+        // Slow-typing waits out the post-delay unless told otherwise, the faster modes wait for the value to settle
+        awaitPostAction(script,
+                mode.equals("type") ? null : (d) -> value.equals(element.getAttribute("value")),
+                postInputDelay,
+                element,
+                previousUrl);
     }
 
     /**
-     * Wait for the web page ready-state to change to `complete`.
+     * Wait for the web page ready-state to change to `complete`, or for the `ready` condition if one is given.
      * @param script the load-page subscript operation
      * @throws ParseException occurs if an invalid timeout value was specified
      */
-    private void loadPageOperation(Map<String, Object> script) throws ParseException {
+    private void loadPageOperation(Instruction script) throws ParseException {
+        if(script.has("ready")) {
+            awaitReady(script, "complete");
+            return;
+        }
+
         // Fetch or fill the default timeout value
-        long timeout = parseNumber(script.getOrDefault("timeout", defaultWaitTimeout).toString()).longValue();
+        long timeout = script.getLong("timeout", defaultWaitTimeout);
 
         // Wait for page-state
         LOG.info("Waiting for page to fully load within " + timeout + " seconds: " + driver.getCurrentUrl());
-        new WebDriverWait(driver, timeout)
+        metrics.newWait(driver, timeout)
                 .until((driver) -> ((JavascriptExecutor) driver).executeScript("return document.readyState")
                         .toString()
                         .equals("complete"));
+
+        // Optionally wait for any requests made by the loaded page to finish too
+        if(script.getString("until", "complete").equalsIgnoreCase("networkidle")
+                && !awaitNetworkIdle(TimeUnit.SECONDS.toMillis(timeout), script.getLong("quiet", defaultNetworkQuietTime))) {
+            throw new TimeoutException("The page did not go network-idle within " + timeout + " seconds!");
+        }
+    }
+
+    /**
+     * Wait for the page to have had no XHR or fetch requests pending for a quiet window
+     * @param timeoutMillis the longest time to wait, in milliseconds
+     * @param quietMillis the time no request must have been pending for, in milliseconds
+     * @return true if the page went idle, false if the timeout ran out first
+     */
+    private boolean awaitNetworkIdle(long timeoutMillis, long quietMillis) {
+        long start = System.nanoTime();
+        try {
+            metrics.newWait(driver, 0)
+                    .withTimeout(Duration.ofMillis(timeoutMillis))
+                    .pollingEvery(Duration.ofMillis(100))
+                    .ignoring(JavascriptException.class) // Thrown while the page is navigating
+                    .until(NetworkIdle.condition(quietMillis));
+            LOG.info("Page went network-idle after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            return true;
+        } catch (TimeoutException e) {
+            LOG.warn("Page did not go network-idle within " + timeoutMillis + "ms!");
+            return false;
+        }
+    }
+
+    /**
+     * Wait for the page that a navigation leads to, replacing the fixed wait used after `back` and `reload`
+     * @param script the navigating instruction, whose `timeout` (seconds) and `quiet` (milliseconds) fields are used
+     * @throws ParseException occurs when an invalid timeout or quiet window is specified
+     */
+    private void awaitNavigation(Instruction script) throws ParseException {
+        long timeout = script.getLong("timeout", defaultNavigationTimeout);
+        awaitNetworkIdle(TimeUnit.SECONDS.toMillis(timeout), script.getLong("quiet", defaultNetworkQuietTime));
     }
 
     /**
      * @param script the load-page subscript operation
      * @throws ParseException occurs if an invalid timeout value was specified
      */
-    private void loadWindowOperation(Map<String, Object> script) throws ParseException {
+    private void loadWindowOperation(Instruction script) throws ParseException {
         String selector = "";
         String name = "";
-        String condition = script.get("condition").toString().toLowerCase();
+        String condition = script.getString("condition").toLowerCase();
         WebElement element;
 
         if (condition.equals("load")){
-            validate(script, new String[] {"selector", "name", "condition"});
-            selector = script.get("selector").toString();
-            name = script.get("name").toString();
-        } else {
-            validate(script, new String[] {"condition"});
+            script.validate("selector", "name");
+            selector = script.getString("selector");
+            name = script.getString("name");
         }
         String originalWindow = driver.getWindowHandle();
 //        assert driver.getWindowHandles().size() == 1;
 
+        // Every condition leaves the current page or window
+        elementCache.invalidate();
+
         switch (condition) {
             case "load":
-                element = driver.findElement(by(selector, name));
+                element = driver.findElement(by(script, name));
                 performLoadOperation(selector, name, originalWindow, element);
                 break;
             case "back":
-                performBackOperation(originalWindow);
-                break;
+                performBackOperation(originalWindow, script);
+                return;
             case "reload":
-                performReloadOperation(originalWindow);
-                break;
+                performReloadOperation(originalWindow, script);
+                return;
             case "close":
                 performCloseOperation(originalWindow);
                 break;
@@ -1105,12 +1525,17 @@ public class SeleniumScripter {
             default:
                 throw new ParseException("Invalid `Condition` option: " + condition, 0);
         }
+
+        // Optionally wait for any requests made by the new window's page to finish too
+        if(script.getString("until", "complete").equalsIgnoreCase("networkidle")) {
+            awaitNavigation(script);
+        }
     }
     private void performLoadOperation(String selector, String name, String originalWindow, WebElement element) {
         LOG.info("Clicking element with " + selector + " of `" + name + "`" + " to load.");
         element.click();
 
-        new WebDriverWait(driver, 30)
+        metrics.newWait(driver, 30)
                 .until(numberOfWindowsToBe(2));
 
         for (String windowHandle : driver.getWindowHandles()) {
@@ -1120,32 +1545,35 @@ public class SeleniumScripter {
             }
         }
         LOG.info("Waiting for page to fully load within 30 seconds: " + driver.getCurrentUrl());
-        new WebDriverWait(driver, 30)
+        metrics.newWait(driver, 30)
                 .until((driver) -> ((JavascriptExecutor) driver).executeScript("return document.readyState")
                         .toString()
                         .equals("complete"));
     }
 
-    private void performBackOperation(String originalWindow) {
+    private void performBackOperation(String originalWindow, Instruction script) throws ParseException {
         driver.switchTo().window(originalWindow);
         JavascriptExecutor js = (JavascriptExecutor) driver;
         try {
             LOG.info("Going to the last page...");
+            NetworkIdle.markNavigation(driver);
+            elementCache.invalidate();
             js.executeScript("window.history.back();");
-            js.executeAsyncScript("window.setTimeout(arguments[arguments.length - 1], 10000);");
+            awaitNavigation(script);
             LOG.info("Page refreshed!");
         } catch (org.openqa.selenium.NoSuchElementException e) {
             LOG.error("Back operation failed!");
         }
     }
 
-    private void performReloadOperation(String originalWindow) {
+    private void performReloadOperation(String originalWindow, Instruction script) throws ParseException {
         driver.switchTo().window(originalWindow);
         JavascriptExecutor j = (JavascriptExecutor) driver;
         try {
             LOG.info("Refreshing the page!");
+            NetworkIdle.markNavigation(driver);
             j.executeScript("location.reload();");
-            j.executeAsyncScript("window.setTimeout(arguments[arguments.length - 1], 10000);");
+            awaitNavigation(script);
         } catch (NoSuchElementException e) {
             LOG.info("Refresh failed!");
         }
@@ -1153,7 +1581,7 @@ public class SeleniumScripter {
 
     private void performCloseOperation(String originalWindow) {
         try {
-            new WebDriverWait(driver, 30)
+            metrics.newWait(driver, 30)
                     .until(numberOfWindowsToBe(2));
 
             for (String windowHandle : driver.getWindowHandles()) {
@@ -1162,7 +1590,7 @@ public class SeleniumScripter {
                     driver.close();
                     LOG.info("Switching to original page!");
                     driver.switchTo().window(windowHandle);
-                    new WebDriverWait(driver, 30)
+                    metrics.newWait(driver, 30)
                             .until((driver) -> ((JavascriptExecutor) driver).executeScript("return document.readyState")
                                     .toString()
                                     .equals("complete"));
@@ -1176,14 +1604,14 @@ public class SeleniumScripter {
 
     private void performSwitchOperation(String originalWindow) {
         try {
-            new WebDriverWait(driver, 30)
+            metrics.newWait(driver, 30)
                     .until(numberOfWindowsToBe(2));
 
             for (String windowHandle : driver.getWindowHandles()) {
                 if (!originalWindow.contentEquals(windowHandle)) {
                     LOG.info("Switching to original page! Last page was not closed!");
                     driver.switchTo().window(windowHandle);
-                    new WebDriverWait(driver, 30)
+                    metrics.newWait(driver, 30)
                             .until((driver) -> ((JavascriptExecutor) driver).executeScript("return document.readyState")
                                     .toString()
                                     .equals("complete"));
@@ -1197,30 +1625,29 @@ public class SeleniumScripter {
     /**
      * Clicking the google reCaptcha button
      */
-    private void reCaptchaClick(Map<String, Object> script) throws ParseException,
+    private void reCaptchaClick(Instruction script) throws ParseException,
             NoSuchElementException{
 
-        validate(script, new String[] {"selector", "name"}); // Validation
-
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        long delay = Long.parseLong(script.getOrDefault("delay", 0).toString());
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        long delay = script.getLong("delay", 0);
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
         // Fetch the iframe to switch into
-        WebElement element = driver.findElement(by(selector, name));
+        WebElement element = driver.findElement(by(script, name));
 
         // Scroll the element into view
         ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView();", element);
 
         // Switch into the iframe and click on the captcha
         LOG.info("clicking reCaptchaClick element with iframe " + selector + " of `" + name + "`!");
-        new WebDriverWait(driver, 50).until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(element));
-        new WebDriverWait(driver, 30).until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(By.xpath("//iframe[starts-with(@name, 'a-') and starts-with(@src, 'https://www.google.com/recaptcha')]")));
-        new WebDriverWait(driver, 50).until(ExpectedConditions.elementToBeClickable(By.cssSelector("div.recaptcha-checkbox-border"))).click();
+        elementCache.invalidate(); // Handles from the parent document cannot be used inside the frame
+        metrics.newWait(driver, 50).until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(element));
+        metrics.newWait(driver, 30).until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(By.xpath("//iframe[starts-with(@name, 'a-') and starts-with(@src, 'https://www.google.com/recaptcha')]")));
+        metrics.newWait(driver, 50).until(ExpectedConditions.elementToBeClickable(By.cssSelector("div.recaptcha-checkbox-border"))).click();
 
     }
 
@@ -1228,31 +1655,109 @@ public class SeleniumScripter {
      * Restores the browser to the original URL.
      * @param script the restore subscript operation
      */
-    private void restoreOperation(Map<String, Object> script) throws ParseException {
-        String url = script.getOrDefault("url", this.url).toString();
+    private void restoreOperation(Instruction script) throws ParseException {
+        String url = script.getString("url", this.url);
         url = resolveExpressionValue(url);
 
         LOG.info("Restoring driver to url -> " + url);
+        navigate(script, url);
+    }
+
+    /**
+     * Navigate to a page and wait for it to be ready.
+     *      With the `normal` page-load strategy, the navigation itself waits for every subresource to load. With the
+     *      `eager` or `none` strategy, it returns as soon as the DOM is built or the request is sent, and the instruction's
+     *      `ready` condition is waited for instead (`domcontentloaded` by default).
+     * @param script the navigating instruction
+     * @param url the URL to navigate to
+     * @throws ParseException occurs when an invalid `ready` condition is specified or its parameters are missing
+     * @throws TimeoutException occurs when the page is not ready within the `timeout`
+     */
+    private void navigate(Instruction script, String url) throws ParseException {
+        elementCache.invalidate();
+        boolean awaitReady = script.has("ready") || !PageLoadStrategy.NORMAL.toString().equals(pageLoadStrategy());
+        if(awaitReady) {
+            NetworkIdle.markNavigationQuietly(driver); // So that the condition is not met by the page being left
+        }
+
         driver.get(url);
+
+        if(awaitReady) {
+            awaitReady(script, "domcontentloaded");
+        }
     }
 
     /**
-     * Convert an instruction block to a tree map.
-     * @param hashMap the original instruction block
-     * @param <K> the generic key type
-     * @param <V> the generic value type
-     * @return the instruction as a tree map
+     * Wait for the current page to be ready.
+     *      The `ready` field is one of `domcontentloaded`, `complete`, `networkidle` (with an optional `quiet` window in
+     *      milliseconds) or any of the `wait` operation's element conditions with the `selector` and `name` fields.
+     *      It can also be a block with a `condition` field and the condition's own `selector`, `name`, `value`,
+     *      `quiet` and `timeout` fields.
+     * @param script the instruction with the `ready` condition
+     * @param defaultCondition the condition to wait for if the instruction has no `ready` field
+     * @throws ParseException occurs when an invalid condition is specified or its parameters are missing
+     * @throws TimeoutException occurs when the page is not ready within the `timeout`, in seconds
      */
-    private static <K, V> Map<K, V> convertToTreeMap(Map<K, V> hashMap)
-    {
-        // Create a new TreeMap
-        Map<K, V> treeMap = new TreeMap<>();
+    private void awaitReady(Instruction script, String defaultCondition) throws ParseException {
+        long timeout = readyTimeout(script);
+        ExpectedCondition<?> condition = readyCondition(script, defaultCondition);
+
+        LOG.info("Waiting up to " + timeout + " seconds for the page to be ready...");
+        long start = System.nanoTime();
+        metrics.newWait(driver, 0)
+                .withTimeout(Duration.ofSeconds(timeout))
+                .pollingEvery(Duration.ofMillis(50))
+                .ignoring(JavascriptException.class) // Thrown while the page is navigating
+                .until(condition);
+        LOG.info("Page was ready after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
 
-        // Pass the hashMap to putAll() method
-        treeMap.putAll(hashMap);
+    /**
+     * @param script the instruction with the `ready` condition
+     * @param defaultCondition the condition to use if the instruction has no `ready` field
+     * @return the condition which holds once the current page is ready
+     * @throws ParseException occurs when an invalid condition is specified or its parameters are missing
+     */
+    private ExpectedCondition<?> readyCondition(Instruction script, String defaultCondition) throws ParseException {
+        Instruction ready = script.getSection("ready") != null ? script.getSection("ready") : script;
+        String conditionStr = ready != script
+                ? ready.getString("condition", "located").toLowerCase()
+                : script.getString("ready", defaultCondition).toLowerCase();
 
-        // Return the TreeMap
-        return treeMap;
+        switch (conditionStr) {
+            case "domcontentloaded":
+                return NetworkIdle.readyState("interactive");
+            case "complete":
+                return NetworkIdle.readyState("complete");
+            case "networkidle":
+                return NetworkIdle.condition(ready.getLong("quiet", defaultNetworkQuietTime));
+            default:
+                String name = ready.has("name") ? resolveExpressionValue(ready.getString("name")) : null;
+                return ExpectedConditions.and(NetworkIdle.navigated(), buildCondition(ready, conditionStr, name));
+        }
+    }
+
+    /**
+     * @param script the instruction with the `ready` condition
+     * @return the time in seconds to wait for the `ready` condition
+     * @throws ParseException occurs when an invalid timeout is specified
+     */
+    private long readyTimeout(Instruction script) throws ParseException {
+        Instruction ready = script.getSection("ready") != null ? script.getSection("ready") : script;
+        return ready.getLong("timeout", script.getLong("timeout", defaultWaitTimeout));
+    }
+
+    /**
+     * @return the page-load strategy the driver session was created with, `normal` if it is unknown
+     */
+    private String pageLoadStrategy() {
+        if(driver instanceof HasCapabilities) {
+            Object strategy = ((HasCapabilities) driver).getCapabilities().getCapability(CapabilityType.PAGE_LOAD_STRATEGY);
+            if(strategy != null) {
+                return strategy.toString();
+            }
+        }
+        return PageLoadStrategy.NORMAL.toString();
     }
 
     /**
@@ -1265,18 +1770,156 @@ public class SeleniumScripter {
         new File(outputPath).mkdirs();
     }
 
+    /**
+     * Set the writer that encodes and writes screenshots in the background.
+     *      Writers can be shared between scripters to bound the total number of screenshots in flight.
+     * @param writer the screenshot writer
+     */
+    public void setScreenshotWriter(ScreenshotWriter writer) {
+        this.screenshotWriter = writer;
+    }
+
+    /**
+     * Set the registry that records operation timings and WebDriver command counts.
+     *      Registries can be shared between scripters to aggregate the metrics of a whole crawl.
+     * @param metrics the metrics registry
+     */
+    public void setMetrics(ScriptMetrics metrics) {
+        this.metrics = metrics;
+        metrics.instrument(driver);
+    }
+
+    /**
+     * @return the registry recording this scripter's operation timings and WebDriver command counts
+     */
+    public ScriptMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the number of bytes of snapshot content to keep in memory before the oldest snapshots are spilled to disk
+     * @param bytes the memory budget in bytes
+     */
+    public void setSnapshotMemoryBudget(long bytes) {
+        snapshots.setMemoryBudget(bytes);
+    }
+
+    /**
+     * Set the directory that spilled snapshot contents are written to
+     * @param directory the spill directory, or null for the system temp directory
+     */
+    public void setSnapshotSpillDirectory(File directory) {
+        snapshots.setDirectory(directory);
+    }
+
+    /**
+     * Enable checkpoints of `for` and `loop` progress, the script variables, the capture lists and the snapshots taken,
+     *      written to a directory after every completed iteration, or at most once per checkpoint interval if one is set.
+     *      The checkpoint is deleted once the script finishes.
+     * @param directory the checkpoint directory, or null to disable checkpoints
+     * @throws IOException occurs when the directory fails to be created
+     */
+    public void setCheckpointDirectory(File directory) throws IOException {
+        checkpointer = directory == null ? null : new Checkpointer(directory, scriptVariables, captureLists, snapshots);
+    }
+
+    /**
+     * Set the least amount of time between two checkpoints.
+     *      By default a checkpoint is written after every iteration, so that a crash only costs the iteration in
+     *      progress. Snapshots and appended capture lists are only logged as they grow, but the script variables are
+     *      written out whole each time, so scripts with large variables and quick iterations may trade a longer
+     *      interval for less I/O: a crash then loses the iterations completed within the interval as well.
+     * @param millis the checkpoint interval in milliseconds, or 0 (the default) to checkpoint after every iteration
+     */
+    public void setCheckpointInterval(long millis) {
+        if(checkpointer == null) {
+            throw new IllegalStateException("No checkpoint directory was set!");
+        }
+        checkpointer.setInterval(millis);
+    }
+
+    /**
+     * Resume the next script run from the last checkpoint in the checkpoint directory.
+     *      The script is replayed from the start to restore the browser's state, but every checkpointed loop skips the
+     *      iterations it had already completed, and the checkpointed variables, capture lists and snapshots are restored
+     *      once the innermost checkpointed loop is reached.
+     * @return true if a checkpoint was found, false if the script will run from scratch
+     * @throws IOException occurs when the checkpoint fails to read
+     */
+    public boolean resumeFromCheckpoint() throws IOException {
+        if(checkpointer == null) {
+            throw new IllegalStateException("No checkpoint directory was set!");
+        }
+        return checkpointer.load();
+    }
+
+    /**
+     * Set the number of elements a capture list holds in memory before its oldest elements are spilled to the
+     *      snapshot spill directory. Only lists which are appended to can spill.
+     * @param elements the spill threshold, or {@link Integer#MAX_VALUE} to never spill
+     */
+    public void setCaptureListSpillThreshold(int elements) {
+        this.captureListSpillThreshold = elements;
+        for(List<?> list : captureLists.values()) {
+            if(list instanceof CaptureList) {
+                ((CaptureList<?>) list).setSpillThreshold(elements);
+            }
+        }
+    }
+
+    /**
+     * Toggle snapshot deduplication. When enabled, snapshots with identical content share a single stored body but
+     *      keep their own names. The hit and miss counters are available from the {@link SnapshotStore}.
+     * @param deduplicate true to deduplicate snapshot content
+     */
+    public void setSnapshotDeduplication(boolean deduplicate) {
+        snapshots.setDeduplicate(deduplicate);
+    }
+
+    /**
+     * Toggle snapshot compression. When enabled, snapshot content is Deflate compressed as it is taken and only
+     *      decompressed when it is read.
+     * @param compress true to compress snapshot content
+     */
+    public void setSnapshotCompression(boolean compress) {
+        snapshots.setCompression(compress);
+    }
+
     /**
      * Take a screenshot (rasterize image) of the current page.
+     *      The `strategy` field selects how the page is captured:
+     *          `scroll` (default) scrolls through the page, pausing `scrollDelay` milliseconds (default 100) per viewport;
+     *          `viewport` captures only the visible viewport;
+     *          `element` captures only the element matched by `selector` and `name`;
+     *          `devtools` captures the full page in a single Chrome DevTools call, without scrolling, falling back to
+     *              `scroll` on other browsers.
+     *      The image is encoded and written in the background by the screenshot writer.
      * @param script the screenshot subscript operation
      * @throws IOException occurs when a screenshot image fails to write to persistence
      * @throws ParseException occurs when the tokens failed to parse
+     * @throws InterruptedException occurs when the process is interrupted while waiting for the screenshot queue
      */
     public void screenshotOperation(Map<String, Object> script) throws IOException, ParseException {
-        validate(script, "targetdir"); // Validation
+        try {
+            screenshotOperation(compileOperation("screenshot", script));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the screenshot queue!");
+        }
+    }
 
+    /**
+     * Take a screenshot of the current page.
+     * @param script the compiled screenshot subscript operation
+     * @throws IOException occurs when a screenshot image fails to write to persistence
+     * @throws ParseException occurs when the tokens failed to parse
+     * @throws InterruptedException occurs when the process is interrupted while waiting for the screenshot queue
+     * @see #screenshotOperation(Map)
+     */
+    public void screenshotOperation(Instruction script) throws IOException, ParseException, InterruptedException {
         // Get operation parameters
-        String directory = outputPath + (outputPath.endsWith("/") ? "" : "/") + script.get("targetdir").toString();
-        String token = script.getOrDefault("tag", "screenshot").toString();
+        String directory = outputPath + (outputPath.endsWith("/") ? "" : "/") + script.getString("targetdir");
+        String token = script.getString("tag", "screenshot");
 
         // Create the filepath
         String dirPath = directory + (directory.endsWith("/") ? "" : "/");
@@ -1286,15 +1929,37 @@ public class SeleniumScripter {
         LOG.info("Taking screenshot and saving to: " + filePath);
 
 
-        // Take the screenshot
-        Screenshot s = new AShot().shootingStrategy(ShootingStrategies.viewportPasting(100)).takeScreenshot(driver);
-
-        //This write operation is convoluted due to Java being crap and not writing files properly in DBFS the ImageIO way:
-        File tempFile = Files.createTempFile(null, null).toFile();
+        String strategy = script.getString("strategy", "scroll").toLowerCase();
+        int scrollDelay = script.getInt("scrollDelay", 100);
+        if(strategy.equals("devtools") && !DevTools.isSupported(driver)) {
+            LOG.warn("The `devtools` screenshot strategy requires a Chrome driver, falling back to `scroll`!");
+            strategy = "scroll";
+        }
 
-        ImageIO.write(s.getImage(), "PNG", tempFile);
-        File dest = new File(filePath);
-        FileUtils.copyFile(tempFile, dest);
+        // Take the screenshot, then hand it off to be encoded and written while the script moves on
+        long start = System.nanoTime();
+        switch (strategy) {
+            case "scroll":
+                Screenshot scrolled = new AShot().shootingStrategy(ShootingStrategies.viewportPasting(scrollDelay)).takeScreenshot(driver);
+                screenshotWriter.write(scrolled.getImage(), new File(filePath).toPath());
+                break;
+            case "viewport":
+                Screenshot viewport = new AShot().shootingStrategy(ShootingStrategies.simple()).takeScreenshot(driver);
+                screenshotWriter.write(viewport.getImage(), new File(filePath).toPath());
+                break;
+            case "element":
+                script.validate("selector", "name");
+                WebElement element = driver.findElement(by(script, resolveExpressionValue(script.getString("name"))));
+                Screenshot cropped = new AShot().shootingStrategy(ShootingStrategies.viewportPasting(scrollDelay)).takeScreenshot(driver, element);
+                screenshotWriter.write(cropped.getImage(), new File(filePath).toPath());
+                break;
+            case "devtools":
+                screenshotWriter.write(DevTools.captureFullPage(driver), new File(filePath).toPath());
+                break;
+            default:
+                throw new ParseException("Invalid screenshot strategy: `" + strategy + "`", 0);
+        }
+        LOG.info("Captured `" + strategy + "` screenshot in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
     }
 
     /**
@@ -1306,30 +1971,40 @@ public class SeleniumScripter {
      * @throws IOException occurs when the snapshots failed to write to persistence
      */
     public void dumpStackOperation(Map<String, Object> script) throws ParseException, IOException {
+        dumpStackOperation(compileOperation("dumpstack", script));
+    }
+
+    /**
+     * DEV TOOL
+     * Dumps the stack of snapshots to a directory.
+     * @param script the compiled dumpscript subscript operation
+     * @throws ParseException occurs when the tokens failed to parse
+     * @throws IOException occurs when the snapshots failed to write to persistence
+     * @see #dumpStackOperation(Map)
+     */
+    public void dumpStackOperation(Instruction script) throws ParseException, IOException {
         if(!DEV_MODE) {
             throw new NotActiveException("The `dumpstack` operation is for development purposes only and not available in production!");
         }
 
-        validate(script, "targetdir"); // Validation
+        script.validate("targetdir"); // Validation
 
         // Get operation parameters
-        String directory = outputPath + (outputPath.endsWith("/") ? "" : "/") + script.get("targetdir").toString();
+        String directory = outputPath + (outputPath.endsWith("/") ? "" : "/") + script.getString("targetdir");
 
         // Create the directory
         new File(directory).mkdir();
 
         for (int i = 0; i < snapshots.size(); ++i) {
             String filepath = directory + i + "-snapshot.html";
-            String content = snapshots.get(i).content;
 
-            // Create the file
+            // Create the file and stream the content into it
             File file = new File(filepath);
             file.createNewFile();
 
-
-            FileWriter writer = new FileWriter(filepath);
-            writer.write(content);
-            writer.close();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                snapshots.get(i).writeContentTo(out);
+            }
         }
     }
 
@@ -1338,20 +2013,18 @@ public class SeleniumScripter {
      * @param script the select subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void selectOperation(Map<String, Object> script) throws ParseException {
-        validate(script, new String[] {"selector", "name", "selectBy", "value"}); // Validation
-
+    private void selectOperation(Instruction script) throws ParseException {
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
-        String selectBy = script.get("selectBy").toString();
-        String value = script.get("value").toString();
+        String selector = script.getString("selector");
+        String name = script.getString("name");
+        String selectBy = script.getString("selectBy");
+        String value = script.getString("value");
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
 
         // Fetch the element to-be-selected and convert it to a serialized Selection Web Element
-        Select selectElement = new Select(driver.findElement(by(selector, name)));
+        Select selectElement = elementCache.use(driver, by(script, name), Select::new);
 
         LOG.info("Selecting option in element with " + selector + " of `" + name + "` by `" + selectBy + "`...");
 
@@ -1371,6 +2044,7 @@ public class SeleniumScripter {
             default:
                 throw new ParseException("Invalid `selectBy` option: " + selectBy, 0);
         }
+        elementCache.invalidate(); // Change handlers may have changed the page
     }
 
     /**
@@ -1378,12 +2052,10 @@ public class SeleniumScripter {
      * @param script the set subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void setOperation(Map<String, Object> script) throws ParseException, NotActiveException {
-        validate(script, new String[] {"variable", "value"}); // Validation
-
-        String variable = script.get("variable").toString();
+    private void setOperation(Instruction script) throws ParseException, NotActiveException {
+        String variable = script.getString("variable");
         Object value = script.get("value");
-        String type = script.getOrDefault("type", "literal").toString().toLowerCase();
+        String type = script.getString("type", "literal").toLowerCase();
 
         LOG.info("Instantiating " + variable + " with " + type + " value: `" + value + "`");
 
@@ -1392,13 +2064,12 @@ public class SeleniumScripter {
                 scriptVariables.put(variable, value.toString());
                 break;
             case "element":
-                Map<String, Object> selectorParams = (Map<String, Object>) value;
-                validate(selectorParams, new String[] {"selector", "name"});
+                Instruction selectorParams = script.getSection("value");
+                selectorParams.validate("selector", "name");
 
-                String selector = selectorParams.get("selector").toString();
-                String name = selectorParams.get("name").toString();
+                String name = selectorParams.getString("name");
 
-                WebElement element = driver.findElement(by(selector, name));
+                WebElement element = driver.findElement(by(selectorParams, name));
                 String xpath = getElementXPath(element);
                 scriptVariables.put(variable, xpath);
             default:
@@ -1408,32 +2079,86 @@ public class SeleniumScripter {
 
     /**
      * Take a "snapshot" of the current page HTML and store it on the snapshots stack.
+     *      With the `selector` and `name` fields, only the `outerHTML` of the first matching element is stored, or with
+     *      `all: true` the `outerHTML` of every matching element, each as its own snapshot.
+     * @param script the snapshot subscript operation
+     * @throws ParseException occurs when an invalid selector is specified
+     * @throws NoSuchElementException occurs when no element matches the `selector` and `name`, unless `all` is set
      */
-    private void snapshotOperation(Map<String, Object> script) throws ParseException {
-        LOG.info("Taking snapshot of " + driver.getCurrentUrl());
-        String u = UUID.randomUUID().toString();
-        String prefix = (String) script.getOrDefault("prefix", "");
-        Snapshot s = new Snapshot();
-        s.setName(prefix+u);
-        s.setContent(driver.getPageSource());
-        snapshots.add(s);
+    private void snapshotOperation(Instruction script) throws ParseException {
+        String prefix = script.getString("prefix", "");
+        if (script.has("name")) {
+            script.validate("selector");
+            String name = resolveExpressionValue(script.getString("name"));
+            List<WebElement> elements = script.getBoolean("all", false)
+                    ? driver.findElements(by(script, name))
+                    : Collections.singletonList(driver.findElement(by(script, name)));
+            LOG.info("Taking snapshot of " + elements.size() + " elements matching `" + name + "`");
+            if (elements.isEmpty()) {
+                LOG.warn("No elements matched `" + name + "`, no snapshot was taken!");
+            } else {
+                for (Object html : (List<?>) ((JavascriptExecutor) driver).executeScript(OUTER_HTML_SCRIPT, elements)) {
+                    addSnapshot(prefix, html.toString());
+                }
+            }
+        } else {
+            LOG.info("Taking snapshot of " + driver.getCurrentUrl());
+            addSnapshot(prefix, driver.getPageSource());
+        }
 
-        // TODO: Break up raw calls to script.get()
-        if (script.containsKey("capturedlabel")) {
-            WebElement element = driver.findElement(by(script.get("selector").toString(), script.get("capturedlabel").toString()));
+        if (script.has("capturedlabel")) {
+            WebElement element = driver.findElement(by(script.getString("selector"), script.getString("capturedlabel")));
             capturedLabel.add(element.getText());
         }
 
     }
 
+    private void addSnapshot(String prefix, String content) {
+        Snapshot s = new Snapshot();
+        s.setName(prefix + UUID.randomUUID().toString());
+        s.setContent(content);
+        snapshots.add(s);
+    }
+
+    /**
+     * Compile a single operation block, for the public operations which still accept raw maps
+     * @param name the block name
+     * @param script the raw operation block
+     * @return the compiled instruction
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     */
+    private static Instruction compileOperation(String name, Map<String, Object> script) throws ParseException {
+        Instruction instruction = new ScriptCompiler().compile(Collections.singletonMap(name, script)).getInstructions().get(0);
+        if(instruction.getError() != null) {
+            throw new ParseException(instruction.getError(), 0);
+        }
+        return instruction;
+    }
+
     /**
      * Return the snapshots stack.
+     *      Snapshots beyond the memory budget have their content spilled to disk and read back by
+     *      {@link Snapshot#getContent()}; cast the list to a {@link SnapshotStore} to delete the spill files early.
      * @return List the list of paths to snapshot images taken
      */
     public final List<Snapshot> getSnapshots(){
         return snapshots;
     }
 
+    /**
+     * @return the number of element lookups served by a cached handle, each one a `findElement` round trip saved
+     */
+    public long getElementCacheHits() {
+        return elementCache.getHits();
+    }
+
+    /**
+     * @return the number of element lookups which had to ask the browser, including those whose cached handle was stale
+     */
+    public long getElementCacheMisses() {
+        return elementCache.getMisses();
+    }
+
     /**
      * Process a logical `try` block.
      * @param script if-block subscript operation
@@ -1442,16 +2167,14 @@ public class SeleniumScripter {
      * @throws IOException occurs when a snapshot in a child-instruction fails to write to disk
      * @throws InterruptedException occurs when the process wakes up from a sleep event in a child-instruction
      */
-    private void tryOperation(Map<String, Object> script) throws ParseException,
+    private void tryOperation(Instruction script) throws ParseException,
             AttributeNotFoundException,
             IOException,
             InterruptedException,
             StopIteration {
-        validate(script, new String[] {"try", "catch", "expect"}); // Validation
-
         // Fetch the instruction blocks
-        List<Map<String, String>> tryBody = (List<Map<String, String>>) script.get("try");
-        List<Map<String, String>> catchBody = (List<Map<String, String>>) script.get("catch");
+        List<Instruction> tryBody = script.getBlock("try");
+        List<Instruction> catchBody = script.getBlock("catch");
         List<String> raw_expect = ((List<String>) script.get("expect"))
                 .stream()
                 .map(String::toLowerCase)
@@ -1476,6 +2199,190 @@ public class SeleniumScripter {
         }
     }
 
+    /**
+     * Set the driver factory used to create the extra driver sessions of the `parallel` operation.
+     * @param factory the driver factory
+     * @param browserType the type of browser to create, e.g. `BrowserType.CHROME`
+     */
+    public void setDriverFactory(DriverFactory factory, String browserType) {
+        this.driverFactory = factory;
+        this.browserType = browserType;
+    }
+
+    /**
+     * Set the pool that the `parallel` operation leases its driver sessions from.
+     *      When set, the pool is used instead of the driver factory.
+     * @param pool the driver pool
+     */
+    public void setDriverPool(DriverPool pool) {
+        this.driverPool = pool;
+    }
+
+    /**
+     * Run a subscript on every item of a capture list, or of a `forEach` element list, spreading the items across
+     *      several driver sessions. Each session runs on its own copy of the script variables, and the snapshots it
+     *      takes are pushed onto this scripter's snapshot stack in item order once every item has run.
+     *      As with `loop`, a failed item is logged and, when `exitOnError` is set (the default), no further items are
+     *      started; the snapshots of the items which did run are still merged and the script carries on.
+     * @param script the parallel subscript operation
+     * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
+     * @throws InterruptedException occurs when the process is interrupted while waiting for the sessions to finish
+     * @throws WebDriverException occurs when `failOnSessionError` is set and items were not run because their driver
+     *      sessions failed to start
+     */
+    private void parallelOperation(Instruction script) throws ParseException, InterruptedException {
+        // Fetch the items to iterate over
+        final List<?> items;
+        final String variableName;
+        Instruction forEachParams = script.getSection("forEach");
+        if(forEachParams != null) {
+            forEachParams.validate("selector", "name", "variable");
+            variableName = forEachParams.getString("variable");
+            items = getForEachXPaths(forEachParams);
+        } else {
+            script.validate("variable");
+            variableName = script.getString("variable");
+            List<?> list = captureLists.get(variableName);
+            if(list == null) {
+                LOG.info("No capturelist of that name found");
+                return;
+            }
+            items = list.subList(0, list.size()); // Ignore anything appended while the items run
+        }
+
+        CompiledScript subscript = masterScript.getSubscript(script.getString("subscript"));
+        if(subscript == null) {
+            throw new ParseException("No subscript named `" + script.getString("subscript") + "` was found!", 0);
+        }
+
+        // Fetch or fill the default parameters
+        int parallelism = script.getInt("parallelizm", script.getInt("parallelism", defaultParallelism));
+        String startUrl = resolveExpressionValue(script.getString("url", driver.getCurrentUrl()));
+        ParallelItems work = new ParallelItems(items,
+                variableName,
+                subscript,
+                script.getBoolean("exitOnError", true));
+
+        if(driverFactory == null && driverPool == null) {
+            LOG.warn("No driver factory or pool was set, running the `parallel` operation on the current driver!");
+            work.drain(this);
+        } else {
+            parallelism = Math.max(1, Math.min(parallelism, items.size()));
+            LOG.info("Running " + items.size() + " items over " + parallelism + " driver sessions...");
+
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            for (int i = 0; i < parallelism; ++i) {
+                executor.submit(() -> {
+                    RemoteWebDriver workerDriver = null;
+                    try {
+                        workerDriver = driverPool != null
+                                ? driverPool.lease()
+                                : driverFactory.generateDriver(browserType);
+                        workerDriver.get(startUrl);
+                        SeleniumScripter worker = new SeleniumScripter(workerDriver, this);
+                        work.workerStores.add(worker.snapshots);
+                        work.drain(worker);
+                    } catch (Exception e) {
+                        LOG.error("Caught the following exception while starting a parallel driver session:");
+                        e.printStackTrace();
+                        work.sessionFailure.compareAndSet(null, e);
+                    } finally {
+                        if(workerDriver != null && driverPool != null) {
+                            driverPool.release(workerDriver);
+                        } else if(workerDriver != null) {
+                            workerDriver.quit();
+                        }
+                    }
+                });
+            }
+
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+
+        // Merge the snapshots of every item back onto the stack, in item order
+        int skipped = 0;
+        for (int i = 0; i < items.size(); ++i) {
+            List<Snapshot> itemSnapshots = work.results.get(i);
+            if(itemSnapshots == null) {
+                ++skipped;
+            } else {
+                snapshots.addAll(itemSnapshots);
+            }
+        }
+
+        // The workers' snapshots now belong to this stack, and so do any segment files their content was spilled to
+        for (SnapshotStore workerStore : work.workerStores) {
+            snapshots.adoptSegments(workerStore);
+            workerStore.close();
+        }
+
+        if(skipped > 0) {
+            LOG.warn(skipped + " of " + items.size() + " items were not run by the `parallel` operation!");
+        }
+        if(work.aborted.get()) {
+            LOG.warn("Exiting `parallel` operation after an item failed!");
+        } else if(skipped > 0 && script.getBoolean("failOnSessionError", false)) {
+            throw new WebDriverException("The `parallel` operation failed to start the driver sessions for " + skipped
+                    + " of " + items.size() + " items!", work.sessionFailure.get());
+        }
+    }
+
+    /**
+     * The shared queue of items worked on by the driver sessions of a `parallel` operation.
+     */
+    private static final class ParallelItems {
+        private final List<?> items; // The items to run the subscript on
+        private final String variableName; // The script variable each item is stored in
+        private final CompiledScript subscript; // The subscript to run on each item
+        private final boolean exitOnError; // Stop taking new items once any item fails
+        private final AtomicInteger next = new AtomicInteger(); // The index of the next item to run
+        private final AtomicBoolean aborted = new AtomicBoolean(); // Set once an item fails with `exitOnError` on
+        private final AtomicReferenceArray<List<Snapshot>> results; // The snapshots taken by each item
+        private final AtomicReference<Exception> sessionFailure = new AtomicReference<>(); // The first session which failed to start
+        private final List<SnapshotStore> workerStores = Collections.synchronizedList(new ArrayList<>()); // The stacks of the worker sessions
+
+        private ParallelItems(List<?> items, String variableName, CompiledScript subscript, boolean exitOnError) {
+            this.items = items;
+            this.variableName = variableName;
+            this.subscript = subscript;
+            this.exitOnError = exitOnError;
+            this.results = new AtomicReferenceArray<>(items.size());
+        }
+
+        /**
+         * Run the subscript on queued items until there are none left, or an item fails and `exitOnError` is set
+         * @param worker the scripter to run the items with
+         */
+        private void drain(SeleniumScripter worker) {
+            int i;
+            while (!aborted.get() && (i = next.getAndIncrement()) < items.size()) {
+                worker.scriptVariables.put(variableName, items.get(i));
+                int stackSize = worker.snapshots.size();
+
+                try {
+                    worker.runSubsequence(subscript.getInstructions());
+                } catch (Exception e) {
+                    LOG.error("Caught the following exception inside parallel item " + i + ":");
+                    e.printStackTrace();
+                    if(exitOnError) {
+                        aborted.set(true);
+                    }
+                }
+
+                // Move the item's snapshots off of the worker's stack
+                List<Snapshot> itemSnapshots = worker.snapshots.subList(stackSize, worker.snapshots.size());
+                results.set(i, new ArrayList<>(itemSnapshots));
+                itemSnapshots.clear();
+            }
+        }
+    }
+
     /**
      * DEV TOOL
      * Unconditionally pauses the script.
@@ -1483,7 +2390,7 @@ public class SeleniumScripter {
      * @throws ParseException occurs when an invalid timeout is specified
      * @throws NotActiveException occurs when development mode is not first enabled
      */
-    private void pauseOperation(Map<String, Object> script) throws ParseException,
+    private void pauseOperation(Instruction script) throws ParseException,
             NotActiveException,
             InterruptedException {
         if(!DEV_MODE) { // Validate that dev mode is enabled
@@ -1491,30 +2398,38 @@ public class SeleniumScripter {
         }
 
         // Get the specified pause time or fill the default
-        String raw_timeout = script.getOrDefault("timeout", defaultWaitTimeout).toString();
-        int timeout = parseNumber(raw_timeout).intValue() * 1000;
+        int timeout = script.getInt("timeout", (int) defaultWaitTimeout) * 1000;
 
         LOG.info("Pausing for " + timeout + " ms");
 
         // Start the pause
-        Thread.sleep(timeout);
+        metrics.sleep(timeout);
     }
 
     /**
      * Wait for an element to exist and become visible in the browser viewport.
+     *      With `until: networkidle`, wait instead for the page to have had no XHR or fetch requests pending for `quiet`
+     *      milliseconds (default 500); no element is needed.
      * @param script the wait subscript operation
      * @throws ParseException occurs when one or more required fields are missing or an invalid value is specified
      */
-    private void waitOperation(Map<String, Object> script) throws ParseException {
-        validate(script, new String[] {"selector", "name"}); // Validation
-
+    private void waitOperation(Instruction script) throws ParseException {
         // Fetch or fill the default parameters
-        long timeout = parseNumber(script.getOrDefault("timeout", defaultWaitTimeout).toString()).longValue();
-        String conditionStr = script.getOrDefault("until", "located").toString().toLowerCase();
+        long timeout = script.getLong("timeout", defaultWaitTimeout);
+        String conditionStr = script.getString("until", "located").toLowerCase();
+
+        if(conditionStr.equals("networkidle")) {
+            LOG.info("Waiting for the page to go network-idle within " + timeout + " seconds...");
+            if(!awaitNetworkIdle(TimeUnit.SECONDS.toMillis(timeout), script.getLong("quiet", defaultNetworkQuietTime))) {
+                throw new TimeoutException("The page did not go network-idle within " + timeout + " seconds!");
+            }
+            return;
+        }
+        script.validate("selector", "name");
 
         // Get the instruction parameters
-        String selector = script.get("selector").toString();
-        String name = script.get("name").toString();
+        String selector = script.getString("selector");
+        String name = script.getString("name");
 
         // Substitute any specified script-variable-values
         name = resolveExpressionValue(name);
@@ -1522,51 +2437,153 @@ public class SeleniumScripter {
         // Wait for element
         LOG.info("Waiting for element with " + selector +  " of `" + name + "` to appear within " + timeout + " seconds...");
 
-        // Convert
-        ExpectedCondition condition;
+        Object found = metrics.newWait(driver, timeout).until(buildCondition(script, conditionStr, name));
+
+        // Let the operations which follow re-use the element the wait found
+        if(found instanceof WebElement) {
+            elementCache.put(by(script, name), (WebElement) found);
+        }
+    }
+
+    /**
+     * Convert a condition name and its parameters to a `selenium.ExpectedCondition`
+     * @param script the block holding the condition parameters, i.e. `selector`, `name` and `value`
+     * @param conditionStr the condition name
+     * @param name the resolved value of the selection attribute
+     * @return the expected condition
+     * @throws ParseException occurs when an invalid condition is specified or its parameters are missing
+     */
+    private ExpectedCondition<?> buildCondition(Instruction script, String conditionStr, String name) throws ParseException {
         switch (conditionStr) {
             case "clickable":
-                condition = ExpectedConditions.elementToBeClickable(by(selector, name));
-                break;
+                return ExpectedConditions.elementToBeClickable(by(script, name));
             case "located":
-                condition = ExpectedConditions.presenceOfElementLocated(by(selector, name));
-                break;
+                return ExpectedConditions.presenceOfElementLocated(by(script, name));
             case "selected":
-                condition = ExpectedConditions.elementToBeSelected(by(selector, name));
-                break;
+                return ExpectedConditions.elementToBeSelected(by(script, name));
             case "text":
-                validate(script, "value");
-                String value = script.get("value").toString();
-                condition = ExpectedConditions.textToBe(by(selector, name), value);
-                break;
+                script.validate("value");
+                String value = script.getString("value");
+                return ExpectedConditions.textToBe(by(script, name), value);
+            case "title":
             case " title":
-                validate(script, "value");
-                String title = script.get("value").toString();
-                condition = ExpectedConditions.titleContains(title);
-                break;
+                script.validate("value");
+                String title = script.getString("value");
+                return ExpectedConditions.titleContains(title);
             case "visible":
-                condition = ExpectedConditions.visibilityOfElementLocated(by(selector, name));
-                break;
+                return ExpectedConditions.visibilityOfElementLocated(by(script, name));
             default:
                 throw new ParseException("Invalid `until` condition: `" + conditionStr + "`", 0);
         }
+    }
 
-        new WebDriverWait(driver, timeout).until(condition);
+    /**
+     * Fetch the page URL before an action is performed, if the action waits for it to change afterwards
+     * @param script the action instruction
+     * @return the current URL, or null if the action does not wait on a `urlchanged` condition
+     */
+    private String urlBeforeAction(Instruction script) {
+        return "urlchanged".equals(untilCondition(script)) ? driver.getCurrentUrl() : null;
+    }
+
+    /**
+     * Fetch the name of an action's `until` condition, which is either a block with a `condition` field or, as a
+     *      shorthand for conditions on the action's own element, just the condition name
+     * @param script the action instruction
+     * @return the lower-case condition name, or null if the action has no `until` condition
+     */
+    private String untilCondition(Instruction script) {
+        Instruction until = script.getSection("until");
+        if(until != null) {
+            return until.getString("condition", "located").toLowerCase();
+        }
+        return script.has("until") ? script.getString("until").toLowerCase() : null;
+    }
+
+    /**
+     * Determine the upper bound of a click's post-action wait
+     * @param script the click instruction
+     * @param delay the `delay` field, in seconds
+     * @return the delay in milliseconds, falling back to the default wait timeout if an `until` block has no delay
+     */
+    private long postActionDelay(Instruction script, long delay) {
+        if(script.has("until") && !script.has("delay")) {
+            return TimeUnit.SECONDS.toMillis(defaultWaitTimeout);
+        }
+        return TimeUnit.SECONDS.toMillis(delay);
+    }
+
+    /**
+     * Wait for the `until` condition of an action, or for a default condition, to hold.
+     *      The `until` block takes a `condition` (any of the `wait` operation's conditions, `stale` for the element the
+     *      action was performed on going stale, or `urlchanged` for the page URL changing) along with its `selector`,
+     *      `name` and `value`, and an optional `timeout` in seconds. The wait gives up with a warning, rather than
+     *      failing the script, once the timeout or the action's own delay runs out.
+     * @param script the action instruction
+     * @param defaultCondition the condition to wait for if the action has no `until` block, or null to just sleep
+     * @param maxDelay the longest time to wait, in milliseconds
+     * @param target the element the action was performed on
+     * @param previousUrl the page URL before the action, as fetched by {@link #urlBeforeAction(Instruction)}
+     * @throws ParseException occurs when an invalid condition is specified or its parameters are missing
+     * @throws InterruptedException occurs when the process wakes up from a sleep event
+     */
+    private void awaitPostAction(Instruction script,
+                                 ExpectedCondition<?> defaultCondition,
+                                 long maxDelay,
+                                 WebElement target,
+                                 String previousUrl) throws ParseException, InterruptedException {
+        ExpectedCondition<?> condition = defaultCondition;
+        String conditionStr = untilCondition(script);
+        if(conditionStr != null) {
+            Instruction until = script.getSection("until") != null ? script.getSection("until") : script;
+            switch (conditionStr) {
+                case "stale":
+                    condition = ExpectedConditions.stalenessOf(target);
+                    break;
+                case "urlchanged":
+                    condition = (d) -> !d.getCurrentUrl().equals(previousUrl);
+                    break;
+                default:
+                    String name = until.has("name") ? resolveExpressionValue(until.getString("name")) : null;
+                    condition = buildCondition(until, conditionStr, name);
+                    break;
+            }
+            if(until != script && until.has("timeout")) {
+                maxDelay = TimeUnit.SECONDS.toMillis(until.getLong("timeout", 0));
+            }
+        }
+
+        if(condition == null) {
+            metrics.sleep(maxDelay);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            metrics.newWait(driver, 0)
+                    .withTimeout(Duration.ofMillis(maxDelay))
+                    .pollingEvery(Duration.ofMillis(50))
+                    .until(condition);
+            LOG.info("Post-action condition held after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            if("stale".equals(conditionStr) || "urlchanged".equals(conditionStr)) {
+                elementCache.invalidate(); // The action led to a new page
+            }
+        } catch (TimeoutException e) {
+            LOG.warn("Post-action condition did not hold within " + maxDelay + "ms, continuing!");
+        }
     }
 
     /**
      * Get an OAuth bearer token from a website, and store it in the specified or default script variable
      * @param script the get
      */
-    private void getTokenOperation(Map<String, Object> script) throws ParseException {
-        validate(script, "url"); // Validation
-
+    private void getTokenOperation(Instruction script) throws ParseException {
         // Fetch or fill the default operation parameters
-        String url = script.get("url").toString();
-        String variable = script.getOrDefault("variable", "bearer_token").toString();
+        String url = script.getString("url");
+        String variable = script.getString("variable", "bearer_token");
 
         // Goto the website needing the OAuth token
-        driver.get(url);
+        navigate(script, url);
         WebElement element = driver.findElement(By.tagName("pre"));
 
         // Request the OAuth token and store it in script variables
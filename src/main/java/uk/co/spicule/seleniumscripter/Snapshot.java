@@ -1,10 +1,25 @@
 package uk.co.spicule.seleniumscripter;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
 public class Snapshot {
 
-    public String name;
-    public String content;
+    private String name;
+    private SnapshotBody body = null; // The content, which may be shared with identical snapshots
+
+    public Snapshot() {
+    }
 
+    public Snapshot(String name, String content) {
+        this.name = name;
+        setContent(content);
+    }
 
     public String getName() {
         return name;
@@ -14,11 +29,55 @@ public class Snapshot {
         this.name = name;
     }
 
+    /**
+     * Fetch the snapshot content, reading it back from disk if it was spilled by its {@link SnapshotStore}
+     * @return the snapshot content
+     * @throws UncheckedIOException occurs when spilled content fails to read from its segment file
+     */
     public String getContent() {
-        return content;
+        SnapshotBody body = this.body;
+        return body == null ? null : body.getContent();
+    }
+
+    /**
+     * Open a stream over the snapshot content as UTF-8 bytes, without building the content string
+     * @return the content stream
+     * @throws IOException occurs when spilled content fails to open
+     */
+    public InputStream getContentStream() throws IOException {
+        SnapshotBody body = this.body;
+        return body == null ? new ByteArrayInputStream(new byte[0]) : body.openStream();
+    }
+
+    /**
+     * Write the snapshot content to a stream as UTF-8 bytes, without building the content string
+     * @param out the stream to write to
+     * @return the number of bytes written
+     * @throws IOException occurs when the content fails to read or write
+     */
+    public long writeContentTo(OutputStream out) throws IOException {
+        try (InputStream in = getContentStream()) {
+            return IOUtils.copyLarge(in, out);
+        }
+    }
+
+    /**
+     * @return the length of the snapshot content in UTF-8 bytes
+     */
+    public int getContentLength() {
+        SnapshotBody body = this.body;
+        return body == null ? 0 : body.getLength();
     }
 
     public void setContent(String content) {
-        this.content = content;
+        this.body = content == null ? null : new SnapshotBody(content);
+    }
+
+    SnapshotBody getBody() {
+        return body;
+    }
+
+    void setBody(SnapshotBody body) {
+        this.body = body;
     }
 }
@@ -0,0 +1,168 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The content of one or more {@link Snapshot}s.
+ *      The content is held as UTF-8 bytes, optionally Deflate compressed, rather than as a UTF-16 string. A body is
+ *      held in memory until its {@link SnapshotStore} spills it to a segment file, and may be shared by several
+ *      snapshots when the store deduplicates identical content.
+ */
+final class SnapshotBody {
+    private byte[] bytes; // The stored content, or null once it has been spilled to disk
+    private boolean compressed = false; // True if the stored content is Deflate compressed
+    private final int length; // The length of the uncompressed UTF-8 content in bytes
+    private int storedLength; // The length of the stored content in bytes
+    private SnapshotStore.Segment segment = null; // The segment file holding the spilled content
+    private long offset; // The position of the spilled content in its segment
+    private String hash = null; // The content hash, computed on first use
+
+    SnapshotBody(String content) {
+        this.bytes = content.getBytes(StandardCharsets.UTF_8);
+        this.length = bytes.length;
+        this.storedLength = bytes.length;
+    }
+
+    /**
+     * Decode the content, reading it back from disk and decompressing it as needed
+     * @return the content
+     * @throws UncheckedIOException occurs when spilled content fails to read from its segment file
+     */
+    String getContent() {
+        try (InputStream stream = openStream()) {
+            byte[] content = new byte[length];
+            IOUtils.readFully(stream, content);
+            return new String(content, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read snapshot content!", e);
+        }
+    }
+
+    /**
+     * Open a stream over the uncompressed UTF-8 content, without decoding it
+     * @return the content stream
+     * @throws IOException occurs when spilled content fails to open
+     */
+    synchronized InputStream openStream() throws IOException {
+        InputStream stored = bytes == null
+                ? segment.openStream(offset, storedLength)
+                : new ByteArrayInputStream(bytes);
+        return compressed ? new InflaterInputStream(stored) : stored;
+    }
+
+    /**
+     * @return the length of the uncompressed UTF-8 content in bytes
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the number of bytes of heap held by the content, or 0 if it has been spilled
+     */
+    synchronized long getResidentSize() {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * @return the number of bytes the content takes up, wherever it is held
+     */
+    synchronized long getSize() {
+        return storedLength;
+    }
+
+    synchronized boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Deflate the in-memory content, keeping it as-is if compression doesn't make it any smaller
+     */
+    synchronized void compress() {
+        if (bytes == null || compressed) {
+            return;
+        }
+
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length / 4);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, deflater)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Never thrown by an in-memory stream
+        } finally {
+            deflater.end();
+        }
+
+        if (deflated.size() < bytes.length) {
+            bytes = deflated.toByteArray();
+            storedLength = bytes.length;
+            compressed = true;
+        }
+    }
+
+    /**
+     * Hash the uncompressed UTF-8 content with SHA-256, streaming it rather than decoding it
+     * @return the Base64 encoded content hash
+     */
+    synchronized String getHash() {
+        if (hash != null) {
+            return hash;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (bytes != null && !compressed) {
+            digest.update(bytes);
+        } else {
+            try (InputStream stream = new DigestInputStream(openStream(), digest)) {
+                IOUtils.skip(stream, Long.MAX_VALUE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read snapshot content!", e);
+            }
+        }
+
+        hash = Base64.getEncoder().encodeToString(digest.digest());
+        return hash;
+    }
+
+    /**
+     * @return the content hash, or null if it has not been computed yet
+     */
+    synchronized String getCachedHash() {
+        return hash;
+    }
+
+    /**
+     * Move the content out of memory and into a segment file
+     * @param segment the segment to append the content to
+     * @throws IOException occurs when the content fails to write to the segment
+     */
+    synchronized void spill(SnapshotStore.Segment segment) throws IOException {
+        if (bytes == null) {
+            return;
+        }
+
+        offset = segment.write(bytes);
+        this.segment = segment;
+        bytes = null;
+    }
+}
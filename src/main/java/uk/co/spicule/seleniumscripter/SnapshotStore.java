@@ -0,0 +1,399 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The stack of snapshots taken by a scripter.
+ *      Snapshot contents are kept in memory up to a configurable budget. Once the budget is exceeded, the contents of
+ *      the oldest snapshots are spilled to temporary segment files and read back lazily by
+ *      {@link Snapshot#getContent()}, so that heap usage stays flat no matter how many pages a crawl takes.
+ *      When deduplication is enabled, snapshots with byte-for-byte identical content share a single stored body, and
+ *      when compression is enabled, each stored body is Deflate compressed as it is added.
+ */
+public class SnapshotStore extends AbstractList<Snapshot> implements RandomAccess, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotStore.class);
+
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024; // 256MiB
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024; // The size at which a new segment file is started
+
+    private final List<Snapshot> snapshots = new ArrayList<>(); // The snapshots, in stack order
+    private final Map<SnapshotBody, Long> resident = new LinkedHashMap<>(); // In-memory bodies, oldest first, and their sizes
+    private final Map<SnapshotBody, Integer> references = new IdentityHashMap<>(); // The number of snapshots sharing each body
+    private final Map<String, SnapshotBody> bodies = new HashMap<>(); // Stored bodies by content hash, when deduplicating
+    private final List<Segment> segments = new ArrayList<>(); // Every segment file written by this store
+    private final List<Segment> adopted = new ArrayList<>(); // Sealed segment files taken over from other stores
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET; // The number of bytes of content to keep in memory
+    private long residentBytes = 0; // The number of bytes of content currently in memory
+    private File directory = null; // The directory to write segment files to, or null for the system temp directory
+    private long spilled = 0; // The number of bodies spilled to disk
+    private boolean deduplicate = false; // Share a single body between snapshots with identical content
+    private long deduplicationHits = 0; // The number of snapshots which reused an existing body
+    private long deduplicationMisses = 0; // The number of snapshots which stored a new body
+    private long deduplicatedBytes = 0; // The approximate number of bytes not stored thanks to deduplication
+    private boolean compress = false; // Deflate the content of every stored body
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Set the number of bytes of snapshot content to keep in memory, spilling immediately if it is already exceeded
+     * @param bytes the memory budget in bytes
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        spill();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Set the directory that spilled snapshot contents are written to
+     * @param directory the spill directory, or null for the system temp directory
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    public boolean isDeduplicating() {
+        return deduplicate;
+    }
+
+    /**
+     * Toggle content deduplication. Only snapshots added after it is enabled are deduplicated.
+     * @param deduplicate true to share a single body between snapshots with identical content
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean isCompressing() {
+        return compress;
+    }
+
+    /**
+     * Toggle content compression. Only snapshots added after it is enabled are compressed.
+     * @param compress true to Deflate the content of stored snapshots
+     */
+    public void setCompression(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * @return the number of snapshots whose content was already stored
+     */
+    public long getDeduplicationHits() {
+        return deduplicationHits;
+    }
+
+    /**
+     * @return the number of deduplicated snapshots whose content had to be stored
+     */
+    public long getDeduplicationMisses() {
+        return deduplicationMisses;
+    }
+
+    /**
+     * @return the approximate number of bytes of content which deduplication avoided storing
+     */
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes;
+    }
+
+    /**
+     * @return the number of bytes of snapshot content currently held in memory
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return the number of snapshot bodies which have been spilled to disk
+     */
+    public long getSpilledCount() {
+        return spilled;
+    }
+
+    @Override
+    public Snapshot get(int index) {
+        return snapshots.get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshots.size();
+    }
+
+    @Override
+    public void add(int index, Snapshot snapshot) {
+        snapshots.add(index, snapshot);
+        ++modCount;
+        track(snapshot);
+        spill();
+    }
+
+    @Override
+    public Snapshot set(int index, Snapshot snapshot) {
+        Snapshot previous = snapshots.set(index, snapshot);
+        untrack(previous);
+        track(snapshot);
+        spill();
+        return previous;
+    }
+
+    @Override
+    public Snapshot remove(int index) {
+        Snapshot snapshot = snapshots.remove(index);
+        ++modCount;
+        untrack(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        List<Snapshot> range = snapshots.subList(fromIndex, toIndex);
+        for (Snapshot snapshot : range) {
+            untrack(snapshot);
+        }
+        range.clear();
+        ++modCount;
+    }
+
+    private void track(Snapshot snapshot) {
+        SnapshotBody body = snapshot.getBody();
+        if (body == null) {
+            return;
+        }
+
+        if (deduplicate) {
+            String hash = body.getHash();
+            SnapshotBody existing = bodies.get(hash);
+            if (existing == null) {
+                bodies.put(hash, body);
+                ++deduplicationMisses;
+            } else if (existing != body) {
+                snapshot.setBody(existing);
+                deduplicatedBytes += body.getSize();
+                ++deduplicationHits;
+                body = existing;
+            }
+        }
+
+        Integer count = references.get(body);
+        references.put(body, count == null ? 1 : count + 1);
+        if (count == null && compress) {
+            body.compress();
+        }
+
+        long size = body.getResidentSize();
+        if (count == null && size > 0) {
+            resident.put(body, size);
+            residentBytes += size;
+        }
+    }
+
+    private void untrack(Snapshot snapshot) {
+        SnapshotBody body = snapshot.getBody();
+        Integer count = body == null ? null : references.get(body);
+        if (count == null) {
+            return;
+        } else if (count > 1) {
+            references.put(body, count - 1);
+            return;
+        }
+
+        references.remove(body);
+        Long size = resident.remove(body);
+        if (size != null) {
+            residentBytes -= size;
+        }
+        String hash = body.getCachedHash();
+        if (hash != null) {
+            bodies.remove(hash, body);
+        }
+    }
+
+    /**
+     * Spill the oldest in-memory snapshots to disk until the resident contents fit within the memory budget
+     */
+    private void spill() {
+        Iterator<Map.Entry<SnapshotBody, Long>> eldest = resident.entrySet().iterator();
+        while (residentBytes > memoryBudget && eldest.hasNext()) {
+            Map.Entry<SnapshotBody, Long> entry = eldest.next();
+            try {
+                entry.getKey().spill(segment(entry.getValue()));
+            } catch (IOException e) {
+                LOG.error("Failed to spill snapshot content to disk, keeping it in memory:");
+                e.printStackTrace();
+                return;
+            }
+
+            residentBytes -= entry.getValue();
+            eldest.remove();
+            ++spilled;
+        }
+    }
+
+    /**
+     * Fetch the segment file to spill to, starting a new one if the current one is full
+     * @param bytes the approximate number of bytes about to be written
+     * @return the segment to write to
+     * @throws IOException occurs when a new segment file fails to be created
+     */
+    private Segment segment(long bytes) throws IOException {
+        Segment current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (current == null || current.size() + bytes > SEGMENT_SIZE) {
+            if (current != null) {
+                current.seal();
+            }
+            File file = File.createTempFile("snapshots-", ".segment", directory);
+            current = new Segment(file);
+            segments.add(current);
+        }
+        return current;
+    }
+
+    /**
+     * Take ownership of the segment files of another store, e.g. one whose snapshots were moved onto this store, so
+     *      that they are deleted when this store is closed rather than the other
+     * @param other the store to take the segment files of
+     */
+    void adoptSegments(SnapshotStore other) {
+        for (Segment segment : other.segments) {
+            try {
+                segment.seal();
+            } catch (IOException e) {
+                LOG.warn("Failed to close snapshot segment `" + segment.file + "`: " + e.getMessage());
+            }
+        }
+        adopted.addAll(other.segments); // Kept apart, so that this store never tries to append to them
+        adopted.addAll(other.adopted);
+        other.segments.clear();
+        other.adopted.clear();
+    }
+
+    /**
+     * Delete every segment file written by this store.
+     *      Any snapshot whose content was spilled can no longer be read afterwards.
+     */
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        for (Segment segment : adopted) {
+            segment.delete();
+        }
+        segments.clear();
+        adopted.clear();
+    }
+
+    /**
+     * An append-only temporary file holding the spilled contents of several snapshots.
+     *      Segments which are still live when the JVM exits are deleted by a single shutdown hook, rather than through
+     *      {@link File#deleteOnExit()}, which remembers every file ever registered.
+     */
+    static final class Segment {
+        private static final Set<Segment> LIVE = Collections.synchronizedSet(new HashSet<>()); // Segments not yet deleted
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                List<Segment> live;
+                synchronized (LIVE) {
+                    live = new ArrayList<>(LIVE);
+                }
+                for (Segment segment : live) {
+                    segment.delete();
+                }
+            }, "segment-cleanup"));
+        }
+
+        private final File file; // The segment file
+        private RandomAccessFile writer; // Open while the segment is still being appended to
+        private long size = 0; // The number of bytes written to the segment
+
+        Segment(File file) throws IOException {
+            this.file = file;
+            this.writer = new RandomAccessFile(file, "rw");
+            LIVE.add(this);
+        }
+
+        /**
+         * @return the number of segment files, across every store and capture list, which have not been deleted yet
+         */
+        static int getLiveCount() {
+            return LIVE.size();
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        /**
+         * Append content to the segment
+         * @param bytes the content to append
+         * @return the offset the content was written at
+         * @throws IOException occurs when the content fails to write
+         */
+        synchronized long write(byte[] bytes) throws IOException {
+            if (writer == null) {
+                throw new IOException("Segment `" + file + "` is sealed!");
+            }
+
+            long offset = size;
+            writer.seek(offset);
+            writer.write(bytes);
+            size += bytes.length;
+            return offset;
+        }
+
+        /**
+         * Open a stream over content in the segment
+         * @param offset the offset the content was written at
+         * @param length the length of the content in bytes
+         * @return the content stream
+         * @throws IOException occurs when the segment fails to open
+         */
+        InputStream openStream(long offset, int length) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        }
+
+        /**
+         * Stop appending to the segment and release its file handle
+         */
+        synchronized void seal() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        synchronized void delete() {
+            LIVE.remove(this);
+            try {
+                seal();
+            } catch (IOException e) {
+                LOG.warn("Failed to close snapshot segment `" + file + "`: " + e.getMessage());
+            }
+            if (!file.delete()) {
+                LOG.warn("Failed to delete snapshot segment `" + file + "`!");
+            }
+        }
+    }
+}
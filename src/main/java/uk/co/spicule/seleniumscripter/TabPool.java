@@ -0,0 +1,137 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A set of tabs opened in a single driver session, which a `for` loop spreads its iterations across.
+ *      Navigations are started without waiting for them, so that the pages of several iterations load at the same time
+ *      without the memory cost of extra browser processes. Closing the pool closes its tabs and switches back to the
+ *      window it was opened from.
+ */
+final class TabPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(TabPool.class);
+
+    // Opens an empty tab
+    private static final String OPEN_SCRIPT = "window.open('about:blank','_blank');";
+
+    // Navigates the current tab after the script has returned, so that the driver does not wait for the page to load
+    private static final String NAVIGATE_SCRIPT = "var u=arguments[0];setTimeout(function(){window.location.href=u},0);";
+
+    private static final long OPEN_TIMEOUT = 10; // The time in seconds to wait for a new tab to appear
+
+    private final WebDriver driver; // The web driver
+    private final String originalWindow; // The window the pool was opened from
+    private final List<String> handles = new ArrayList<>(); // The handles of the tabs opened by the pool
+
+    /**
+     * Open a set of empty tabs
+     * @param driver the web driver
+     * @param size the number of tabs to open
+     * @throws TimeoutException occurs when a tab fails to open, e.g. because the browser blocked the popup
+     */
+    TabPool(WebDriver driver, int size) {
+        this.driver = driver;
+        this.originalWindow = driver.getWindowHandle();
+
+        try {
+            for (int i = 0; i < size; ++i) {
+                handles.add(open());
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        LOG.info("Opened " + handles.size() + " tabs");
+    }
+
+    private String open() {
+        Set<String> before = driver.getWindowHandles();
+        ((JavascriptExecutor) driver).executeScript(OPEN_SCRIPT);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(OPEN_TIMEOUT);
+        do {
+            for (String handle : driver.getWindowHandles()) {
+                if (!before.contains(handle)) {
+                    blockUrls(handle);
+                    return handle;
+                }
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException(e);
+            }
+        } while (System.nanoTime() < deadline);
+
+        throw new TimeoutException("A new tab did not open within " + OPEN_TIMEOUT + " seconds!");
+    }
+
+    /**
+     * Block the URLs the session's profile blocks in a new tab, as DevTools blocks only apply to a single tab
+     * @param handle the handle of the tab
+     */
+    private void blockUrls(String handle) {
+        if (!DevTools.isSupported(driver)) {
+            return;
+        }
+        try {
+            driver.switchTo().window(handle);
+            DevTools.blockUrlsInTab(driver);
+        } catch (WebDriverException e) {
+            LOG.warn("Failed to block URLs in tab `" + handle + "`: " + e.getMessage());
+        } finally {
+            driver.switchTo().window(originalWindow);
+        }
+    }
+
+    /**
+     * @return the handles of the tabs in the pool
+     */
+    List<String> getHandles() {
+        return Collections.unmodifiableList(handles);
+    }
+
+    /**
+     * Start loading a page in a tab, without waiting for it. The tab is left as the current window.
+     * @param handle the handle of the tab
+     * @param url the URL of the page
+     */
+    void navigate(String handle, String url) {
+        driver.switchTo().window(handle);
+        NetworkIdle.markNavigationQuietly(driver); // So that the tab's old page isn't mistaken for the new one
+        ((JavascriptExecutor) driver).executeScript(NAVIGATE_SCRIPT, url);
+    }
+
+    /**
+     * @param handle the handle of the tab to make the current window
+     */
+    void switchTo(String handle) {
+        driver.switchTo().window(handle);
+    }
+
+    @Override
+    public void close() {
+        for (String handle : handles) {
+            try {
+                driver.switchTo().window(handle);
+                driver.close();
+            } catch (WebDriverException e) {
+                LOG.warn("Failed to close tab `" + handle + "`: " + e.getMessage());
+            }
+        }
+        handles.clear();
+        driver.switchTo().window(originalWindow);
+    }
+}
@@ -85,6 +85,7 @@ public class Sandbox {
             throw new FileNotFoundException("Embedded resource not found: " + filename);
         }
         FileReader reader = new FileReader(filepath.getPath());
+        @SuppressWarnings("unchecked")
         Map<String, Object> map = (Map<String, Object>) new JSONParser().parse(reader);
         return new TreeMap<>(map);
     }
@@ -0,0 +1,185 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.logging.Logs;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link RemoteWebDriver} which serves its pages from a {@link FakeWebDriver}, for the code which only accepts remote
+ *      sessions, e.g. {@link DriverPool} and the `parallel` operation. No command is ever sent to a browser.
+ *      The session can be made to fail, to mimic a crashed browser.
+ */
+public class FakeRemoteWebDriver extends RemoteWebDriver {
+    private final FakeWebDriver fake; // Serves the pages
+    private volatile boolean crashed = false; // Fail every command, as if the browser had died
+    private volatile boolean quit = false;
+    private volatile int cookieClears = 0; // The number of times the cookies were deleted
+
+    public FakeRemoteWebDriver(FakeWebDriver fake) {
+        this.fake = fake;
+    }
+
+    public FakeWebDriver getFake() {
+        return fake;
+    }
+
+    /**
+     * Fail every command from now on, as if the browser had crashed
+     */
+    public void crash() {
+        crashed = true;
+    }
+
+    public boolean isQuit() {
+        return quit;
+    }
+
+    public int getCookieClears() {
+        return cookieClears;
+    }
+
+    private FakeWebDriver fake() {
+        if (crashed || quit) {
+            throw new NoSuchSessionException("The fake browser is not running!");
+        }
+        return fake;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return new DesiredCapabilities();
+    }
+
+    @Override
+    public void get(String url) {
+        fake().get(url);
+    }
+
+    @Override
+    public String getTitle() {
+        return fake().getTitle();
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return fake().getCurrentUrl();
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return fake().findElements(by);
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return fake().findElement(by);
+    }
+
+    @Override
+    public String getPageSource() {
+        return fake().getPageSource();
+    }
+
+    @Override
+    public void close() {
+        fake().close();
+    }
+
+    @Override
+    public void quit() {
+        quit = true;
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        return fake().getWindowHandles();
+    }
+
+    @Override
+    public String getWindowHandle() {
+        return fake().getWindowHandle();
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        return fake().executeScript(script, args);
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        return fake().executeAsyncScript(script, args);
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return fake().switchTo();
+    }
+
+    @Override
+    public Navigation navigate() {
+        return fake().navigate();
+    }
+
+    @Override
+    public Options manage() {
+        fake();
+        return new Options() {
+            @Override
+            public void addCookie(Cookie cookie) {
+            }
+
+            @Override
+            public void deleteCookieNamed(String name) {
+            }
+
+            @Override
+            public void deleteCookie(Cookie cookie) {
+            }
+
+            @Override
+            public void deleteAllCookies() {
+                ++cookieClears;
+            }
+
+            @Override
+            public Set<Cookie> getCookies() {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public Cookie getCookieNamed(String name) {
+                return null;
+            }
+
+            @Override
+            public Timeouts timeouts() {
+                throw new UnsupportedOperationException("The fake driver has no timeouts!");
+            }
+
+            @Override
+            public ImeHandler ime() {
+                throw new UnsupportedOperationException("The fake driver has no input methods!");
+            }
+
+            @Override
+            public Window window() {
+                throw new UnsupportedOperationException("The fake driver has no window options!");
+            }
+
+            @Override
+            public Logs logs() {
+                throw new UnsupportedOperationException("The fake driver has no logs!");
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "FakeRemoteWebDriver";
+    }
+}
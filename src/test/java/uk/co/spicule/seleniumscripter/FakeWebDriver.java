@@ -0,0 +1,1014 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.remote.DriverCommand;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory web driver which serves well-formed (XHTML) fixture pages, so that scripts can be replayed without a
+ *      browser or network.
+ *      Elements are found by id, class, name, css and xpath; links, submit buttons and the enter key navigate between
+ *      fixtures; `data-alert` on an element raises an alert when it is clicked; `window.open` opens an empty tab which
+ *      can be switched to and closed; screenshots are a blank image the size of a small viewport. Only the in-page
+ *      scripts that {@link SeleniumScripter} itself runs are understood, anything else fails loudly. Every command is
+ *      counted and can be given an artificial latency to mimic a remote browser.
+ */
+public class FakeWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+    private static final String WINDOW = "main"; // The handle of the first window
+    static final int SCREEN_WIDTH = 320; // The size of the screenshots taken of the viewport
+    static final int SCREEN_HEIGHT = 240;
+    private static final Pattern COMPOUND_PART = Pattern.compile("([a-zA-Z][\\w-]*|\\*)|#([\\w-]+)|\\.([\\w-]+)|\\[([\\w-]+)(?:=[\"']?([^\"'\\]]*)[\"']?)?]");
+    private static final Pattern INSERT_ADJACENT_HTML = Pattern.compile("insertAdjacentHTML\\(\"(\\w+)\", \"(.*)\"\\);", Pattern.DOTALL);
+
+    private final Map<String, String> pages = new HashMap<>(); // Fixture HTML by URL
+    private final Map<String, Window> windows = new LinkedHashMap<>(); // The other open windows, by handle
+    private final Map<String, Long> commands = new TreeMap<>(); // Commands sent, by name
+    private final Map<String, Long> latencies = new HashMap<>(); // Artificial command latencies in ms, by name
+    private long latency = 0; // The artificial latency of every other command in ms
+
+    private String window = WINDOW; // The handle of the current window, or null once it is closed
+    private int opened = 0; // The number of windows opened by scripts
+    private Deque<String> history = new ArrayDeque<>(); // Previously visited URLs
+    private String url = "about:blank";
+    private Document document;
+    private String alert = null; // The text of the open alert, if any
+    private final List<long[]> requests = new CopyOnWriteArrayList<>(); // The start and end times in ms of the page's requests
+    private volatile Long trackerInstalled = null; // When the page's request tracker was installed, or null if it is not
+
+    public FakeWebDriver() {
+        document = parse("<html><head></head><body></body></html>");
+    }
+
+    /**
+     * Serve a fixture page
+     * @param url the URL of the page, without a query string
+     * @param html the well-formed page HTML
+     * @return this driver
+     */
+    public FakeWebDriver addPage(String url, String html) {
+        pages.put(url, html);
+        return this;
+    }
+
+    /**
+     * Serve a fixture page from the test resources
+     * @param url the URL of the page, without a query string
+     * @param resource the path of the fixture resource, e.g. `fixtures/alabama/search.html`
+     * @return this driver
+     * @throws IOException occurs when the resource cannot be read
+     */
+    public FakeWebDriver addResource(String url, String resource) throws IOException {
+        try (InputStream in = FakeWebDriver.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Fixture resource not found: " + resource);
+            }
+            Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A");
+            return addPage(url, scanner.hasNext() ? scanner.next() : "");
+        }
+    }
+
+    /**
+     * Mimic a request made by the current page, e.g. an XHR filling in search results, so that the page is not
+     *      network-idle until it has finished
+     * @param millis the time the request takes to finish, in milliseconds
+     */
+    public void startRequest(long millis) {
+        long now = System.currentTimeMillis();
+        requests.add(new long[] {now, now + millis});
+    }
+
+    /**
+     * @param millis the artificial latency of every command without its own, in milliseconds
+     */
+    public void setLatency(long millis) {
+        latency = millis;
+    }
+
+    /**
+     * @param command the command name, one of the `DriverCommand` constants, e.g. `DriverCommand.FIND_ELEMENT`
+     * @param millis the artificial latency of the command, in milliseconds
+     */
+    public void setLatency(String command, long millis) {
+        latencies.put(command, millis);
+    }
+
+    /**
+     * @return the number of commands sent so far, by `DriverCommand` name
+     */
+    public synchronized Map<String, Long> getCommandCounts() {
+        return new TreeMap<>(commands);
+    }
+
+    /**
+     * @return the total number of commands sent so far
+     */
+    public synchronized long getCommandCount() {
+        long total = 0;
+        for (long count : commands.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    private void command(String name) {
+        long delay;
+        synchronized (this) {
+            commands.merge(name, 1L, Long::sum);
+            delay = latencies.getOrDefault(name, latency);
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException(e);
+            }
+        }
+    }
+
+    // Navigation
+
+    @Override
+    public void get(String url) {
+        command(DriverCommand.GET);
+        navigate(url, true);
+    }
+
+    private void navigate(String url, boolean remember) {
+        if (remember && !"about:blank".equals(this.url)) {
+            history.push(this.url);
+        }
+        this.url = url;
+        alert = null;
+        requests.clear();
+        trackerInstalled = null;
+
+        String html = pages.get(url);
+        if (html == null) {
+            int query = url.indexOf('?');
+            html = pages.get(query < 0 ? url : url.substring(0, query));
+        }
+        document = parse(html != null
+                ? html
+                : "<html><head><title>Not Found</title></head><body><h1>Not Found</h1></body></html>");
+    }
+
+    private Document parse(String html) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            Document parsed = factory.newDocumentBuilder().parse(new InputSource(new StringReader(html)));
+            lowerCaseNames(parsed, parsed.getDocumentElement());
+            return parsed;
+        } catch (Exception e) {
+            throw new WebDriverException("Fixture page is not well-formed: " + url, e);
+        }
+    }
+
+    /**
+     * Lower-case the tag and attribute names, as an HTML parser would, so that xpaths match them the same way
+     */
+    private static void lowerCaseNames(Document document, Element element) {
+        Element renamed = (Element) document.renameNode(element, null, element.getTagName().toLowerCase());
+        for (int i = renamed.getAttributes().getLength() - 1; i >= 0; --i) {
+            Node attribute = renamed.getAttributes().item(i);
+            if (!attribute.getNodeName().equals(attribute.getNodeName().toLowerCase())) {
+                document.renameNode(attribute, null, attribute.getNodeName().toLowerCase());
+            }
+        }
+        for (Node child = renamed.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                lowerCaseNames(document, (Element) child);
+            }
+        }
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        command(DriverCommand.GET_CURRENT_URL);
+        return url;
+    }
+
+    @Override
+    public String getTitle() {
+        command(DriverCommand.GET_TITLE);
+        NodeList titles = document.getElementsByTagName("title");
+        return titles.getLength() == 0 ? "" : titles.item(0).getTextContent().trim();
+    }
+
+    @Override
+    public String getPageSource() {
+        command(DriverCommand.GET_PAGE_SOURCE);
+        return serialize(document);
+    }
+
+    private static String serialize(Node node) {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            StringWriter source = new StringWriter();
+            transformer.transform(new DOMSource(node), new StreamResult(source));
+            return source.toString();
+        } catch (Exception e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        command(DriverCommand.CLOSE);
+        window = null;
+    }
+
+    @Override
+    public void quit() {
+        command(DriverCommand.QUIT);
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        command(DriverCommand.GET_WINDOW_HANDLES);
+        Set<String> handles = new LinkedHashSet<>();
+        if (window != null) {
+            handles.add(window);
+        }
+        handles.addAll(windows.keySet());
+        return handles;
+    }
+
+    @Override
+    public String getWindowHandle() {
+        command(DriverCommand.GET_CURRENT_WINDOW_HANDLE);
+        if (window == null) {
+            throw new NoSuchWindowException("The current window is closed!");
+        }
+        return window;
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return new TargetLocator() {
+            @Override
+            public WebDriver frame(int index) {
+                throw new NoSuchFrameException("The fake driver has no frames!");
+            }
+
+            @Override
+            public WebDriver frame(String nameOrId) {
+                throw new NoSuchFrameException("The fake driver has no frames!");
+            }
+
+            @Override
+            public WebDriver frame(WebElement frameElement) {
+                throw new NoSuchFrameException("The fake driver has no frames!");
+            }
+
+            @Override
+            public WebDriver parentFrame() {
+                return FakeWebDriver.this;
+            }
+
+            @Override
+            public WebDriver window(String nameOrHandle) {
+                command(DriverCommand.SWITCH_TO_WINDOW);
+                if (nameOrHandle.equals(window)) {
+                    return FakeWebDriver.this;
+                }
+                Window target = windows.remove(nameOrHandle);
+                if (target == null) {
+                    throw new NoSuchWindowException("No such window: " + nameOrHandle);
+                }
+                if (window != null) {
+                    windows.put(window, new Window(history, url, document, alert));
+                }
+                window = nameOrHandle;
+                history = target.history;
+                url = target.url;
+                document = target.document;
+                alert = target.alert;
+                return FakeWebDriver.this;
+            }
+
+            @Override
+            public WebDriver defaultContent() {
+                return FakeWebDriver.this;
+            }
+
+            @Override
+            public WebElement activeElement() {
+                return new FakeElement(document.getDocumentElement());
+            }
+
+            @Override
+            public Alert alert() {
+                command(DriverCommand.GET_ALERT_TEXT);
+                if (alert == null) {
+                    throw new NoAlertPresentException();
+                }
+                return new FakeAlert();
+            }
+        };
+    }
+
+    @Override
+    public Navigation navigate() {
+        return new Navigation() {
+            @Override
+            public void back() {
+                command(DriverCommand.GO_BACK);
+                if (!history.isEmpty()) {
+                    navigate(history.pop(), false);
+                }
+            }
+
+            @Override
+            public void forward() {
+                throw new UnsupportedOperationException("The fake driver cannot go forward!");
+            }
+
+            @Override
+            public void to(String url) {
+                get(url);
+            }
+
+            @Override
+            public void to(URL url) {
+                get(url.toString());
+            }
+
+            @Override
+            public void refresh() {
+                command(DriverCommand.REFRESH);
+                navigate(url, false);
+            }
+        };
+    }
+
+    @Override
+    public Options manage() {
+        throw new UnsupportedOperationException("The fake driver has no options!");
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        command(DriverCommand.SCREENSHOT);
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB), "png", png);
+            return target.convertFromPngBytes(png.toByteArray());
+        } catch (IOException e) {
+            throw new WebDriverException(e);
+        }
+    }
+
+    // Element lookup
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        command(DriverCommand.FIND_ELEMENTS);
+        return evaluate(document, toXPath(by, "//"));
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        command(DriverCommand.FIND_ELEMENT);
+        return first(evaluate(document, toXPath(by, "//")), by);
+    }
+
+    /**
+     * Translate a locator into the XPath the fake evaluates, from the `By.<method>: <value>` form of its description
+     * @param by the locator
+     * @param axis the axis to search along, `//` from the document or `.//` from an element
+     * @return the XPath expression
+     */
+    private static String toXPath(By by, String axis) {
+        String locator = by.toString();
+        int colon = locator.indexOf(": ");
+        String method = colon < 0 ? locator : locator.substring(0, colon);
+        String value = colon < 0 ? "" : locator.substring(colon + 2);
+        switch (method) {
+            case "By.xpath":
+                return value;
+            case "By.cssSelector":
+                return cssToXPath(value, axis);
+            case "By.id":
+                return axis + "*[@id=" + literal(value) + "]";
+            case "By.name":
+                return axis + "*[@name=" + literal(value) + "]";
+            case "By.className":
+                return axis + "*[contains(concat(' ', normalize-space(@class), ' '), " + literal(" " + value + " ") + ")]";
+            case "By.tagName":
+                return axis + value;
+            default:
+                throw new UnsupportedOperationException("The fake driver does not understand the locator: " + by);
+        }
+    }
+
+    private static String literal(String value) {
+        return value.contains("'") ? "\"" + value + "\"" : "'" + value + "'";
+    }
+
+    private static WebElement first(List<WebElement> elements, By by) {
+        if (elements.isEmpty()) {
+            throw new org.openqa.selenium.NoSuchElementException("Unable to locate element: " + by);
+        }
+        return elements.get(0);
+    }
+
+    private List<WebElement> evaluate(Node context, String xpath) {
+        try {
+            NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                    .evaluate(lowerCaseNames(xpath), context, XPathConstants.NODESET);
+            List<WebElement> elements = new ArrayList<>();
+            for (int i = 0; i < nodes.getLength(); ++i) {
+                if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    elements.add(new FakeElement((Element) nodes.item(i)));
+                }
+            }
+            return elements;
+        } catch (XPathExpressionException e) {
+            throw new InvalidSelectorException("Invalid xpath: " + xpath);
+        }
+    }
+
+    /**
+     * Lower-case an xpath outside of its string literals, so that tag names match case-insensitively as they do in an
+     *      HTML document; XPath's own functions and axes are all lower-case already
+     */
+    private static String lowerCaseNames(String xpath) {
+        StringBuilder lowered = new StringBuilder(xpath.length());
+        char quote = 0;
+        for (char c : xpath.toCharArray()) {
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+                lowered.append(c);
+            } else {
+                quote = c == '\'' || c == '"' ? c : 0;
+                lowered.append(Character.toLowerCase(c));
+            }
+        }
+        return lowered.toString();
+    }
+
+    /**
+     * Translate a CSS selector to an xpath.
+     *      Supports comma-separated groups of type, universal, `#id`, `.class` and `[attr]`, `[attr=value]` selectors
+     *      joined by the descendant and child combinators.
+     * @param css the CSS selector
+     * @param axis the axis of the first step, e.g. `//` from the document or `.//` from an element
+     * @return the equivalent xpath
+     */
+    static String cssToXPath(String css, String axis) {
+        StringBuilder xpath = new StringBuilder();
+        for (String group : css.split(",")) {
+            if (xpath.length() > 0) {
+                xpath.append(" | ");
+            }
+            xpath.append(axis);
+            String[] tokens = group.trim().replaceAll("\\s*>\\s*", " > ").split("\\s+");
+            boolean child = false;
+            for (int i = 0; i < tokens.length; ++i) {
+                if (tokens[i].equals(">")) {
+                    child = true;
+                    continue;
+                }
+                if (i > 0) {
+                    xpath.append(child ? "/" : "//");
+                }
+                xpath.append(compoundToXPath(tokens[i]));
+                child = false;
+            }
+        }
+        return xpath.toString();
+    }
+
+    private static String compoundToXPath(String compound) {
+        Matcher parts = COMPOUND_PART.matcher(compound);
+        StringBuilder step = new StringBuilder();
+        String tag = "*";
+        int end = 0;
+        while (end < compound.length() && parts.region(end, compound.length()).lookingAt()) {
+            if (parts.group(1) != null) {
+                if (end > 0) {
+                    break; // A type selector can only come first
+                }
+                tag = parts.group(1);
+            } else if (parts.group(2) != null) {
+                step.append("[@id='").append(parts.group(2)).append("']");
+            } else if (parts.group(3) != null) {
+                step.append("[contains(concat(' ', normalize-space(@class), ' '), ' ").append(parts.group(3)).append(" ')]");
+            } else if (parts.group(5) != null) {
+                step.append("[@").append(parts.group(4)).append("='").append(parts.group(5)).append("']");
+            } else if (parts.group(4) != null) {
+                step.append("[@").append(parts.group(4)).append("]");
+            }
+            end = parts.end();
+        }
+        if (end != compound.length()) {
+            throw new InvalidSelectorException("Unsupported css selector: " + compound);
+        }
+        return tag + step;
+    }
+
+    // Scripts
+
+    /**
+     * Answer the idle script as the request tracker it installs would: the first call only installs the tracker, and
+     *      requests the page started before then are only seen if the script reads them from the performance timeline
+     * @param script the idle script
+     * @param quiet the quiet window in milliseconds
+     * @return true if the page is idle
+     */
+    private boolean networkIdle(String script, long quiet) {
+        long now = System.currentTimeMillis();
+        if (trackerInstalled == null) {
+            trackerInstalled = now;
+            return false;
+        }
+
+        boolean timeline = script.contains("getEntriesByType");
+        long last = trackerInstalled;
+        for (long[] request : requests) {
+            boolean hooked = request[0] >= trackerInstalled;
+            if (request[1] > now) {
+                if (hooked || timeline) {
+                    return false;
+                }
+            } else if (hooked || timeline || request[1] >= trackerInstalled) { // Observed finishing by either means
+                last = Math.max(last, request[1]);
+            }
+        }
+        return now - last >= quiet;
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        command(DriverCommand.EXECUTE_SCRIPT);
+        if (script.contains("gPt=function")) {
+            if (args.length == 2 && args[0] instanceof String) {
+                List<String> xpaths = new ArrayList<>();
+                try {
+                    for (WebElement element : evaluate(document, toXPath(by((String) args[0], (String) args[1]), "//"))) {
+                        xpaths.add(gPt(((FakeElement) element).element));
+                    }
+                } catch (java.text.ParseException e) {
+                    throw new JavascriptException(e.getMessage());
+                }
+                return xpaths;
+            } else if (args[0] instanceof List) {
+                List<String> xpaths = new ArrayList<>();
+                for (Object element : (List<?>) args[0]) {
+                    xpaths.add(gPt(element(element).element));
+                }
+                return xpaths;
+            }
+            return gPt(element(args[0]).element);
+        } else if (script.contains("window.open(")) {
+            windows.put("tab-" + ++opened, new Window(new ArrayDeque<>(), "about:blank",
+                    parse("<html><head></head><body></body></html>"), null));
+            return null;
+        } else if (script.contains("window.location.href=")) {
+            navigate((String) args[0], true); // Navigations complete synchronously, rather than after the script
+            return null;
+        } else if (script.contains("outerHTML")) {
+            List<String> html = new ArrayList<>();
+            for (Object element : (List<?>) args[0]) {
+                html.add(serialize(element(element).element));
+            }
+            return html;
+        } else if (script.contains("localStorage.clear()")) {
+            return null; // Fixture pages keep no storage
+        } else if (script.contains("__ssNetwork")) {
+            return networkIdle(script, ((Number) args[0]).longValue());
+        } else if (script.contains("__ssLeft") && script.contains("document.readyState")) {
+            return true; // Navigations complete synchronously, so the new page is always loaded
+        } else if (script.contains("document.readyState")) {
+            return "complete";
+        } else if (script.contains("__ssNavigating")) {
+            return null;
+        } else if (script.contains("scrollIntoView")) {
+            element(args[0]);
+            return null;
+        } else if (script.contains("arguments[0].click()")) {
+            element(args[0]).activate();
+            return null;
+        } else if (script.contains("insertAdjacentHTML")) {
+            Matcher insert = INSERT_ADJACENT_HTML.matcher(script);
+            if (!insert.find()) {
+                throw new UnsupportedOperationException("Unsupported insertAdjacentHTML call: " + script);
+            }
+            element(args[0]).insertAdjacentHTML(insert.group(1), insert.group(2));
+            return null;
+        } else if (script.contains("getOwnPropertyDescriptor")) {
+            element(args[0]).element.setAttribute("value", String.valueOf(args[1]));
+            return null;
+        } else if (script.contains("history.back()")) {
+            if (!history.isEmpty()) {
+                navigate(history.pop(), false);
+            }
+            return null;
+        } else if (script.contains("location.reload()")) {
+            navigate(url, false);
+            return null;
+        }
+        throw new UnsupportedOperationException("The fake driver does not understand the script: " + script);
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        command(DriverCommand.EXECUTE_ASYNC_SCRIPT);
+        throw new UnsupportedOperationException("The fake driver does not understand the script: " + script);
+    }
+
+    private static By by(String selector, String name) throws java.text.ParseException {
+        return SeleniumScripter.by(selector, name);
+    }
+
+    private FakeElement element(Object argument) {
+        if (!(argument instanceof FakeElement)) {
+            throw new JavascriptException("Expected an element argument, but got: " + argument);
+        }
+        FakeElement element = (FakeElement) argument;
+        element.check();
+        return element;
+    }
+
+    /**
+     * The fake equivalent of the in-page xpath function of {@link SeleniumScripter}
+     */
+    private static String gPt(Element element) {
+        if (!element.getAttribute("id").isEmpty()) {
+            return "[@id=\"" + element.getAttribute("id") + "\"]";
+        }
+        if (element.getTagName().equals("body")) {
+            return "BODY";
+        }
+        int index = 1;
+        for (Node sibling = element.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (sibling.getNodeType() == Node.ELEMENT_NODE && ((Element) sibling).getTagName().equals(element.getTagName())) {
+                ++index;
+            }
+        }
+        return gPt((Element) element.getParentNode()) + "/" + element.getTagName().toUpperCase() + "[" + index + "]";
+    }
+
+    /**
+     * Submit the form an element belongs to, navigating to its action with the form values as the query string
+     */
+    private void submit(Element from) {
+        Node form = from;
+        while (form != null && !(form instanceof Element && ((Element) form).getTagName().equals("form"))) {
+            form = form.getParentNode();
+        }
+        if (form == null) {
+            return;
+        }
+
+        StringBuilder query = new StringBuilder();
+        NodeList fields = ((Element) form).getElementsByTagName("*");
+        for (int i = 0; i < fields.getLength(); ++i) {
+            Element field = (Element) fields.item(i);
+            if (!field.getAttribute("name").isEmpty() && field.hasAttribute("value")) {
+                try {
+                    query.append(query.length() == 0 ? "" : "&")
+                            .append(URLEncoder.encode(field.getAttribute("name"), "UTF-8")).append('=')
+                            .append(URLEncoder.encode(field.getAttribute("value"), "UTF-8"));
+                } catch (java.io.UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        String action = ((Element) form).getAttribute("action");
+        navigate(resolve(action.isEmpty() ? url : action) + (query.length() == 0 ? "" : "?" + query), true);
+    }
+
+    private String resolve(String href) {
+        return URI.create(url).resolve(href).toString();
+    }
+
+    /**
+     * An element of the current fixture page, which goes stale once the driver navigates away from it
+     */
+    private class FakeElement implements WebElement {
+        private final Element element;
+
+        FakeElement(Element element) {
+            this.element = element;
+        }
+
+        /**
+         * Throw a `StaleElementReferenceException` if the element is no longer in the current page
+         */
+        void check() {
+            Node node = element;
+            while (node != null && node != document) {
+                node = node.getParentNode();
+            }
+            if (node == null) {
+                throw new StaleElementReferenceException("The element is no longer attached to the page: " + element.getTagName());
+            }
+        }
+
+        /**
+         * Do whatever clicking the element would do
+         */
+        void activate() {
+            String raised = element.hasAttribute("data-alert") ? element.getAttribute("data-alert") : null;
+            String tag = element.getTagName();
+            String type = element.getAttribute("type");
+            if (tag.equals("a") && element.hasAttribute("href")) {
+                String href = element.getAttribute("href");
+                if (!href.startsWith("#") && !href.startsWith("javascript:")) {
+                    navigate(resolve(href), true);
+                }
+            } else if ((tag.equals("button") && !type.equals("button")) || (tag.equals("input") && type.equals("submit"))) {
+                FakeWebDriver.this.submit(element);
+            } else if (tag.equals("input") && (type.equals("checkbox") || type.equals("radio"))) {
+                if (element.hasAttribute("checked")) {
+                    element.removeAttribute("checked");
+                } else {
+                    element.setAttribute("checked", "checked");
+                }
+            } else if (tag.equals("option")) {
+                NodeList options = ((Element) element.getParentNode()).getElementsByTagName("option");
+                for (int i = 0; i < options.getLength(); ++i) {
+                    ((Element) options.item(i)).removeAttribute("selected");
+                }
+                element.setAttribute("selected", "selected");
+            }
+
+            // Raised after any navigation, as the page the element leads to is loading
+            if (raised != null) {
+                alert = raised;
+            }
+        }
+
+        void insertAdjacentHTML(String position, String html) {
+            Document fragment = parse("<fragment>" + html + "</fragment>");
+            List<Node> nodes = new ArrayList<>();
+            for (Node child = fragment.getDocumentElement().getFirstChild(); child != null; child = child.getNextSibling()) {
+                nodes.add(document.importNode(child, true));
+            }
+            for (Node node : nodes) {
+                switch (position.toLowerCase()) {
+                    case "afterbegin":
+                        element.insertBefore(node, element.getFirstChild());
+                        break;
+                    case "beforeend":
+                        element.appendChild(node);
+                        break;
+                    case "beforebegin":
+                        element.getParentNode().insertBefore(node, element);
+                        break;
+                    case "afterend":
+                        element.getParentNode().insertBefore(node, element.getNextSibling());
+                        break;
+                    default:
+                        throw new JavascriptException("Invalid insertAdjacentHTML position: " + position);
+                }
+            }
+        }
+
+        @Override
+        public void click() {
+            command(DriverCommand.CLICK_ELEMENT);
+            check();
+            if (!isVisible()) {
+                throw new ElementNotInteractableException("Element is not visible: " + element.getTagName());
+            }
+            activate();
+        }
+
+        @Override
+        public void submit() {
+            command(DriverCommand.SUBMIT_ELEMENT);
+            check();
+            FakeWebDriver.this.submit(element);
+        }
+
+        @Override
+        public void sendKeys(CharSequence... keysToSend) {
+            command(DriverCommand.SEND_KEYS_TO_ELEMENT);
+            check();
+            StringBuilder value = new StringBuilder(element.getAttribute("value"));
+            for (CharSequence keys : keysToSend) {
+                for (int i = 0; i < keys.length(); ++i) {
+                    char key = keys.charAt(i);
+                    if (key == Keys.ENTER.charAt(0) || key == Keys.RETURN.charAt(0)) {
+                        element.setAttribute("value", value.toString());
+                        FakeWebDriver.this.submit(element);
+                        return;
+                    } else if (key == Keys.BACK_SPACE.charAt(0)) {
+                        value.setLength(Math.max(0, value.length() - 1));
+                    } else if (key < Keys.NULL.charAt(0) || key > '\uE0FF') { // Ignore the other special keys
+                        value.append(key);
+                    }
+                }
+            }
+            element.setAttribute("value", value.toString());
+        }
+
+        @Override
+        public void clear() {
+            command(DriverCommand.CLEAR_ELEMENT);
+            check();
+            element.setAttribute("value", "");
+        }
+
+        @Override
+        public String getTagName() {
+            command(DriverCommand.GET_ELEMENT_TAG_NAME);
+            check();
+            return element.getTagName();
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            command(DriverCommand.GET_ELEMENT_ATTRIBUTE);
+            check();
+            if (name.equals("index") && element.getTagName().equals("option")) {
+                NodeList options = ((Element) element.getParentNode()).getElementsByTagName("option");
+                for (int i = 0; i < options.getLength(); ++i) {
+                    if (options.item(i) == element) {
+                        return Integer.toString(i);
+                    }
+                }
+            }
+            if (name.equals("value") && !element.hasAttribute("value") && element.getTagName().equals("option")) {
+                return element.getTextContent().trim();
+            }
+            return element.hasAttribute(name) ? element.getAttribute(name) : null;
+        }
+
+        @Override
+        public boolean isSelected() {
+            command(DriverCommand.IS_ELEMENT_SELECTED);
+            check();
+            return element.hasAttribute("selected") || element.hasAttribute("checked");
+        }
+
+        @Override
+        public boolean isEnabled() {
+            command(DriverCommand.IS_ELEMENT_ENABLED);
+            check();
+            return !element.hasAttribute("disabled");
+        }
+
+        @Override
+        public String getText() {
+            command(DriverCommand.GET_ELEMENT_TEXT);
+            check();
+            return element.getTextContent().replaceAll("\\s+", " ").trim();
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            command(DriverCommand.FIND_CHILD_ELEMENTS);
+            check();
+            return evaluate(element, toXPath(by, ".//"));
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            command(DriverCommand.FIND_CHILD_ELEMENT);
+            check();
+            return first(evaluate(element, toXPath(by, ".//")), by);
+        }
+
+        @Override
+        public boolean isDisplayed() {
+            command(DriverCommand.IS_ELEMENT_DISPLAYED);
+            check();
+            return isVisible();
+        }
+
+        private boolean isVisible() {
+            if (element.getTagName().equals("input") && element.getAttribute("type").equals("hidden")) {
+                return false;
+            }
+            for (Node node = element; node instanceof Element; node = node.getParentNode()) {
+                Element ancestor = (Element) node;
+                if (ancestor.hasAttribute("hidden") || ancestor.getAttribute("style").replace(" ", "").contains("display:none")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Point getLocation() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        public Dimension getSize() {
+            return new Dimension(0, 0);
+        }
+
+        @Override
+        public Rectangle getRect() {
+            return new Rectangle(getLocation(), getSize());
+        }
+
+        @Override
+        public String getCssValue(String propertyName) {
+            return "";
+        }
+
+        @Override
+        public <X> X getScreenshotAs(OutputType<X> target) {
+            throw new UnsupportedOperationException("The fake driver cannot take screenshots!");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FakeElement && ((FakeElement) o).element == element;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+
+        @Override
+        public String toString() {
+            return "FakeElement<" + element.getTagName() + ">";
+        }
+    }
+
+    /**
+     * The open alert
+     */
+    private class FakeAlert implements Alert {
+        @Override
+        public void dismiss() {
+            command(DriverCommand.DISMISS_ALERT);
+            alert = null;
+        }
+
+        @Override
+        public void accept() {
+            command(DriverCommand.ACCEPT_ALERT);
+            alert = null;
+        }
+
+        @Override
+        public String getText() {
+            command(DriverCommand.GET_ALERT_TEXT);
+            return alert;
+        }
+
+        @Override
+        public void sendKeys(String keysToSend) {
+            command(DriverCommand.SET_ALERT_VALUE);
+        }
+    }
+
+    /**
+     * The page state of a window other than the current one
+     */
+    private static class Window {
+        final Deque<String> history;
+        final String url;
+        final Document document;
+        final String alert;
+
+        Window(Deque<String> history, String url, Document document, String alert) {
+            this.history = history;
+            this.url = url;
+            this.document = document;
+            this.alert = alert;
+        }
+    }
+}
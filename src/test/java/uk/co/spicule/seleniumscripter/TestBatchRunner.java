@@ -0,0 +1,121 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class TestBatchRunner {
+    private static final String PAGE = "https://example.com/page.html";
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void isolatesFailingJobsAndReportsEveryJob() throws Exception {
+        List<FakeRemoteWebDriver> created = new CopyOnWriteArrayList<>();
+        DriverFactory factory = new DriverFactory(Collections.emptyList()) {
+            @Override
+            public RemoteWebDriver generateDriver(String browserType) {
+                FakeRemoteWebDriver driver = new FakeRemoteWebDriver(new FakeWebDriver()
+                        .addPage(PAGE, "<html><head></head><body><h1>Page</h1></body></html>"));
+                created.add(driver);
+                return driver;
+            }
+        };
+        Map<String, Object> click = new HashMap<>();
+        click.put("operation", "click");
+        click.put("selector", "id");
+        click.put("name", "missing");
+        List<BatchRunner.Job> jobs = Arrays.asList(
+                new BatchRunner.Job("failing", PAGE, Collections.singletonMap("a", click)),
+                new BatchRunner.Job("passing", PAGE, Collections.singletonMap("a",
+                        Collections.singletonMap("operation", "snapshot"))));
+
+        File report = new File(directory, "run-report.json");
+        try (DriverPool pool = new DriverPool(factory, BrowserType.CHROME, 1) {
+            @Override
+            protected boolean clearBrowsingData(RemoteWebDriver driver) {
+                driver.manage().deleteAllCookies(); // The fake only has the one site
+                return true;
+            }
+        }) {
+            BatchRunner runner = new BatchRunner(pool);
+            runner.setOutputPath(directory.getPath());
+            List<BatchRunner.Result> results = runner.run(jobs);
+            runner.writeReport(results, 100, report);
+
+            Assertions.assertFalse(results.get(0).isSuccessful());
+            Assertions.assertTrue(results.get(0).getFailure().startsWith("NoSuchElementException"), results.get(0).getFailure());
+            Assertions.assertTrue(results.get(1).isSuccessful());
+            Assertions.assertEquals(1, results.get(1).getSnapshots());
+
+            // Both jobs ran on the one session, which was handed back uninstrumented each time
+            Assertions.assertEquals(1, created.size());
+            Assertions.assertEquals(2, pool.getMetrics().getRecycled());
+            Assertions.assertSame(created.get(0).getCommandExecutor(),
+                    ScriptMetrics.unwrap(created.get(0).getCommandExecutor()));
+        }
+
+        JSONObject json;
+        try (Reader in = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8)) {
+            json = (JSONObject) new JSONParser().parse(in);
+        }
+        Assertions.assertEquals(1L, json.get("succeeded"));
+        Assertions.assertEquals(1L, json.get("failed"));
+        Assertions.assertEquals(1L, json.get("snapshots"));
+        JSONArray reported = (JSONArray) json.get("jobs");
+        Assertions.assertEquals("failing", ((JSONObject) reported.get(0)).get("name"));
+        Assertions.assertEquals("failed", ((JSONObject) reported.get(0)).get("status"));
+        Assertions.assertEquals("succeeded", ((JSONObject) reported.get(1)).get("status"));
+    }
+
+    @Test
+    public void loadsJobsWithScriptsRelativeToTheManifest() throws Exception {
+        write("scripts/cmsgov.yaml", "a:\n  operation: snapshot\n");
+        File manifest = write("manifest.yaml", "concurrency: 2\n"
+                + "jobs:\n"
+                + "  - name: cmsgov\n"
+                + "    url: https://www.cms.gov/\n"
+                + "    script: scripts/cmsgov.yaml\n");
+
+        List<BatchRunner.Job> jobs = BatchRunner.loadJobs(manifest);
+
+        Assertions.assertEquals(1, jobs.size());
+        Assertions.assertEquals("https://www.cms.gov/", jobs.get(0).getUrl());
+        Assertions.assertTrue(jobs.get(0).getScript().containsKey("a"));
+    }
+
+    @Test
+    public void rejectsDuplicateJobNames() throws Exception {
+        write("a.yaml", "a:\n  operation: snapshot\n");
+        File manifest = write("manifest.yaml", "jobs:\n"
+                + "  - {name: a, url: 'https://example.com/', script: a.yaml}\n"
+                + "  - {name: a, url: 'https://example.org/', script: a.yaml}\n");
+
+        Assertions.assertThrows(ParseException.class, () -> BatchRunner.loadJobs(manifest));
+    }
+
+    private File write(String path, String content) throws Exception {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
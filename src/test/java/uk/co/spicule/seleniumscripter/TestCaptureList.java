@@ -0,0 +1,64 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Iterator;
+
+public class TestCaptureList {
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    public void appendsWhileIterating() {
+        CaptureList<Integer> list = new CaptureList<>();
+        for (int i = 0; i < CaptureList.CHUNK_SIZE * 3 + 7; ++i) {
+            list.add(i);
+        }
+
+        int seen = 0;
+        for (Integer i : list) {
+            Assertions.assertEquals(seen++, i);
+            list.add(-1); // Not seen by the running iteration
+        }
+        Assertions.assertEquals(CaptureList.CHUNK_SIZE * 3 + 7, seen);
+        Assertions.assertEquals(seen * 2, list.size());
+    }
+
+    @Test
+    public void spillsOldestChunksAndReadsThemBack() {
+        CaptureList<String> list = new CaptureList<>();
+        list.setDirectory(spillDirectory);
+        list.setSpillThreshold(CaptureList.CHUNK_SIZE);
+        for (int i = 0; i < CaptureList.CHUNK_SIZE * 4; ++i) {
+            list.add("item-" + i);
+        }
+
+        Assertions.assertEquals(CaptureList.CHUNK_SIZE * 3, list.getSpilledCount());
+        Assertions.assertEquals(1, spillDirectory.listFiles().length);
+        Iterator<String> items = list.iterator();
+        for (int i = 0; i < list.size(); ++i) {
+            Assertions.assertEquals("item-" + i, items.next());
+        }
+
+        list.close();
+        Assertions.assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void forksAppendIndependently() {
+        CaptureList<Integer> list = new CaptureList<>();
+        for (int i = 0; i < CaptureList.CHUNK_SIZE + 1; ++i) {
+            list.add(i);
+        }
+
+        CaptureList<Integer> fork = list.fork();
+        list.add(1);
+        fork.add(2);
+
+        Assertions.assertEquals(Integer.valueOf(1), list.get(CaptureList.CHUNK_SIZE + 1));
+        Assertions.assertEquals(Integer.valueOf(2), fork.get(CaptureList.CHUNK_SIZE + 1));
+    }
+}
@@ -0,0 +1,192 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DriverCommand;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestCheckpoint {
+    private static final String URL = "https://example.com/items.html";
+
+    @TempDir
+    File checkpointDirectory;
+
+    @Test
+    public void resumesFromTheLastCompletedIteration() throws Exception {
+        // The browser dies while taking the third snapshot
+        FakeWebDriver crashing = new FakeWebDriver() {
+            private int sources = 0;
+
+            @Override
+            public String getPageSource() {
+                if (++sources == 3) {
+                    throw new WebDriverException("The browser has crashed!");
+                }
+                return super.getPageSource();
+            }
+        };
+        SeleniumScripter first = scripter(crashing);
+        Assertions.assertThrows(WebDriverException.class, () -> first.runScript(script()));
+        Assertions.assertTrue(new File(checkpointDirectory, Checkpointer.STATE_FILE).isFile());
+
+        FakeWebDriver driver = new FakeWebDriver();
+        SeleniumScripter resumed = scripter(driver);
+        Assertions.assertTrue(resumed.resumeFromCheckpoint());
+        resumed.runScript(script());
+
+        Assertions.assertEquals(5, resumed.getSnapshots().size());
+        Assertions.assertEquals(first.getSnapshots().get(1).getName(), resumed.getSnapshots().get(1).getName());
+        Assertions.assertEquals(3, driver.getCommandCounts().get(DriverCommand.GET_PAGE_SOURCE)); // Only the iterations left
+        Assertions.assertFalse(new File(checkpointDirectory, Checkpointer.STATE_FILE).exists());
+    }
+
+    @Test
+    public void resumesATabsLoopWhichFinishedOutOfOrder() throws Exception {
+        // The first page is not ready until the second has been snapshotted, and the browser dies snapshotting it
+        FakeWebDriver crashing = new FakeWebDriver() {
+            private int sources = 0;
+
+            @Override
+            public Object executeScript(String script, Object... args) {
+                if (script.contains("document.readyState") && sources == 0 && getCurrentUrl().endsWith("detail-0.html")) {
+                    return false;
+                }
+                return super.executeScript(script, args);
+            }
+
+            @Override
+            public String getPageSource() {
+                if (++sources == 2) {
+                    throw new WebDriverException("The browser has crashed!");
+                }
+                return super.getPageSource();
+            }
+        };
+        SeleniumScripter first = tabsScripter(crashing);
+        Assertions.assertThrows(WebDriverException.class, () -> first.runScript(tabsScript()));
+        Assertions.assertEquals(1, first.getSnapshots().size());
+
+        FakeWebDriver driver = new FakeWebDriver();
+        SeleniumScripter resumed = tabsScripter(driver);
+        Assertions.assertTrue(resumed.resumeFromCheckpoint());
+        resumed.runScript(tabsScript());
+
+        Set<String> headings = new HashSet<>();
+        for (Snapshot taken : resumed.getSnapshots()) {
+            headings.add(taken.getContent().replaceAll("(?s).*<h1>(.*)</h1>.*", "$1"));
+        }
+        Assertions.assertEquals(4, resumed.getSnapshots().size());
+        Assertions.assertEquals(4, headings.size());
+        Assertions.assertTrue(resumed.getSnapshots().get(0).getContent().contains("Detail 1"));
+        Assertions.assertEquals(3, driver.getCommandCounts().get(DriverCommand.GET_PAGE_SOURCE)); // Only the iterations left
+    }
+
+    @Test
+    public void logsCaptureListsIncrementally() throws Exception {
+        Map<String, List<?>> captureLists = new HashMap<>();
+        Checkpointer checkpointer = new Checkpointer(checkpointDirectory, new HashMap<>(), captureLists, new ArrayList<>());
+        checkpointer.setInterval(0);
+        CaptureList<Object> ids = new CaptureList<>();
+        ids.setDirectory(checkpointDirectory);
+        ids.setSpillThreshold(CaptureList.CHUNK_SIZE);
+        for (int i = 0; i < 3000; ++i) {
+            ids.add("id-" + i);
+        }
+        captureLists.put("ids", ids);
+
+        Instruction loop = new ScriptCompiler().compile(script()).getInstructions().get(0);
+        checkpointer.enter(loop, 5);
+        checkpointer.completed();
+        File log = new File(checkpointDirectory, "capturelist-0.log");
+        long written = log.length();
+        for (int i = 3000; i < 3500; ++i) {
+            ids.add("id-" + i);
+        }
+        checkpointer.completed();
+        Assertions.assertTrue(log.length() - written < written / 2, "The whole list was logged again");
+        ids.add("id-lost"); // After the last checkpoint
+
+        Map<String, List<?>> restoredLists = new HashMap<>();
+        Checkpointer resumed = new Checkpointer(checkpointDirectory, new HashMap<>(), restoredLists, new ArrayList<>());
+        Assertions.assertTrue(resumed.load());
+        Assertions.assertEquals(2, resumed.enter(loop, 5));
+
+        CaptureList<?> restored = (CaptureList<?>) restoredLists.get("ids");
+        Assertions.assertEquals(3500, restored.size());
+        Assertions.assertEquals("id-0", restored.get(0));
+        Assertions.assertEquals("id-3499", restored.get(3499));
+        Assertions.assertEquals(CaptureList.CHUNK_SIZE, restored.getSpillThreshold());
+        ids.close();
+        restored.close();
+    }
+
+    private SeleniumScripter scripter(FakeWebDriver driver) throws Exception {
+        StringBuilder items = new StringBuilder("<html><head></head><body><ul>");
+        for (int i = 0; i < 5; ++i) {
+            items.append("<li>Item ").append(i).append("</li>");
+        }
+        driver.addPage(URL, items.append("</ul></body></html>").toString());
+        driver.get(URL);
+
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+        scripter.setCheckpointDirectory(checkpointDirectory);
+        scripter.setCheckpointInterval(0);
+        return scripter;
+    }
+
+    private SeleniumScripter tabsScripter(FakeWebDriver driver) throws Exception {
+        StringBuilder list = new StringBuilder("<html><head></head><body><ul>");
+        for (int i = 0; i < 4; ++i) {
+            String url = "https://example.com/detail-" + i + ".html";
+            list.append("<li><a href=\"").append(url).append("\">Detail ").append(i).append("</a></li>");
+            driver.addPage(url, "<html><head></head><body><h1>Detail " + i + "</h1></body></html>");
+        }
+        driver.addPage(URL, list.append("</ul></body></html>").toString());
+        driver.get(URL);
+
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+        scripter.setCheckpointDirectory(checkpointDirectory);
+        scripter.setCheckpointInterval(0);
+        return scripter;
+    }
+
+    private static Map<String, Object> tabsScript() {
+        Map<String, Object> forEach = new HashMap<>();
+        forEach.put("selector", "xpath");
+        forEach.put("name", "//a");
+        forEach.put("variable", "detail");
+
+        Map<String, Object> loop = new HashMap<>();
+        loop.put("operation", "for");
+        loop.put("forEach", forEach);
+        loop.put("tabs", Collections.singletonMap("size", 2));
+        loop.put("do", Collections.singletonList(Collections.singletonMap("operation", "snapshot")));
+        return Collections.singletonMap("details", loop);
+    }
+
+    private static Map<String, Object> script() {
+        Map<String, Object> forEach = new HashMap<>();
+        forEach.put("selector", "xpath");
+        forEach.put("name", "//li");
+        forEach.put("variable", "item");
+
+        List<Object> body = new ArrayList<>();
+        body.add(Collections.singletonMap("operation", "snapshot"));
+
+        Map<String, Object> loop = new HashMap<>();
+        loop.put("operation", "for");
+        loop.put("forEach", forEach);
+        loop.put("do", body);
+        return Collections.singletonMap("items", loop);
+    }
+}
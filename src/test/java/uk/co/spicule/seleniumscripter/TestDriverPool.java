@@ -0,0 +1,97 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class TestDriverPool {
+    private static final String PAGE = "https://example.com/page.html";
+
+    private final List<FakeRemoteWebDriver> created = new CopyOnWriteArrayList<>(); // Every session the factory made
+    private final DriverFactory factory = new DriverFactory(Collections.emptyList()) {
+        @Override
+        public RemoteWebDriver generateDriver(String browserType) {
+            FakeRemoteWebDriver driver = new FakeRemoteWebDriver(new FakeWebDriver()
+                    .addPage(PAGE, "<html><head></head><body><p>Page</p></body></html>"));
+            created.add(driver);
+            return driver;
+        }
+    };
+
+    @Test
+    public void resetsSessionsWhenTheyAreReleased() throws Exception {
+        try (DriverPool pool = new DriverPool(factory, BrowserType.CHROME, 1) {
+            @Override
+            protected boolean clearBrowsingData(RemoteWebDriver driver) {
+                driver.manage().deleteAllCookies(); // The fake only has the one site
+                return true;
+            }
+        }) {
+            Assertions.assertTrue(pool.awaitWarm(10, TimeUnit.SECONDS));
+
+            FakeRemoteWebDriver driver = (FakeRemoteWebDriver) pool.lease();
+            driver.get(PAGE);
+            driver.executeScript("window.open('about:blank','_blank');");
+            pool.release(driver);
+
+            Assertions.assertSame(driver, pool.lease(), "The session should be reused rather than relaunched");
+            Assertions.assertEquals(1, driver.getWindowHandles().size());
+            Assertions.assertEquals("about:blank", driver.getCurrentUrl());
+            Assertions.assertEquals(1, driver.getCookieClears());
+
+            DriverPool.Metrics metrics = pool.getMetrics();
+            Assertions.assertEquals(2, metrics.getLeases());
+            Assertions.assertEquals(1, metrics.getSessionsCreated());
+            Assertions.assertEquals(1, metrics.getRecycled());
+            Assertions.assertEquals(1, metrics.getLeased());
+            Assertions.assertEquals(0, metrics.getIdle());
+        }
+    }
+
+    @Test
+    public void replacesSessionsWhoseCookiesCantAllBeCleared() throws Exception {
+        try (DriverPool pool = new DriverPool(factory, BrowserType.FIREFOX, 1)) {
+            FakeRemoteWebDriver driver = (FakeRemoteWebDriver) pool.lease(10, TimeUnit.SECONDS);
+            driver.get(PAGE);
+            pool.release(driver);
+
+            Assertions.assertTrue(driver.isQuit());
+            Assertions.assertNotSame(driver, pool.lease(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, pool.getMetrics().getRecycled());
+            Assertions.assertEquals(2, pool.getMetrics().getSessionsCreated());
+        }
+    }
+
+    @Test
+    public void evictsSessionsWhichDiedWhileIdle() throws Exception {
+        try (DriverPool pool = new DriverPool(factory, BrowserType.CHROME, 1)) {
+            Assertions.assertTrue(pool.awaitWarm(10, TimeUnit.SECONDS));
+            created.get(0).crash();
+
+            RemoteWebDriver driver = pool.lease(10, TimeUnit.SECONDS);
+
+            Assertions.assertNotSame(created.get(0), driver);
+            Assertions.assertTrue(created.get(0).isQuit());
+            Assertions.assertEquals(1, pool.getMetrics().getEvicted());
+            Assertions.assertEquals(2, pool.getMetrics().getSessionsCreated());
+        }
+    }
+
+    @Test
+    public void timesOutWhenEverySessionIsLeased() throws Exception {
+        try (DriverPool pool = new DriverPool(factory, BrowserType.CHROME, 1)) {
+            pool.lease(10, TimeUnit.SECONDS);
+
+            Assertions.assertThrows(TimeoutException.class, () -> pool.lease(100, TimeUnit.MILLISECONDS));
+            Assertions.assertEquals(1, pool.getMetrics().getLeases());
+        }
+        Assertions.assertEquals(1, created.size());
+    }
+}
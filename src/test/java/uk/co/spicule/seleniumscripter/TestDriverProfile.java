@@ -0,0 +1,31 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestDriverProfile {
+    @Test
+    public void selectsProfilesByName() throws Exception {
+        DriverFactory factory = new DriverFactory(Collections.emptyList());
+        Assertions.assertEquals(DriverProfile.DEFAULT, factory.getProfile().getName());
+        Assertions.assertTrue(factory.getProfile().getBlockedUrlPatterns().isEmpty());
+
+        factory.setProfile(DriverProfile.SCRAPE);
+        Assertions.assertTrue(factory.getProfile().isHeadless());
+        Assertions.assertTrue(factory.getProfile().getBlockedUrlPatterns().contains("*.woff2"));
+        Assertions.assertThrows(ParseException.class, () -> factory.setProfile("unknown"));
+    }
+
+    @Test
+    public void blocksHostsAndTheirSubdomains() {
+        DriverProfile profile = new DriverProfile("custom");
+        profile.setBlockedHosts(Arrays.asList("doubleclick.net", "hotjar.com"));
+
+        Assertions.assertEquals("MAP doubleclick.net ~NOTFOUND, MAP *.doubleclick.net ~NOTFOUND, "
+                + "MAP hotjar.com ~NOTFOUND, MAP *.hotjar.com ~NOTFOUND", profile.getHostResolverRules());
+    }
+}
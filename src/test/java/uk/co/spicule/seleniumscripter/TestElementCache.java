@@ -0,0 +1,90 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestElementCache {
+    private static final String PAGE = "https://example.com/";
+
+    @Test
+    public void reusesTheElementAWaitFound() throws Exception {
+        FakeWebDriver driver = driver();
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> script = new HashMap<>();
+        script.put("a", operation("wait", "search"));
+        script.put("b", keys());
+        scripter.runScript(script);
+
+        Assertions.assertEquals(1, scripter.getElementCacheHits());
+        Assertions.assertEquals(0, scripter.getElementCacheMisses());
+        Assertions.assertEquals("aripiprazole", driver.findElement(By.id("search")).getAttribute("value"));
+    }
+
+    @Test
+    public void forgetsElementsAfterAClick() throws Exception {
+        FakeWebDriver driver = driver();
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> script = new HashMap<>();
+        script.put("a", operation("wait", "search"));
+        script.put("b", operation("click", "toggle"));
+        script.put("c", keys());
+        scripter.runScript(script);
+
+        Assertions.assertEquals(0, scripter.getElementCacheHits());
+        Assertions.assertEquals(2, scripter.getElementCacheMisses());
+    }
+
+    @Test
+    public void looksUpStaleElementsAgain() {
+        FakeWebDriver driver = driver();
+        ElementCache cache = new ElementCache();
+        By by = By.id("search");
+
+        WebElement first = cache.use(driver, by, (e) -> e);
+        driver.get(PAGE); // Re-render the page behind the cache's back
+        String value = cache.use(driver, by, (e) -> e.getAttribute("value"));
+
+        Assertions.assertEquals("old", value);
+        Assertions.assertNotSame(first, cache.use(driver, by, (e) -> e));
+        Assertions.assertEquals(1, cache.getStale());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void keepsCachingLocatorsOnceTheCacheIsFull() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            SeleniumScripter.by("id", "row-" + i);
+        }
+        Assertions.assertSame(SeleniumScripter.by("id", "last-row"), SeleniumScripter.by("id", "last-row"));
+    }
+
+    private static FakeWebDriver driver() {
+        FakeWebDriver driver = new FakeWebDriver().addPage(PAGE, "<html><head></head><body>"
+                + "<input id=\"search\" value=\"old\"/><button id=\"toggle\" type=\"button\">Toggle</button></body></html>");
+        driver.get(PAGE);
+        return driver;
+    }
+
+    private static Map<String, Object> operation(String operation, String id) {
+        Map<String, Object> instruction = new HashMap<>();
+        instruction.put("operation", operation);
+        instruction.put("selector", "id");
+        instruction.put("name", id);
+        return instruction;
+    }
+
+    private static Map<String, Object> keys() {
+        Map<String, Object> keys = operation("keys", "search");
+        keys.put("value", "aripiprazole");
+        keys.put("mode", "bulk");
+        return keys;
+    }
+}
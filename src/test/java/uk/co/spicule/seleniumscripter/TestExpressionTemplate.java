@@ -0,0 +1,44 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestExpressionTemplate {
+    @Test
+    public void rendersLiteralAndVariableSegments() throws ParseException {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("row", "[@id=\"results\"]/TR[2]");
+        variables.put("i", 3);
+
+        Assertions.assertEquals("//*[@id=\"results\"]/TR[2]/td[3]/a[3]",
+                ExpressionTemplate.of("//*{row}/td[{i}]/a[{i}]").render(variables));
+        Assertions.assertEquals("{3}", ExpressionTemplate.of("{{i}}").render(variables));
+        Assertions.assertEquals("//a[@class='{not a variable}']",
+                ExpressionTemplate.of("//a[@class='{not a variable}']").render(variables));
+    }
+
+    @Test
+    public void cachesTemplatesPerExpression() {
+        Assertions.assertSame(ExpressionTemplate.of("//*{row}"), ExpressionTemplate.of("//*{row}"));
+        Assertions.assertFalse(ExpressionTemplate.of("//table").hasVariables());
+    }
+
+    @Test
+    public void keepsCachingTemplatesOnceTheCacheIsFull() {
+        for (int i = 0; i < 5000; i++) {
+            ExpressionTemplate.of("//tr[" + i + "]/td[{i}]");
+        }
+        Assertions.assertSame(ExpressionTemplate.of("//tfoot/td[{i}]"), ExpressionTemplate.of("//tfoot/td[{i}]"));
+    }
+
+    @Test
+    public void rejectsUninstantiatedVariables() {
+        ParseException e = Assertions.assertThrows(ParseException.class,
+                () -> ExpressionTemplate.of("//*{missing}").render(new HashMap<>()));
+        Assertions.assertEquals("Variable `missing` not instantiated!", e.getMessage());
+    }
+}
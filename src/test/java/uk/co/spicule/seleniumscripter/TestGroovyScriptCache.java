@@ -0,0 +1,46 @@
+package uk.co.spicule.seleniumscripter;
+
+import groovy.lang.Binding;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestGroovyScriptCache {
+    @Test
+    public void reusesCompiledScriptsWithFreshBindings() {
+        GroovyScriptCache cache = new GroovyScriptCache(2, Long.MAX_VALUE);
+        Binding first = new Binding();
+        first.setProperty("x", 2);
+        Binding second = new Binding();
+        second.setProperty("x", 5);
+
+        Assertions.assertEquals(4, cache.evaluate("y = x * 2; return y", first));
+        Assertions.assertEquals(10, cache.evaluate("y = x * 2; return y", second));
+        Assertions.assertEquals(4, first.getVariable("y")); // Each run writes to its own binding
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedScripts() {
+        GroovyScriptCache cache = new GroovyScriptCache(2, Long.MAX_VALUE);
+        Class<?> one = cache.compile("return 1");
+        cache.compile("return 2");
+        cache.compile("return 1");
+        cache.compile("return 3"); // Evicts `return 2`
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(one, cache.compile("return 1"));
+        cache.compile("return 2");
+        Assertions.assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void trimsWhenMetaspaceIsOverTheLimit() {
+        GroovyScriptCache cache = new GroovyScriptCache(8, 0);
+        for (int i = 0; i < 4; ++i) {
+            cache.compile("return " + i);
+        }
+
+        Assertions.assertTrue(cache.size() < 4);
+    }
+}
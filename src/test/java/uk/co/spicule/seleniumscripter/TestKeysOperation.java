@@ -0,0 +1,35 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestKeysOperation {
+    @Test
+    public void bulkAndScriptModesReturnOnceTheValueIsSet() throws Exception {
+        for (String mode : new String[] {"bulk", "script"}) {
+            FakeWebDriver driver = new FakeWebDriver().addPage("https://example.com/",
+                    "<html><head></head><body><input id=\"search\" value=\"old\"/></body></html>");
+            driver.get("https://example.com/");
+            SeleniumScripter scripter = new SeleniumScripter(driver);
+
+            Map<String, Object> keys = new HashMap<>();
+            keys.put("operation", "keys");
+            keys.put("selector", "id");
+            keys.put("name", "search");
+            keys.put("value", "aripiprazole");
+            keys.put("mode", mode);
+            keys.put("postDelay", 5000);
+
+            long start = System.currentTimeMillis();
+            scripter.runScript(Collections.singletonMap("search", keys));
+
+            Assertions.assertTrue(System.currentTimeMillis() - start < 2500, mode + " waited out the post-delay");
+            Assertions.assertEquals("aripiprazole", driver.findElement(By.id("search")).getAttribute("value"), mode);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.TimeoutException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestNetworkIdle {
+    @Test
+    public void waitsForRequestsStartedBeforeTheTrackerWasInstalled() throws Exception {
+        FakeWebDriver driver = driver();
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        driver.startRequest(600);
+        long start = System.currentTimeMillis();
+        scripter.runScript(Collections.singletonMap("idle", idleWait(10)));
+
+        long waited = System.currentTimeMillis() - start;
+        Assertions.assertTrue(waited >= 600, "Returned after " + waited + "ms, before the request finished");
+        Assertions.assertTrue(waited < 5000, "Waited " + waited + "ms, well past the quiet window");
+    }
+
+    @Test
+    public void waitsForRequestsStartedAfterTheTrackerWasInstalled() throws Exception {
+        FakeWebDriver driver = driver();
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+        scripter.runScript(Collections.singletonMap("idle", idleWait(10))); // Installs the tracker
+
+        driver.startRequest(600);
+        long start = System.currentTimeMillis();
+        scripter.runScript(Collections.singletonMap("idle", idleWait(10)));
+
+        long waited = System.currentTimeMillis() - start;
+        Assertions.assertTrue(waited >= 600, "Returned after " + waited + "ms, before the request finished");
+    }
+
+    @Test
+    public void failsWhenThePageNeverGoesIdle() {
+        FakeWebDriver driver = driver();
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        driver.startRequest(60000);
+        Assertions.assertThrows(TimeoutException.class,
+                () -> scripter.runScript(Collections.singletonMap("idle", idleWait(1))));
+    }
+
+    private static FakeWebDriver driver() {
+        FakeWebDriver driver = new FakeWebDriver().addPage("https://example.com/", "<html><head></head><body><p>Page</p></body></html>");
+        driver.get("https://example.com/");
+        return driver;
+    }
+
+    private static Map<String, Object> idleWait(int timeout) {
+        Map<String, Object> wait = new HashMap<>();
+        wait.put("operation", "wait");
+        wait.put("until", "networkidle");
+        wait.put("quiet", 100);
+        wait.put("timeout", timeout);
+        return wait;
+    }
+}
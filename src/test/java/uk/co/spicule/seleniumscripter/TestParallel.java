@@ -0,0 +1,120 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.BrowserType;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestParallel {
+    private static final String LIST = "https://example.com/list.html";
+    private static final int ITEMS = 6;
+
+    private static final String SCRIPT = "list:\n"
+            + "  operation: parallel\n"
+            + "  forEach: {selector: xpath, name: '//li/a', variable: item}\n"
+            + "  subscript: item\n"
+            + "  parallelism: 3\n"
+            + "subscripts:\n"
+            + "  item:\n"
+            + "    a: {operation: restore, url: '" + LIST + "'}\n"
+            + "    b: {operation: click, selector: xpath, name: '/html/{item}'}\n"
+            + "    c: {operation: snapshot, selector: xpath, name: '//h1'}\n";
+
+    @Test
+    public void mergesSnapshotsInItemOrder() throws Exception {
+        AtomicInteger sessions = new AtomicInteger();
+        SeleniumScripter scripter = new SeleniumScripter(site(false));
+        scripter.setDriverFactory(new DriverFactory(Collections.emptyList()) {
+            @Override
+            public RemoteWebDriver generateDriver(String browserType) {
+                FakeWebDriver session = site(false);
+                session.setLatency(DriverCommand.CLICK_ELEMENT, 40 - 20 * (sessions.getAndIncrement() % 3)); // Finish out of order
+                return new FakeRemoteWebDriver(session);
+            }
+        }, BrowserType.CHROME);
+
+        scripter.runScript(script(""));
+
+        List<Snapshot> snapshots = scripter.getSnapshots();
+        Assertions.assertEquals(ITEMS, snapshots.size());
+        for (int i = 0; i < ITEMS; ++i) {
+            Assertions.assertTrue(snapshots.get(i).getContent().contains("Item " + (i + 1)), snapshots.get(i).getContent());
+        }
+        Assertions.assertEquals(3, sessions.get());
+    }
+
+    @Test
+    public void exitOnErrorStopsTakingItems() throws Exception {
+        SeleniumScripter scripter = new SeleniumScripter(site(true));
+        scripter.runScript(script(""));
+
+        // The items before the failed one are merged, and the script carries on
+        Assertions.assertEquals(2, scripter.getSnapshots().size());
+        Assertions.assertTrue(scripter.getSnapshots().get(1).getContent().contains("Item 2"));
+
+        SeleniumScripter lenient = new SeleniumScripter(site(true));
+        lenient.runScript(script("  exitOnError: false\n"));
+        Assertions.assertEquals(ITEMS - 1, lenient.getSnapshots().size());
+        Assertions.assertTrue(lenient.getSnapshots().get(2).getContent().contains("Item 4"));
+    }
+
+    @Test
+    public void failsWhenNoSessionStarts() throws Exception {
+        SeleniumScripter scripter = new SeleniumScripter(site(false));
+        scripter.setDriverFactory(new DriverFactory(Collections.emptyList()) {
+            @Override
+            public RemoteWebDriver generateDriver(String browserType) {
+                throw new WebDriverException("The driver executable does not exist!");
+            }
+        }, BrowserType.CHROME);
+
+        Assertions.assertThrows(WebDriverException.class, () -> scripter.runScript(script("  failOnSessionError: true\n")));
+
+        // Otherwise the operation only warns that items were not run
+        scripter.runScript(script(""));
+        Assertions.assertTrue(scripter.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void runsOnTheCurrentDriverWithoutAFactoryOrPool() throws Exception {
+        FakeWebDriver driver = site(false);
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        scripter.runScript(script(""));
+
+        Assertions.assertEquals(ITEMS, scripter.getSnapshots().size());
+        Assertions.assertTrue(scripter.getSnapshots().get(ITEMS - 1).getContent().contains("Item " + ITEMS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> script(String extraFields) {
+        return (Map<String, Object>) new Yaml().load(SCRIPT.replace("  parallelism: 3\n", "  parallelism: 3\n" + extraFields));
+    }
+
+    /**
+     * @param broken leave the heading off of the third item's page
+     * @return a driver on a list page linking to one page per item
+     */
+    private static FakeWebDriver site(boolean broken) {
+        FakeWebDriver driver = new FakeWebDriver();
+        StringBuilder list = new StringBuilder("<html><head></head><body><ul>");
+        for (int i = 1; i <= ITEMS; ++i) {
+            String url = "https://example.com/item-" + i + ".html";
+            list.append("<li><a href=\"").append(url).append("\">").append(i).append("</a></li>");
+            driver.addPage(url, broken && i == 3
+                    ? "<html><head></head><body><p>Gone</p></body></html>"
+                    : "<html><head></head><body><h1>Item " + i + "</h1></body></html>");
+        }
+        driver.addPage(LIST, list.append("</ul></body></html>").toString());
+        driver.get(LIST);
+        return driver;
+    }
+}
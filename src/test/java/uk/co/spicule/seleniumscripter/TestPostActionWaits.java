@@ -0,0 +1,44 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestPostActionWaits {
+    private static final String LIST = "https://example.com/list.html";
+    private static final String DETAIL = "https://example.com/detail.html";
+
+    @Test
+    public void clickReturnsOnceTheUrlChanges() throws Exception {
+        assertReturnsEarly("urlchanged");
+    }
+
+    @Test
+    public void clickReturnsOnceTheElementGoesStale() throws Exception {
+        assertReturnsEarly("stale");
+    }
+
+    private static void assertReturnsEarly(String condition) throws Exception {
+        FakeWebDriver driver = new FakeWebDriver()
+                .addPage(LIST, "<html><head></head><body><a id=\"next\" href=\"" + DETAIL + "\">Next</a></body></html>")
+                .addPage(DETAIL, "<html><head></head><body><p>Detail</p></body></html>");
+        driver.get(LIST);
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> click = new HashMap<>();
+        click.put("operation", "click");
+        click.put("selector", "id");
+        click.put("name", "next");
+        click.put("delay", 10);
+        click.put("until", condition);
+
+        long start = System.currentTimeMillis();
+        scripter.runScript(Collections.singletonMap("next", click));
+
+        Assertions.assertTrue(System.currentTimeMillis() - start < 5000, condition + " waited out the delay");
+        Assertions.assertEquals(DETAIL, driver.getCurrentUrl());
+    }
+}
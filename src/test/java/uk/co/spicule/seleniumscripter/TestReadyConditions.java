@@ -0,0 +1,66 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.TimeoutException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TestReadyConditions {
+    private static final String START = "https://example.com/start.html";
+    private static final String RESULTS = "https://example.com/results.html";
+
+    @Test
+    public void restoreWaitsForTheReadyCondition() throws Exception {
+        SeleniumScripter scripter = scripter();
+
+        Map<String, Object> ready = new HashMap<>();
+        ready.put("condition", "located");
+        ready.put("selector", "xpath");
+        ready.put("name", "//li[@class='result']");
+        Map<String, Object> script = new LinkedHashMap<>();
+        script.put("restore", restore(ready));
+        script.put("loadpage", block("loadpage", "ready", "networkidle"));
+        script.put("snapshot", block("snapshot", "prefix", "results-"));
+        scripter.runScript(script);
+
+        Assertions.assertTrue(scripter.getSnapshots().get(0).getContent().contains("Result 1"));
+    }
+
+    @Test
+    public void failsWhenThePageIsNeverReady() throws Exception {
+        SeleniumScripter scripter = scripter();
+
+        Map<String, Object> ready = new HashMap<>();
+        ready.put("condition", "visible");
+        ready.put("selector", "xpath");
+        ready.put("name", "//table");
+        ready.put("timeout", 1);
+
+        Assertions.assertThrows(TimeoutException.class,
+                () -> scripter.runScript(java.util.Collections.singletonMap("restore", restore(ready))));
+    }
+
+    private static SeleniumScripter scripter() {
+        FakeWebDriver driver = new FakeWebDriver()
+                .addPage(START, "<html><head></head><body><p>Start</p></body></html>")
+                .addPage(RESULTS, "<html><head></head><body><ul><li class=\"result\">Result 1</li></ul></body></html>");
+        driver.get(START);
+        return new SeleniumScripter(driver);
+    }
+
+    private static Map<String, Object> restore(Map<String, Object> ready) {
+        Map<String, Object> restore = block("restore", "url", RESULTS);
+        restore.put("ready", ready);
+        return restore;
+    }
+
+    private static Map<String, Object> block(String operation, String field, Object value) {
+        Map<String, Object> block = new HashMap<>();
+        block.put("operation", operation);
+        block.put(field, value);
+        return block;
+    }
+}
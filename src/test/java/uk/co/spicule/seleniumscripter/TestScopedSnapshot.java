@@ -0,0 +1,52 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestScopedSnapshot {
+    private static final String URL = "https://example.com/results.html";
+
+    @Test
+    public void storesOnlyTheMatchingElements() throws Exception {
+        FakeWebDriver driver = new FakeWebDriver().addPage(URL, "<html><head><script>var boilerplate;</script></head><body>"
+                + "<div id=\"header\">Header</div>"
+                + "<table class=\"results\"><tr><td>Row 1</td></tr></table>"
+                + "<table class=\"results\"><tr><td>Row 2</td></tr></table>"
+                + "<div id=\"footer\">Footer</div></body></html>");
+        driver.get(URL);
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("operation", "snapshot");
+        snapshot.put("selector", "xpath");
+        snapshot.put("name", "//table[@class='results']");
+        snapshot.put("all", true);
+        scripter.runScript(Collections.singletonMap("results", snapshot));
+
+        List<Snapshot> snapshots = scripter.getSnapshots();
+        Assertions.assertEquals(2, snapshots.size());
+        Assertions.assertTrue(snapshots.get(0).getContent().startsWith("<table"));
+        Assertions.assertTrue(snapshots.get(0).getContent().contains("Row 1"));
+        Assertions.assertTrue(snapshots.get(1).getContent().contains("Row 2"));
+        Assertions.assertFalse(snapshots.get(1).getContent().contains("Footer"));
+    }
+
+    @Test
+    public void requiresASelectorWithAName() {
+        FakeWebDriver driver = new FakeWebDriver().addPage(URL, "<html><head></head><body><p>Page</p></body></html>");
+        driver.get(URL);
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("operation", "snapshot");
+        snapshot.put("name", "//p");
+        Assertions.assertThrows(ParseException.class, () -> scripter.runScript(Collections.singletonMap("p", snapshot)));
+        Assertions.assertTrue(scripter.getSnapshots().isEmpty());
+    }
+}
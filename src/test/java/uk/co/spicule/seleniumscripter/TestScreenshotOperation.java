@@ -0,0 +1,60 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestScreenshotOperation {
+    @TempDir
+    File directory;
+
+    @Test
+    public void capturesOnlyTheViewport() throws Exception {
+        SeleniumScripter scripter = scripter();
+
+        scripter.runScript(Collections.singletonMap("shot", screenshot("viewport")));
+
+        File[] written = new File(directory, "shots").listFiles();
+        Assertions.assertEquals(1, written.length);
+        Assertions.assertTrue(written[0].getName().endsWith("-page.png"));
+        BufferedImage image = ImageIO.read(written[0]);
+        Assertions.assertEquals(FakeWebDriver.SCREEN_WIDTH, image.getWidth());
+        Assertions.assertEquals(FakeWebDriver.SCREEN_HEIGHT, image.getHeight());
+    }
+
+    @Test
+    public void rejectsUnknownStrategies() {
+        SeleniumScripter scripter = scripter();
+
+        Assertions.assertThrows(ParseException.class,
+                () -> scripter.runScript(Collections.singletonMap("shot", screenshot("fullpage"))));
+        Map<String, Object> element = screenshot("element"); // Needs a `selector` and `name`
+        Assertions.assertThrows(ParseException.class,
+                () -> scripter.runScript(Collections.singletonMap("shot", element)));
+    }
+
+    private SeleniumScripter scripter() {
+        FakeWebDriver driver = new FakeWebDriver().addPage("https://example.com/", "<html><head></head><body><p>Page</p></body></html>");
+        driver.get("https://example.com/");
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+        scripter.setOutputPath(directory.getPath());
+        return scripter;
+    }
+
+    private static Map<String, Object> screenshot(String strategy) {
+        Map<String, Object> screenshot = new HashMap<>();
+        screenshot.put("operation", "screenshot");
+        screenshot.put("targetdir", "shots");
+        screenshot.put("tag", "page");
+        screenshot.put("strategy", strategy);
+        return screenshot;
+    }
+}
@@ -0,0 +1,62 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+public class TestScreenshotWriter {
+    @TempDir
+    File directory;
+
+    @Test
+    public void writesEveryQueuedScreenshotBeforeFlushReturns() throws Exception {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(10, 20, 0xff0000);
+
+        try (ScreenshotWriter writer = new ScreenshotWriter(2, 1)) {
+            for (int i = 0; i < 10; ++i) {
+                writer.write(image, new File(directory, i + ".png").toPath());
+            }
+            writer.flush();
+        }
+
+        for (int i = 0; i < 10; ++i) {
+            BufferedImage written = ImageIO.read(new File(directory, i + ".png"));
+            Assertions.assertEquals(640, written.getWidth());
+            Assertions.assertEquals(0xff0000, written.getRGB(10, 20) & 0xffffff);
+        }
+    }
+
+    @Test
+    public void reportsFailedWritesOnFlush() throws Exception {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+        try (ScreenshotWriter writer = new ScreenshotWriter(1, 0)) {
+            writer.write(image, new File(directory, "missing/0.png").toPath());
+            Assertions.assertThrows(IOException.class, writer::flush);
+            writer.flush(); // The failure is only reported once
+        }
+    }
+
+    @Test
+    public void stopsIdleEncoderThreads() throws Exception {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+        ScreenshotWriter writer = new ScreenshotWriter(2, 0); // Never closed, as by a scripter which is just dropped
+        writer.setKeepAlive(50);
+        writer.write(image, new File(directory, "0.png").toPath());
+        writer.write(image, new File(directory, "1.png").toPath());
+        writer.flush();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getThreadCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(0, writer.getThreadCount());
+    }
+}
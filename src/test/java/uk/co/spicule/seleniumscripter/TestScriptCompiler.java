@@ -0,0 +1,93 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.yaml.snakeyaml.Yaml;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+
+public class TestScriptCompiler {
+    private static final String SCRIPT = String.join("\n",
+            "version: '1.0'",
+            "a:",
+            "  operation: wait",
+            "  selector: id",
+            "  name: search",
+            "  timeout: '90'",
+            "b:",
+            "  operation: for",
+            "  forEach:",
+            "    selector: xpath",
+            "    name: //li[@class='{cls}']",
+            "    variable: row",
+            "  do:",
+            "    - operation: click",
+            "      selector: xpath",
+            "      name: '{row}'",
+            "    - operation: snapshot",
+            "c:",
+            "  operation: frobnicate",
+            "d:",
+            "  operation: keys",
+            "  selector: id",
+            "subscripts:",
+            "  sub:",
+            "    z:",
+            "      operation: noop",
+            "    a:",
+            "      operation: snapshot");
+
+    private CompiledScript compile() {
+        Map<String, Object> script = new Yaml().load(SCRIPT);
+        return new ScriptCompiler().compile(script);
+    }
+
+    @Test
+    public void compilesOperationsAndFields() throws ParseException {
+        List<Instruction> instructions = compile().getInstructions();
+
+        Assertions.assertEquals(Operation.VERSION, instructions.get(0).getOperation());
+
+        Instruction wait = instructions.get(1);
+        Assertions.assertEquals(Operation.WAIT, wait.getOperation());
+        Assertions.assertEquals(90, wait.getLong("timeout", 30));
+        Assertions.assertEquals(By.id("search"), wait.getBy());
+        Assertions.assertNull(wait.getError());
+    }
+
+    @Test
+    public void compilesNestedBlocksAndSections() {
+        Instruction loop = compile().getInstructions().get(2);
+        Assertions.assertEquals(Operation.FOR, loop.getOperation());
+
+        Instruction forEach = loop.getSection("forEach");
+        Assertions.assertNull(forEach.getBy()); // The locator depends on a script variable
+        Assertions.assertEquals("row", forEach.getString("variable"));
+
+        List<Instruction> body = loop.getBlock("do");
+        Assertions.assertEquals(2, body.size());
+        Assertions.assertEquals(Operation.CLICK, body.get(0).getOperation());
+        Assertions.assertEquals("b.do[1]", body.get(1).getPath());
+    }
+
+    @Test
+    public void defersCompilationErrors() {
+        List<Instruction> instructions = compile().getInstructions();
+
+        Assertions.assertEquals("Invalid operation: frobnicate", instructions.get(3).getError());
+        Assertions.assertTrue(instructions.get(4).getError().startsWith("Expected `name` field"));
+    }
+
+    @Test
+    public void compilesSubscriptsInKeyOrder() {
+        CompiledScript script = compile();
+
+        List<Instruction> sub = script.getSubscript("sub").getInstructions();
+        Assertions.assertEquals("a", sub.get(0).getName());
+        Assertions.assertSame(script.getSubscript("sub"), script.getSubscript("sub"));
+        Assertions.assertNull(script.getSubscript("missing"));
+    }
+}
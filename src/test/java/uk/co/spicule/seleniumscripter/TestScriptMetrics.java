@@ -0,0 +1,63 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+public class TestScriptMetrics {
+    @Test
+    public void exposesOperationHistogramsAsPrometheusText() throws Exception {
+        try (ScriptMetrics metrics = new ScriptMetrics()) {
+            metrics.record(Operation.CLICK, "search", TimeUnit.MILLISECONDS.toNanos(40), false);
+            metrics.record(Operation.CLICK, "search", TimeUnit.SECONDS.toNanos(2), true);
+            metrics.sleep(1);
+
+            int port = metrics.serve(0);
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+            String text;
+            try (InputStream in = connection.getInputStream()) {
+                text = IOUtils.toString(in, StandardCharsets.UTF_8);
+            }
+
+            Assertions.assertTrue(text.contains("seleniumscripter_operation_seconds_bucket{operation=\"click\",le=\"0.05\"} 1\n"));
+            Assertions.assertTrue(text.contains("seleniumscripter_operation_seconds_bucket{operation=\"click\",le=\"+Inf\"} 2\n"));
+            Assertions.assertTrue(text.contains("seleniumscripter_blocks_total{block=\"search\",result=\"failure\"} 1\n"));
+            Assertions.assertTrue(metrics.getSleepMillis() >= 1);
+        }
+    }
+
+    @Test
+    public void countsTheCommandsAnInstrumentedDriverSends() throws Exception {
+        RemoteWebDriver driver = new RemoteWebDriver(command -> {
+            Response response = new Response(new SessionId("session"));
+            response.setStatus(0);
+            response.setValue("getCurrentUrl".equals(command.getName()) ? "about:blank" : new HashMap<>());
+            return response;
+        }, new DesiredCapabilities());
+
+        try (ScriptMetrics metrics = new ScriptMetrics()) {
+            metrics.instrument(driver);
+            metrics.instrument(driver); // Instrumenting twice must not count twice
+            driver.getCurrentUrl();
+            driver.getCurrentUrl();
+            Assertions.assertEquals(Long.valueOf(2), metrics.getCommandCounts().get("getCurrentUrl"));
+
+            metrics.register("test");
+            ObjectName name = new ObjectName("uk.co.spicule.seleniumscripter:type=ScriptMetrics,name=\"test\"");
+            Assertions.assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Commands"));
+        }
+    }
+}
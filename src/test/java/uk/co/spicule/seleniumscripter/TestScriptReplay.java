@@ -0,0 +1,71 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the bundled scripts against recorded fixture pages served by the {@link FakeWebDriver}, reporting the
+ *      number of WebDriver commands each one sends and how long it takes.
+ */
+public class TestScriptReplay {
+    private static final Logger LOG = LoggerFactory.getLogger(TestScriptReplay.class);
+
+    @TempDir
+    File outputDirectory;
+
+    @Test
+    public void replaysAlabama() throws Exception {
+        String base = "https://www.medicaid.alabamaservices.org/ALPortal/NDC%20Look%20Up/tabId/39/";
+        FakeWebDriver driver = new FakeWebDriver()
+                .addResource(base + "Default.aspx", "fixtures/alabama/search.html")
+                .addResource(base + "results-1.html", "fixtures/alabama/results-1.html")
+                .addResource(base + "results-2.html", "fixtures/alabama/results-2.html");
+        driver.get(base + "Default.aspx");
+
+        List<Snapshot> snapshots = replay("alabama.yaml", driver);
+
+        Assertions.assertEquals(2, snapshots.size());
+        Assertions.assertTrue(snapshots.get(0).getContent().contains("ABILIFY 5 MG TABLET"));
+        Assertions.assertTrue(snapshots.get(1).getContent().contains("<brandname>"));
+        Assertions.assertTrue(new File(outputDirectory, "alabama-stack1-snapshot.html").isFile()); // Dumped by the script
+    }
+
+    @Test
+    public void replaysCmsGov() throws Exception {
+        FakeWebDriver driver = new FakeWebDriver()
+                .addResource("https://www.cms.gov/medicare-coverage-database/indexes/article-list.aspx", "fixtures/cmsgov/article-list.html");
+
+        List<Snapshot> snapshots = replay("cmsgov.yaml", driver);
+
+        Assertions.assertEquals(1, snapshots.size());
+        Assertions.assertTrue(snapshots.get(0).getContent().contains("A53127"));
+    }
+
+    private List<Snapshot> replay(String scriptName, FakeWebDriver driver) throws Exception {
+        Map<String, Object> script;
+        try (InputStream in = TestScriptReplay.class.getClassLoader().getResourceAsStream(scriptName)) {
+            script = new Yaml().load(in);
+        }
+
+        SeleniumScripter scripter = new SeleniumScripter(driver, true);
+        scripter.setOutputPath(outputDirectory.getPath());
+
+        long commands = driver.getCommandCount();
+        long start = System.nanoTime();
+        scripter.runScript(script);
+        LOG.info("Replayed " + scriptName + ": " + (driver.getCommandCount() - commands) + " commands in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms " + driver.getCommandCounts());
+
+        return scripter.getSnapshots();
+    }
+}
@@ -0,0 +1,142 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class TestSnapshotStore {
+    @TempDir
+    File directory;
+
+    private static String page(int i) {
+        StringBuilder content = new StringBuilder("<html><body>");
+        for (int row = 0; row < 100; ++row) {
+            content.append("<p>Page ").append(i).append(" row ").append(row).append(" \u00e9</p>");
+        }
+        return content.append("</body></html>").toString();
+    }
+
+    private static long size(int i) {
+        return page(i).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    public void spillsOldestContentBeyondTheBudget() {
+        int live = SnapshotStore.Segment.getLiveCount();
+        SnapshotStore store = new SnapshotStore();
+        store.setDirectory(directory);
+        store.setMemoryBudget(3 * size(0));
+
+        for (int i = 0; i < 10; ++i) {
+            store.add(new Snapshot("s" + i, page(i)));
+        }
+
+        Assertions.assertEquals(7, store.getSpilledCount());
+        Assertions.assertTrue(store.getResidentBytes() <= store.getMemoryBudget());
+        Assertions.assertEquals(1, directory.listFiles().length);
+        Assertions.assertEquals(live + 1, SnapshotStore.Segment.getLiveCount());
+        for (int i = 0; i < 10; ++i) {
+            Assertions.assertEquals(page(i), store.get(i).getContent());
+        }
+
+        store.close();
+        Assertions.assertEquals(0, directory.listFiles().length);
+        Assertions.assertEquals(live, SnapshotStore.Segment.getLiveCount());
+    }
+
+    @Test
+    public void keepsSpillingAfterAdoptingSegments() {
+        SnapshotStore worker = new SnapshotStore();
+        worker.setDirectory(directory);
+        worker.setMemoryBudget(size(0));
+        for (int i = 0; i < 3; ++i) {
+            worker.add(new Snapshot("w" + i, page(i)));
+        }
+        Assertions.assertEquals(2, worker.getSpilledCount());
+
+        SnapshotStore store = new SnapshotStore();
+        store.setDirectory(directory);
+        store.setMemoryBudget(3 * size(0));
+        store.addAll(worker);
+        store.adoptSegments(worker);
+        worker.close(); // Must leave the adopted segment in place
+        for (int i = 3; i < 8; ++i) {
+            store.add(new Snapshot("s" + i, page(i)));
+        }
+
+        Assertions.assertTrue(store.getSpilledCount() > 0);
+        Assertions.assertTrue(store.getResidentBytes() <= store.getMemoryBudget());
+        Assertions.assertEquals(page(0), store.get(0).getContent());
+        Assertions.assertEquals(page(7), store.get(7).getContent());
+        Assertions.assertEquals(2, directory.listFiles().length);
+
+        store.close();
+        Assertions.assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void releasesBudgetWhenSnapshotsAreMovedOff() {
+        SnapshotStore store = new SnapshotStore();
+        store.setDirectory(directory);
+
+        for (int i = 0; i < 4; ++i) {
+            store.add(new Snapshot("s" + i, page(i)));
+        }
+        store.subList(1, 4).clear();
+
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertEquals(size(0), store.getResidentBytes());
+        store.close();
+    }
+
+    @Test
+    public void sharesBodiesOfIdenticalSnapshots() {
+        SnapshotStore store = new SnapshotStore();
+        store.setDirectory(directory);
+        store.setDeduplicate(true);
+
+        store.add(new Snapshot("a", page(0)));
+        store.add(new Snapshot("b", page(1)));
+        store.add(new Snapshot("c", page(0)));
+
+        Assertions.assertEquals(1, store.getDeduplicationHits());
+        Assertions.assertEquals(2, store.getDeduplicationMisses());
+        Assertions.assertSame(store.get(0).getBody(), store.get(2).getBody());
+        Assertions.assertEquals("c", store.get(2).getName());
+        Assertions.assertEquals(2 * size(0), store.getResidentBytes());
+
+        // The shared body stays resident until its last snapshot is removed
+        store.remove(0);
+        Assertions.assertEquals(page(0), store.get(1).getContent());
+        Assertions.assertEquals(2 * size(0), store.getResidentBytes());
+        store.close();
+    }
+
+    @Test
+    public void compressesAndStreamsContent() throws IOException {
+        SnapshotStore store = new SnapshotStore();
+        store.setDirectory(directory);
+        store.setCompression(true);
+
+        store.add(new Snapshot("a", page(0)));
+        store.add(new Snapshot("b", page(1)));
+        Assertions.assertTrue(store.getResidentBytes() < size(0));
+
+        // Spill the first snapshot and read both back
+        store.setMemoryBudget(store.getResidentBytes() - 1);
+        Assertions.assertEquals(1, store.getSpilledCount());
+        for (int i = 0; i < 2; ++i) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Assertions.assertEquals(size(i), store.get(i).writeContentTo(out));
+            Assertions.assertEquals(page(i), new String(out.toByteArray(), StandardCharsets.UTF_8));
+            Assertions.assertEquals(page(i), store.get(i).getContent());
+            Assertions.assertEquals(size(i), store.get(i).getContentLength());
+        }
+        store.close();
+    }
+}
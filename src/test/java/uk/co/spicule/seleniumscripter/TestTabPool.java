@@ -0,0 +1,50 @@
+package uk.co.spicule.seleniumscripter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class TestTabPool {
+    private static final String LIST = "https://example.com/list.html";
+
+    @Test
+    public void visitsEveryLinkAcrossTabs() throws Exception {
+        FakeWebDriver driver = new FakeWebDriver();
+        StringBuilder list = new StringBuilder("<html><head></head><body><ul>");
+        for (int i = 1; i <= 5; ++i) {
+            String url = "https://example.com/detail-" + i + ".html";
+            list.append("<li><a class=\"detail\" href=\"").append(url).append("\">Detail ").append(i).append("</a></li>");
+            driver.addPage(url, "<html><head></head><body><h1>Detail " + i + "</h1></body></html>");
+        }
+        driver.addPage(LIST, list.append("</ul></body></html>").toString());
+        driver.get(LIST);
+        SeleniumScripter scripter = new SeleniumScripter(driver);
+
+        Map<String, Object> forEach = new HashMap<>();
+        forEach.put("selector", "xpath");
+        forEach.put("name", "//a[@class='detail']");
+        forEach.put("variable", "detail");
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("operation", "snapshot");
+        Map<String, Object> loop = new HashMap<>();
+        loop.put("operation", "for");
+        loop.put("forEach", forEach);
+        loop.put("tabs", Collections.singletonMap("size", 2));
+        loop.put("do", Collections.singletonList(snapshot));
+        scripter.runScript(Collections.singletonMap("details", loop));
+
+        Set<String> headings = new HashSet<>();
+        for (Snapshot taken : scripter.getSnapshots()) {
+            headings.add(taken.getContent().replaceAll("(?s).*<h1>(.*)</h1>.*", "$1"));
+        }
+        Assertions.assertEquals(5, scripter.getSnapshots().size());
+        Assertions.assertEquals(5, headings.size());
+        Assertions.assertEquals(Collections.singleton("main"), driver.getWindowHandles());
+        Assertions.assertEquals(LIST, driver.getCurrentUrl());
+    }
+}